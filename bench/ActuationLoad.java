@@ -0,0 +1,229 @@
+import org.firmata4j.IOEvent;
+import org.firmata4j.PinEventListener;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator and soak test for the actuation path. Drives LEDs on three simulated
+ * boards with a serial link of the given speed, latency, jitter and loss, committing a
+ * transaction with a new value for every LED each frame at the requested number of pin
+ * updates per second, through the per-board actuation threads and burst transport
+ * Main uses. Meanwhile another thread keeps pressing and releasing a reset button on
+ * the first board; every press resets all LEDs in the next frame at reset priority.
+ *
+ * Prints the updates offered and delivered per second, how many were merged by the
+ * actuation threads or lost on the link, the delay from commit until a value reached
+ * its pin (percentiles), how long the frame loop was blocked by commits, and how many
+ * LEDs were left with a value other than the last one committed.
+ *
+ * Usage: ActuationLoad [pin updates per second] [seconds] [baud, 0 for unlimited]
+ *                      [latency us] [jitter us] [drop %]
+ */
+public class ActuationLoad {
+    private static final int BOARDS = 3;
+    private static final int LEDS_PER_BOARD = 8;
+    // Pins 0 and 1 carry the serial link on an Arduino
+    private static final int FIRST_PIN = 2;
+    private static final int BUTTON_PIN = FIRST_PIN + LEDS_PER_BOARD;
+    private static final double MAX_PIN_UPDATES_PER_SECOND = 1000;
+    private static final long BUTTON_INTERVAL_MS = 250;
+    private static final long BUTTON_HOLD_MS = 50;
+    // Values cycle through 1..255 so a reset (0) can be told apart; a value identifies its frame
+    private static final int VALUE_CYCLE = 255;
+    private static final int MAX_LATENCY_SAMPLES = 4_000_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        double updatesPerSecond = args.length > 0 ? Double.parseDouble(args[0]) : 5000;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 10;
+        int baud = args.length > 2 ? Integer.parseInt(args[2]) : 115200;
+        long latencyMicros = args.length > 3 ? Long.parseLong(args[3]) : 200;
+        long jitterMicros = args.length > 4 ? Long.parseLong(args[4]) : 300;
+        double dropPercent = args.length > 5 ? Double.parseDouble(args[5]) : 0.1;
+
+        SimulatedBoard[] boards = new SimulatedBoard[BOARDS];
+        DeviceManager manager = new DeviceManager();
+        FirmataBurstTransport transport = new FirmataBurstTransport();
+        int leds = BOARDS * LEDS_PER_BOARD;
+        for (int b = 0; b < BOARDS; b++) {
+            boards[b] = new SimulatedBoard();
+            boards[b].setSeed(b);
+            boards[b].start();
+            manager.addBoard("sim" + b, boards[b], transport);
+            for (int i = 0; i < LEDS_PER_BOARD; i++) {
+                manager.addController(new LEDController(boards[b], FIRST_PIN + i));
+            }
+        }
+
+        // One synchronous frame first, so the write path is loaded before anything is measured
+        DeviceManager.Transaction transaction = manager.newTransaction();
+        for (int i = 0; i < leds; i++) {
+            transaction.set(i, VALUE_CYCLE);
+        }
+        transaction.commit();
+
+        // Commit time of the last frame that used each value, and the delay until each value arrived
+        AtomicLongArray commitTimes = new AtomicLongArray(VALUE_CYCLE + 1);
+        long[] latencies = new long[MAX_LATENCY_SAMPLES];
+        AtomicInteger latencyCount = new AtomicInteger();
+        for (int b = 0; b < BOARDS; b++) {
+            for (int i = 0; i < LEDS_PER_BOARD; i++) {
+                boards[b].getPin(FIRST_PIN + i).addEventListener(new PinEventListener() {
+                    @Override
+                    public void onModeChange(IOEvent event) {
+                    }
+
+                    @Override
+                    public void onValueChange(IOEvent event) {
+                        long committed = commitTimes.get((int) event.getValue());
+                        int sample = latencyCount.getAndIncrement();
+                        if (committed != 0 && sample < latencies.length) {
+                            latencies[sample] = System.nanoTime() - committed;
+                        }
+                    }
+                });
+            }
+        }
+
+        AtomicInteger pendingResets = new AtomicInteger();
+        ButtonController button = new ButtonController(boards[0], BUTTON_PIN);
+        button.setButtonPressListener(new ButtonController.ButtonPressListener() {
+            @Override
+            public void onButtonPressed() {
+                pendingResets.incrementAndGet();
+            }
+
+            @Override
+            public void onButtonReleased() {
+            }
+        });
+
+        for (SimulatedBoard board : boards) {
+            board.setBaudRate(baud);
+            board.setWriteLatency(latencyMicros, TimeUnit.MICROSECONDS);
+            board.setWriteJitter(jitterMicros, TimeUnit.MICROSECONDS);
+            board.setDropRate(dropPercent / 100);
+        }
+        long writesBefore = 0;
+        long messagesBefore = 0;
+        for (SimulatedBoard board : boards) {
+            writesBefore += board.getWriteCount();
+            messagesBefore += board.getMessageCount();
+        }
+        manager.startActuation(MAX_PIN_UPDATES_PER_SECOND);
+        System.out.printf("%d LEDs on %d simulated boards at %d baud, %d us latency, %d us jitter, %.2f%% lost; "
+                        + "%.0f updates/s for %.0f s%n", leds, BOARDS, baud, latencyMicros, jitterMicros,
+                dropPercent, updatesPerSecond, seconds);
+
+        Thread presser = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    TimeUnit.MILLISECONDS.sleep(BUTTON_INTERVAL_MS - BUTTON_HOLD_MS);
+                    boards[0].pressButton(BUTTON_PIN);
+                    TimeUnit.MILLISECONDS.sleep(BUTTON_HOLD_MS);
+                    boards[0].releaseButton(BUTTON_PIN);
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            }
+        }, "button");
+        presser.setDaemon(true);
+        presser.start();
+
+        int[] lastCommitted = new int[leds];
+        long frameNanos = (long) (1e9 * leds / updatesPerSecond);
+        long offered = 0;
+        int resetFrames = 0;
+        long blockedNanos = 0;
+        long maxBlockedNanos = 0;
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 1e9);
+        long next = start;
+        for (int frame = 0; System.nanoTime() < end; frame++) {
+            boolean reset = pendingResets.getAndSet(0) > 0;
+            int value = reset ? 0 : 1 + frame % VALUE_CYCLE;
+            int priority = reset ? DeviceManager.PRIORITY_RESET : DeviceManager.PRIORITY_CONTROL;
+            long commitStart = System.nanoTime();
+            commitTimes.set(value, commitStart);
+            for (int i = 0; i < leds; i++) {
+                transaction.set(i, value, priority, FrameTrace.NONE);
+                lastCommitted[i] = value;
+            }
+            transaction.commit();
+            long blocked = System.nanoTime() - commitStart;
+            blockedNanos += blocked;
+            maxBlockedNanos = Math.max(maxBlockedNanos, blocked);
+            offered += leds;
+            if (reset) {
+                resetFrames++;
+            }
+
+            next += frameNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else if (wait < -frameNanos) {
+                // Fell behind: carry on from now rather than bursting to catch up
+                next = System.nanoTime();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        presser.interrupt();
+        presser.join();
+        ActuationScheduler[] schedulers = new ActuationScheduler[BOARDS];
+        for (int b = 0; b < BOARDS; b++) {
+            schedulers[b] = manager.getActuationScheduler("sim" + b);
+        }
+        manager.stopActuation();
+
+        long delivered = -writesBefore;
+        long lost = 0;
+        long messages = -messagesBefore;
+        for (SimulatedBoard board : boards) {
+            // The button pin's reports are not writes, so every write is an LED value
+            delivered += board.getWriteCount();
+            lost += board.getDroppedCount();
+            messages += board.getMessageCount();
+        }
+        int stale = 0;
+        for (int i = 0; i < leds; i++) {
+            if (manager.getController(i).getPin().getValue() != lastCommitted[i]) {
+                stale++;
+            }
+        }
+        long suppressed = 0;
+        for (ActuationScheduler scheduler : schedulers) {
+            suppressed += scheduler.getWritesSuppressed();
+        }
+        for (SimulatedBoard board : boards) {
+            board.stop();
+        }
+
+        double elapsedSeconds = elapsed / 1e9;
+        System.out.printf("Offered   %8.0f updates/s (%d), %d reset frames%n",
+                offered / elapsedSeconds, offered, resetFrames);
+        System.out.printf("Delivered %8.0f updates/s (%d) in %.0f messages/s; %d merged or unchanged, %d lost%n",
+                delivered / elapsedSeconds, delivered, messages / elapsedSeconds, suppressed, lost);
+        int samples = Math.min(latencyCount.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        System.out.printf("Commit to pin: p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                percentile(sorted, 1.0));
+        System.out.printf("Frame loop blocked %.1f us per frame (max %.1f us)%n",
+                blockedNanos / 1e3 / Math.max(1, offered / leds), maxBlockedNanos / 1e3);
+        System.out.printf("LEDs not at their last committed value: %d of %d%n", stale, leds);
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,71 @@
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput check for per-frame transactions: sets 1, 8 and 32 PWM pins on a
+ * simulated board every frame, as fast as the board takes them, and reports the
+ * pin updates per second. Each pin count is run once writing every value with its
+ * own message (controlDevice per pin) and once committing a transaction per frame,
+ * which sends the frame's values as one burst through {@link FirmataBurstTransport}.
+ * The simulated board charges the write latency once per message, as a serial link
+ * charges its round trip.
+ *
+ * Usage: BoardBursts [write latency in microseconds] [seconds per run]
+ */
+public class BoardBursts {
+    private static final int[] PIN_COUNTS = {1, 8, 32};
+    // Pins 0 and 1 carry the serial link on an Arduino
+    private static final int FIRST_PIN = 2;
+
+    public static void main(String[] args) throws IOException {
+        long latencyMicros = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+
+        System.out.println("Simulated board: " + latencyMicros + " us per message; "
+                + seconds + " s per run");
+        System.out.println("pins  mode          updates/s  messages/frame");
+        for (int pins : PIN_COUNTS) {
+            System.out.println(run(pins, false, latencyMicros, seconds));
+            System.out.println(run(pins, true, latencyMicros, seconds));
+        }
+    }
+
+    private static String run(int pins, boolean bursts, long latencyMicros, double seconds) throws IOException {
+        SimulatedBoard board = new SimulatedBoard(FIRST_PIN + pins);
+        board.start();
+        DeviceManager manager = new DeviceManager();
+        manager.addBoard("board", board, new FirmataBurstTransport());
+        for (int i = 0; i < pins; i++) {
+            manager.addController(new LEDController(board, FIRST_PIN + i));
+        }
+        board.setWriteLatency(latencyMicros, TimeUnit.MICROSECONDS);
+        DeviceManager.Transaction transaction = manager.newTransaction();
+
+        long messagesBefore = board.getMessageCount();
+        long writesBefore = board.getWriteCount();
+        long end = System.nanoTime() + (long) (seconds * 1e9);
+        long start = System.nanoTime();
+        int frames = 0;
+        while (System.nanoTime() < end) {
+            // A new value for every pin each frame, so nothing is skipped as unchanged
+            int value = frames % 256;
+            for (int i = 0; i < pins; i++) {
+                if (bursts) {
+                    transaction.set(i, value);
+                } else {
+                    manager.controlDevice(i, value);
+                }
+            }
+            if (bursts) {
+                transaction.commit();
+            }
+            frames++;
+        }
+        long elapsed = System.nanoTime() - start;
+        board.stop();
+
+        long updates = board.getWriteCount() - writesBefore;
+        return String.format("%4d  %-12s %10.0f  %14.1f", pins, bursts ? "burst" : "per pin",
+                updates / (elapsed / 1e9), (board.getMessageCount() - messagesBefore) / (double) frames);
+    }
+}
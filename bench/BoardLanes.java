@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Isolation check for the per-board I/O lanes: drives an LED on a healthy
+ * simulated board and one on a slow simulated board, then disconnects the slow
+ * board, and reports how many values reached each board and how long the
+ * frame loop was blocked by controlDevice. The same run is repeated without
+ * actuation threads, where every write happens on the calling thread.
+ *
+ * Write errors from the disconnected board are printed on stderr.
+ *
+ * Usage: BoardLanes [slow board write latency in ms] [seconds per phase]
+ */
+public class BoardLanes {
+    private static final double FRAME_RATE = 30;
+    private static final double MAX_PIN_UPDATES_PER_SECOND = 50;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long slowLatencyMillis = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        System.out.println("Slow board: " + slowLatencyMillis + " ms per write; " + seconds
+                + " s connected, then " + seconds + " s disconnected; " + (int) FRAME_RATE + " frames/s");
+        System.out.println(run(true, slowLatencyMillis, seconds));
+        System.out.println(run(false, slowLatencyMillis, seconds));
+    }
+
+    private static String run(boolean lanes, long slowLatencyMillis, int seconds)
+            throws IOException, InterruptedException {
+        SimulatedBoard healthy = new SimulatedBoard();
+        SimulatedBoard slow = new SimulatedBoard();
+        healthy.start();
+        slow.start();
+
+        DeviceManager manager = new DeviceManager();
+        manager.addBoard("healthy", healthy);
+        manager.addBoard("slow", slow);
+        int healthyLed = manager.addController(new LEDController(healthy, 3));
+        int slowLed = manager.addController(new LEDController(slow, 3));
+        slow.setWriteLatency(slowLatencyMillis, TimeUnit.MILLISECONDS);
+        if (lanes) {
+            manager.startActuation(MAX_PIN_UPDATES_PER_SECOND);
+        }
+
+        long frameNanos = (long) (1_000_000_000L / FRAME_RATE);
+        int framesPerPhase = (int) (seconds * FRAME_RATE);
+        long blockedNanos = 0;
+        long maxBlockedNanos = 0;
+        int frames = 0;
+        long next = System.nanoTime();
+        for (int phase = 0; phase < 2; phase++) {
+            slow.setConnected(phase == 0);
+            for (int i = 0; i < framesPerPhase; i++, frames++) {
+                int value = frames % 256;
+                long start = System.nanoTime();
+                manager.controlDevice(healthyLed, value);
+                try {
+                    manager.controlDevice(slowLed, value);
+                } catch (IOException e) {
+                    // The disconnected board; the frame loop carries on
+                }
+                long blocked = System.nanoTime() - start;
+                blockedNanos += blocked;
+                maxBlockedNanos = Math.max(maxBlockedNanos, blocked);
+
+                next += frameNanos;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            }
+        }
+        manager.stopActuation();
+        healthy.stop();
+        slow.stop();
+
+        return String.format("%-14s healthy board %3d/%d values, slow board %3d/%d, "
+                        + "frame loop blocked %.2f ms per frame (max %.1f ms)",
+                lanes ? "Per-board lanes" : "Synchronous", healthy.getWriteCount(), frames,
+                slow.getWriteCount(), frames, blockedNanos / 1e6 / frames, maxBlockedNanos / 1e6);
+    }
+}
@@ -0,0 +1,126 @@
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares the height filters on a synthetic hand height trace: the hand rests,
+ * moves up, drops, then waves, while every measurement carries noise. Values are
+ * applied a fixed pipeline latency after capture, as on the real system.
+ * For each filter it reports the jitter once the hand has settled, the error against
+ * the true height at the moment each value is applied (at rest, and while rising or
+ * waving), how long after the drop the value is within 5% again, and how many servo writes
+ * are needed (changes of the 0-180 servo angle).
+ *
+ * Usage: FilterResponse [noise sd in percent] [latency ms] [fps]
+ */
+public class FilterResponse {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long STEP_TIME = 5 * NANOS_PER_SECOND;
+
+    public static void main(String[] args) {
+        double noise = args.length > 0 ? Double.parseDouble(args[0]) : 1.5;
+        long latencyNanos = (args.length > 1 ? Long.parseLong(args[1]) : 60) * 1_000_000L;
+        double fps = args.length > 2 ? Double.parseDouble(args[2]) : 30;
+
+        System.out.printf("Noise sd %.1f%%, latency %d ms, %.0f fps%n", noise, latencyNanos / 1_000_000, fps);
+        System.out.printf("%-24s %12s %12s %12s %12s %12s%n", "Filter", "rest jitter", "rest error", "moving error",
+                "step settle", "servo writes");
+        run("None", () -> null, false, noise, latencyNanos, fps);
+        run("One Euro", OneEuroFilter::new, false, noise, latencyNanos, fps);
+        run("One Euro + prediction", OneEuroFilter::new, true, noise, latencyNanos, fps);
+        run("Kalman", KalmanHeightFilter::new, false, noise, latencyNanos, fps);
+        run("Kalman + prediction", KalmanHeightFilter::new, true, noise, latencyNanos, fps);
+    }
+
+    private static void run(String name, Supplier<HeightFilter> factory, boolean predict, double noise,
+                            long latencyNanos, double fps) {
+        HeightFilter filter = factory.get();
+        Random random = new Random(42);
+        long frameNanos = (long) (NANOS_PER_SECOND / fps);
+        long duration = 10 * NANOS_PER_SECOND;
+
+        double restJitter = 0;
+        double restError = 0;
+        double movingError = 0;
+        int restFrames = 0;
+        int movingFrames = 0;
+        long stepSettledAt = -1;
+        int writes = 0;
+        int lastAngle = -1;
+        double lastValue = Double.NaN;
+        double sent = Double.NaN;
+        for (long t = 0; t < duration; t += frameNanos) {
+            double measured = trueHeight(t) + noise * random.nextGaussian();
+            double value = measured;
+            if (filter != null) {
+                // As GestureHandler does: filter, predict, then hold back changes inside the deadband
+                filter.filter(measured, t);
+                value = filter.predict(predict ? latencyNanos : 0);
+                if (!Double.isNaN(sent) && Math.abs(value - sent) < GestureHandler.HEIGHT_DEADBAND) {
+                    value = sent;
+                }
+                sent = value;
+            }
+            value = Math.max(0, Math.min(100, value));
+
+            // The value reaches the device one pipeline latency after capture
+            double error = value - trueHeight(t + latencyNanos);
+            if (isSettled(t) && isSettled(t + latencyNanos)) {
+                restError += error * error;
+                if (!Double.isNaN(lastValue)) {
+                    restJitter += (value - lastValue) * (value - lastValue);
+                }
+                restFrames++;
+            } else if (isMoving(t + latencyNanos)) {
+                movingError += error * error;
+                movingFrames++;
+            }
+            if (t + latencyNanos >= STEP_TIME && stepSettledAt < 0 && Math.abs(error) < 5) {
+                stepSettledAt = t + latencyNanos;
+            }
+            lastValue = value;
+
+            int angle = (int) Math.round(value / 100.0 * ServoController.MAX_ANGLE);
+            if (angle != lastAngle) {
+                writes++;
+                lastAngle = angle;
+            }
+        }
+        System.out.printf("%-24s %11.2f%% %11.2f%% %11.2f%% %9d ms %12d%n", name, Math.sqrt(restJitter / restFrames),
+                Math.sqrt(restError / restFrames), Math.sqrt(movingError / movingFrames),
+                (stepSettledAt - STEP_TIME) / 1_000_000, writes);
+    }
+
+    /**
+     * The true hand height: rest at 20%, rise to 80% in 0.6 s, rest, drop to 40%
+     * within one frame, rest, then wave at 1 Hz.
+     */
+    private static double trueHeight(long t) {
+        double s = t / (double) NANOS_PER_SECOND;
+        if (s < 2) {
+            return 20;
+        } else if (s < 2.6) {
+            return 20 + 60 * (s - 2) / 0.6;
+        } else if (s < 5) {
+            return 80;
+        } else if (s < 7.5) {
+            return 40;
+        }
+        return 40 + 20 * Math.sin(2 * Math.PI * (s - 7.5));
+    }
+
+    /**
+     * Whether the hand is rising or waving (the drop is measured by its settling time instead).
+     */
+    private static boolean isMoving(long t) {
+        double s = t / (double) NANOS_PER_SECOND;
+        return (s >= 2 && s < 2.6) || s >= 7.5;
+    }
+
+    /**
+     * Whether the hand has been resting for at least half a second.
+     */
+    private static boolean isSettled(long t) {
+        double s = t / (double) NANOS_PER_SECOND;
+        return (s >= 0.5 && s < 2) || (s >= 3.1 && s < 5) || (s >= 5.5 && s < 7.5);
+    }
+}
@@ -0,0 +1,152 @@
+import benchmark.ProcessorStages;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapts GestureProcessor to the benchmark's ProcessorStages interface.
+ * Below full processing scale, fingers are counted on hands analysed by a second
+ * processor in finger counting mode, as the application does.
+ */
+public class GestureProcessorStages implements ProcessorStages {
+    private final GestureProcessor processor;
+    private final GestureProcessor countingProcessor;
+    private List<Mat> rois;
+    private final List<Mat> masks = new ArrayList<>();
+    private final List<HandAnalysis> hands = new ArrayList<>();
+    private final List<Mat> countingMasks;
+    private final List<HandAnalysis> countingHands;
+
+    public GestureProcessorStages(int processingScale, String segmentation) {
+        this.processor = createProcessor(processingScale, segmentation);
+        if (processingScale == GestureProcessor.SCALE_FULL) {
+            countingProcessor = processor;
+            countingMasks = masks;
+            countingHands = hands;
+        } else {
+            countingProcessor = createProcessor(processingScale, segmentation);
+            countingProcessor.setFingerCounting(true);
+            countingMasks = new ArrayList<>();
+            countingHands = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Reads the hand region of every frame of a recording, see
+     * {@link ProcessorStages#readHandRegions(String)}.
+     */
+    public static List<Mat> readHandRegions(String location) {
+        FrameSource source = FrameSource.open(location, false);
+        List<Mat> regions = new ArrayList<>();
+        try {
+            for (Mat frame = source.readFrame(); frame != null; frame = source.readFrame()) {
+                regions.add(new Mat(frame, source.getHandRegion()).clone());
+                frame.release();
+            }
+        } finally {
+            source.release();
+        }
+        return regions;
+    }
+
+    private static GestureProcessor createProcessor(int processingScale, String segmentation) {
+        GestureProcessor processor = new GestureProcessor(processingScale);
+        if (LOOKUP_TABLE.equals(segmentation)) {
+            processor.setSkinClassifier(GestureProcessor.CLASSIFIER_LOOKUP_TABLE);
+        } else if (!HSV.equals(segmentation)) {
+            // The remaining benchmark names match the application's strategy names
+            processor.setSegmentationStrategy(SegmentationStrategy.create(segmentation));
+        }
+        return processor;
+    }
+
+    @Override
+    public void prepare(List<Mat> rois) {
+        this.rois = rois;
+        for (Mat roi : rois) {
+            Mat mask = processor.createSkinMask(roi).clone();
+            masks.add(mask);
+            hands.add(processor.analyzeHand(mask));
+            if (countingProcessor != processor) {
+                Mat countingMask = countingProcessor.createSkinMask(roi).clone();
+                countingMasks.add(countingMask);
+                countingHands.add(countingProcessor.analyzeHand(countingMask));
+            }
+        }
+    }
+
+    @Override
+    public Mat createSkinMask(int image) {
+        return processor.createSkinMask(rois.get(image));
+    }
+
+    @Override
+    public Object analyzeHand(int image) {
+        return processor.analyzeHand(masks.get(image));
+    }
+
+    @Override
+    public int countFingers(int image) {
+        return countingProcessor.countFingers(countingHands.get(image));
+    }
+
+    @Override
+    public int countFingersWithLists(int image) {
+        return ListFingertips.countFingers(countingHands.get(image));
+    }
+
+    @Override
+    public double indexFingerHeight(int image) {
+        return processor.getIndexFingerHeightPercentage(hands.get(image));
+    }
+
+    @Override
+    public int countFingersSeparately(int image) {
+        return SeparateAnalysis.countFingers(countingMasks.get(image));
+    }
+
+    @Override
+    public double indexFingerHeightSeparately(int image) {
+        return SeparateAnalysis.getIndexFingerHeightPercentage(masks.get(image));
+    }
+
+    @Override
+    public int fullFrame(int image) {
+        Mat mask = processor.createSkinMask(rois.get(image));
+        HandAnalysis hand = processor.analyzeHand(mask);
+        processor.getIndexFingerHeightPercentage(hand);
+        return processor.countFingers(hand);
+    }
+
+    @Override
+    public int fullFrameCountingFingers(int image) {
+        Mat mask = countingProcessor.createSkinMask(rois.get(image));
+        HandAnalysis hand = countingProcessor.analyzeHand(mask);
+        countingProcessor.getIndexFingerHeightPercentage(hand);
+        return countingProcessor.countFingers(hand);
+    }
+
+    @Override
+    public long nativeAllocationCount() {
+        long count = processor.getNativeAllocationCount();
+        if (countingProcessor != processor) {
+            count += countingProcessor.getNativeAllocationCount();
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        processor.close();
+        for (Mat mask : masks) {
+            mask.release();
+        }
+        if (countingProcessor != processor) {
+            countingProcessor.close();
+            for (Mat mask : countingMasks) {
+                mask.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+/**
+ * Compares GestureDetector with the fixed-window rule it replaced: collect 50 frames
+ * from the first valid finger count, then select the most frequent count if it was
+ * seen in at least 80% of them. A user shows two fingers to a setup with three
+ * devices; each frame reads two with the given agreement rate and any other count
+ * (0-5) otherwise, the same frames for both rules.
+ *
+ * For each agreement rate it prints how often the right device was selected, how
+ * often a wrong one was, and how many frames it took to decide. Above 80% agreement
+ * GestureDetector should select at least as often as the fixed window, and below it
+ * no more often.
+ *
+ * Usage: GestureSelection [trials per agreement rate] [fps]
+ */
+public class GestureSelection {
+    private static final double[] AGREEMENT_RATES = {1.0, 0.95, 0.9, 0.85, 0.8, 0.75, 0.7, 0.6};
+    private static final int DEVICES = 3;
+    private static final int SHOWN_FINGERS = 2;
+    private static final int MAX_FINGERS = 5;
+    private static final int FIXED_WINDOW_FRAMES = 50;
+    private static final double FIXED_WINDOW_THRESHOLD = 0.8;
+
+    public static void main(String[] args) throws IOException {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        double fps = args.length > 1 ? Double.parseDouble(args[1]) : 30;
+
+        SimulatedBoard board = new SimulatedBoard();
+        board.start();
+        DeviceManager manager = new DeviceManager();
+        for (int i = 0; i < DEVICES; i++) {
+            manager.addController(new LEDController(board, 2 + i));
+        }
+
+        System.out.printf("%d devices, %d fingers shown, %.0f fps, %d trials per rate%n",
+                DEVICES, SHOWN_FINGERS, fps, trials);
+        System.out.printf("%-10s %24s %24s %24s%n", "agreement", "selected new / fixed",
+                "wrong device new / fixed", "frames new / fixed");
+        PrintStream out = System.out;
+        for (double agreement : AGREEMENT_RATES) {
+            // GestureDetector reports every decision on stdout
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            int[] detector = runDetector(manager, agreement, trials, fps);
+            int[] fixed = runFixedWindow(agreement, trials);
+            System.setOut(out);
+            System.out.printf("%-10.2f %11.3f / %-10.3f %11.4f / %-10.4f %11.1f / %-10.1f%n", agreement,
+                    detector[0] / (double) trials, fixed[0] / (double) trials,
+                    detector[1] / (double) trials, fixed[1] / (double) trials,
+                    detector[2] / (double) trials, fixed[2] / (double) trials);
+        }
+        board.stop();
+    }
+
+    /**
+     * @return Right selections, wrong selections and total frames collected
+     */
+    private static int[] runDetector(DeviceManager manager, double agreement, int trials, double fps) {
+        Random random = new Random(42);
+        long frameNanos = (long) (1_000_000_000L / fps);
+        int[] result = new int[3];
+        for (int trial = 0; trial < trials; trial++) {
+            GestureDetector detector = new GestureDetector();
+            long time = 0;
+            while (!detector.processFingerDetection(readFingers(random, agreement), time, manager)) {
+                time += frameNanos;
+            }
+            result[2] += detector.getFramesCollected();
+            count(result, detector.analyzeDetectedFingers(manager) + 1);
+        }
+        return result;
+    }
+
+    /**
+     * @return Right selections, wrong selections and total frames collected
+     */
+    private static int[] runFixedWindow(double agreement, int trials) {
+        Random random = new Random(42);
+        int[] result = new int[3];
+        for (int trial = 0; trial < trials; trial++) {
+            int[] histogram = new int[MAX_FINGERS + 1];
+            int frames = 0;
+            while (frames < FIXED_WINDOW_FRAMES) {
+                int fingers = readFingers(random, agreement);
+                boolean valid = fingers >= 1 && fingers <= DEVICES;
+                if (valid || frames > 0) {
+                    histogram[valid ? fingers : 0]++;
+                    frames++;
+                }
+            }
+            int leading = 0;
+            for (int i = 1; i <= DEVICES; i++) {
+                if (histogram[i] > histogram[leading] || leading == 0) {
+                    leading = i;
+                }
+            }
+            result[2] += frames;
+            boolean detected = histogram[leading] >= FIXED_WINDOW_THRESHOLD * frames;
+            count(result, detected ? leading : 0);
+        }
+        return result;
+    }
+
+    private static int readFingers(Random random, double agreement) {
+        if (random.nextDouble() < agreement) {
+            return SHOWN_FINGERS;
+        }
+        int fingers;
+        do {
+            fingers = random.nextInt(MAX_FINGERS + 1);
+        } while (fingers == SHOWN_FINGERS);
+        return fingers;
+    }
+
+    private static void count(int[] result, int selectedFingers) {
+        if (selectedFingers == SHOWN_FINGERS) {
+            result[0]++;
+        } else if (selectedFingers > 0) {
+            result[1]++;
+        }
+    }
+}
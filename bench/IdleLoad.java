@@ -0,0 +1,148 @@
+import com.sun.management.OperatingSystemMXBean;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * CPU load of the headless pipeline in front of an empty scene, with and without
+ * the motion gate. A synthetic 640x480 camera delivers a still background with
+ * sensor noise at 30 fps; with the gate, the scene goes idle after a few seconds.
+ * A hand-colored shape then moves into view and the number of frames until the
+ * pipeline is back at full rate is reported.
+ *
+ * Usage: IdleLoad [seconds idle]
+ */
+public class IdleLoad {
+    private static final double CAMERA_FPS = 30;
+    private static final long IDLE_AFTER_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final int NOISE_FRAMES = 8;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+        int idleSeconds = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+
+        System.out.println("Empty scene, " + (int) CAMERA_FPS + " fps camera; CPU time per second of wall time");
+        System.out.println(run(false, idleSeconds));
+        System.out.println(run(true, idleSeconds));
+    }
+
+    private static String run(boolean gated, int idleSeconds) throws InterruptedException {
+        GestureHandler handler = new GestureHandler();
+        MotionGate gate = gated ? new MotionGate(IDLE_AFTER_NANOS, MotionGate.DEFAULT_IDLE_FPS) : null;
+        handler.setMotionGate(gate);
+        GestureProcessor processor = new GestureProcessor();
+        SyntheticCamera camera = new SyntheticCamera(gate);
+        FramePipeline pipeline = new FramePipeline(camera, null, processor, null, handler, new DeviceManager());
+
+        pipeline.start();
+        // Let the JIT warm up and the gate go idle, then measure the empty scene
+        TimeUnit.NANOSECONDS.sleep(IDLE_AFTER_NANOS + TimeUnit.SECONDS.toNanos(1));
+        long wall = System.nanoTime();
+        long cpu = processCpuNanos();
+        long frames = camera.framesRead;
+        TimeUnit.SECONDS.sleep(idleSeconds);
+        double cpuLoad = (processCpuNanos() - cpu) / (double) (System.nanoTime() - wall);
+        double fps = (camera.framesRead - frames) * 1e9 / (System.nanoTime() - wall);
+
+        // Bring a hand in and wait until the pipeline is back at full rate
+        camera.motionStartFrame = camera.framesRead;
+        TimeUnit.SECONDS.sleep(1);
+        pipeline.stop();
+        pipeline.awaitTermination();
+        processor.close();
+        String wake = "";
+        if (gate != null) {
+            wake = String.format(", awake %d frame(s) after motion; %s",
+                    camera.wakeFrame - camera.motionStartFrame, gate.getStatsSummary());
+            gate.close();
+        }
+        return String.format("%-10s CPU %5.1f%% at %4.1f fps%s", gated ? "Gated" : "Ungated",
+                cpuLoad * 100, fps, wake);
+    }
+
+    private static long processCpuNanos() {
+        return ((OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    /**
+     * Delivers frames on a fixed 30 fps clock like a camera, skipping the ticks
+     * it was not asked for. From the motion start frame, a skin-colored hand shape
+     * moves across the hand region.
+     */
+    private static class SyntheticCamera implements FrameSource {
+        private final MotionGate gate;
+        private final Mat[] noisyFrames;
+        private final long frameIntervalNanos;
+        private final long startTime;
+        private final Rect handRegion;
+        volatile long framesRead;
+        volatile long motionStartFrame = Long.MAX_VALUE;
+        volatile long wakeFrame = -1;
+
+        SyntheticCamera(MotionGate gate) {
+            this.gate = gate;
+            // Noise is generated up front so the camera itself costs about as much as a frame copy
+            Mat background = new Mat(480, 640, CvType.CV_8UC3, new Scalar(140, 110, 90));
+            Imgproc.rectangle(background, new Point(0, 300), new Point(640, 480), new Scalar(110, 90, 70), -1);
+            Mat noise = new Mat(480, 640, CvType.CV_8SC3);
+            this.noisyFrames = new Mat[NOISE_FRAMES];
+            for (int i = 0; i < NOISE_FRAMES; i++) {
+                Core.randn(noise, 0, 2);
+                noisyFrames[i] = new Mat();
+                Core.add(background, noise, noisyFrames[i], new Mat(), CvType.CV_8UC3);
+            }
+            background.release();
+            noise.release();
+            this.frameIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / CAMERA_FPS);
+            this.startTime = System.nanoTime();
+            this.handRegion = FrameSource.defaultHandRegion(640, 480);
+        }
+
+        @Override
+        public Mat readFrame() {
+            // Wait for the next tick of the camera clock
+            long elapsed = System.nanoTime() - startTime;
+            long next = startTime + (elapsed / frameIntervalNanos + 1) * frameIntervalNanos;
+            for (long now = System.nanoTime(); now < next; now = System.nanoTime()) {
+                LockSupport.parkNanos(next - now);
+            }
+
+            long index = framesRead++;
+            Mat frame = noisyFrames[(int) (index % NOISE_FRAMES)].clone();
+            if (index >= motionStartFrame) {
+                if (wakeFrame < 0 && gate != null && !gate.isIdle()) {
+                    wakeFrame = index;
+                }
+                int x = handRegion.x + (int) ((index - motionStartFrame) * 4 % handRegion.width);
+                Imgproc.rectangle(frame, new Point(x, handRegion.y + 40), new Point(x + 60, handRegion.y + 200),
+                        new Scalar(120, 150, 210), -1);
+            }
+            return frame;
+        }
+
+        @Override
+        public Rect getHandRegion() {
+            return handRegion;
+        }
+
+        @Override
+        public boolean isRealTime() {
+            return true;
+        }
+
+        @Override
+        public void release() {
+            for (Mat frame : noisyFrames) {
+                frame.release();
+            }
+        }
+    }
+}
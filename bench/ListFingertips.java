@@ -0,0 +1,76 @@
+import org.opencv.core.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fingertip search as GestureProcessor ran it before {@link FingertipGeometry}:
+ * boxed point lists, square roots for every distance and atan2 inside the sort
+ * comparator. Kept only as the reference that the benchmarks compare against.
+ */
+final class ListFingertips {
+    private ListFingertips() {
+    }
+
+    static int countFingers(HandAnalysis hand) {
+        if (!hand.isHandPresent() || hand.getSolidity() > 0.9) {
+            return 0;
+        }
+
+        List<Point> pointList = hand.getHullPoints();
+        Point center = hand.getCentroid();
+        double palmRadius = hand.getPalmRadius();
+
+        List<Point> fingerCandidates = new ArrayList<>();
+        for (Point p : pointList) {
+            double distFromCenter = calculateDistance(center, p);
+            if (distFromCenter > palmRadius * 0.8 &&
+                    p.y < center.y + palmRadius * 0.3 &&
+                    !(p.y > center.y && (p.x < center.x - palmRadius * 0.8 || p.x > center.x + palmRadius * 0.8))) {
+                fingerCandidates.add(p);
+            }
+        }
+
+        fingerCandidates.sort((p1, p2) -> {
+            double angle1 = Math.atan2(p1.y - center.y, p1.x - center.x);
+            double angle2 = Math.atan2(p2.y - center.y, p2.x - center.x);
+            return Double.compare(angle1, angle2);
+        });
+
+        List<Point> fingerTips = new ArrayList<>();
+        if (!fingerCandidates.isEmpty()) {
+            fingerTips.add(fingerCandidates.get(0));
+            for (int i = 1; i < fingerCandidates.size(); i++) {
+                double distThreshold = fingerTips.size() >= 3 ? palmRadius * 0.35 : palmRadius * 0.4;
+                if (!isTooClose(fingerTips, fingerCandidates.get(i), distThreshold)) {
+                    fingerTips.add(fingerCandidates.get(i));
+                }
+            }
+        }
+
+        for (Point p : pointList) {
+            double xDiff = Math.abs(p.x - center.x);
+            double yDiff = Math.abs(p.y - center.y);
+            double distFromCenter = calculateDistance(center, p);
+            if (xDiff > yDiff * 1.2 && distFromCenter > palmRadius * 0.7 &&
+                    !isTooClose(fingerTips, p, palmRadius * 0.4)) {
+                fingerTips.add(p);
+                break;
+            }
+        }
+        return Math.min(fingerTips.size(), 5);
+    }
+
+    private static double calculateDistance(Point p1, Point p2) {
+        return Math.sqrt(Math.pow(p2.x - p1.x, 2) + Math.pow(p2.y - p1.y, 2));
+    }
+
+    private static boolean isTooClose(List<Point> points, Point newPoint, double minDistance) {
+        for (Point p : points) {
+            if (calculateDistance(p, newPoint) < minDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
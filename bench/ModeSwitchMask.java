@@ -0,0 +1,82 @@
+import benchmark.BenchmarkImages;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+/**
+ * Checks that switching between finger counting and height measurement keeps the
+ * hand in the mask of a background model at a reduced processing scale. The model
+ * learns an empty scene, then a hand is held still in the region while the mode
+ * switches every few frames, as selecting a device and pressing reset do. A still
+ * hand is slowly learned into the background anyway, so the same frames are also
+ * run in one mode: wherever the hand keeps at least half the area of its skin mask
+ * there, it must do so with the switches too. Exits with status 1 if it does not.
+ *
+ * Usage: ModeSwitchMask [scale] [resolution]
+ */
+public class ModeSwitchMask {
+    private static final String[] STRATEGIES = {
+            SegmentationStrategy.MOG2, SegmentationStrategy.KNN, SegmentationStrategy.HYBRID};
+    // Long enough for the model to settle at its slowest learning rate
+    private static final int EMPTY_FRAMES = BackgroundSegmentation.HISTORY;
+    private static final int HAND_FRAMES = 40;
+    private static final int FRAMES_PER_MODE = 10;
+    private static final double MIN_AREA_FRACTION = 0.5;
+
+    public static void main(String[] args) {
+        BenchmarkImages.loadNativeLibrary();
+        int scale = args.length > 0 ? Integer.parseInt(args[0]) : GestureProcessor.SCALE_HALF;
+        String resolution = args.length > 1 ? args[1] : "320x240";
+        org.opencv.core.Size size = BenchmarkImages.parseResolution(resolution);
+        Mat hand = BenchmarkImages.syntheticHand((int) size.width, (int) size.height, 5, 0);
+        Mat empty = new Mat(hand.size(), hand.type(), new Scalar(hand.get(0, 0)));
+
+        double handArea;
+        try (GestureProcessor skin = new GestureProcessor()) {
+            handArea = skin.analyzeHand(skin.createSkinMask(hand)).getContourArea();
+        }
+
+        boolean failed = false;
+        System.out.printf("%s at 1/%d, %d frames of a still hand%n", resolution, scale, HAND_FRAMES);
+        System.out.println("strategy  frames with the hand: switching modes / one mode");
+        for (String name : STRATEGIES) {
+            boolean[] switching = run(name, scale, true, empty, hand, handArea);
+            boolean[] steady = run(name, scale, false, empty, hand, handArea);
+            int switchingFrames = 0;
+            int steadyFrames = 0;
+            for (int i = 0; i < HAND_FRAMES; i++) {
+                switchingFrames += switching[i] ? 1 : 0;
+                steadyFrames += steady[i] ? 1 : 0;
+                failed |= steady[i] && !switching[i];
+            }
+            System.out.printf("%-8s  %d / %d%n", name, switchingFrames, steadyFrames);
+        }
+        hand.release();
+        empty.release();
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return For each hand frame, whether the hand kept enough of its area
+     */
+    private static boolean[] run(String strategy, int scale, boolean switchModes, Mat empty, Mat hand,
+                                 double handArea) {
+        boolean[] present = new boolean[HAND_FRAMES];
+        try (GestureProcessor processor = new GestureProcessor(scale)) {
+            processor.setSegmentationStrategy(SegmentationStrategy.create(strategy));
+            processor.setFingerCounting(true);
+            for (int i = 0; i < EMPTY_FRAMES; i++) {
+                processor.createSkinMask(empty);
+            }
+            for (int i = 0; i < HAND_FRAMES; i++) {
+                if (switchModes) {
+                    processor.setFingerCounting((i / FRAMES_PER_MODE) % 2 == 0);
+                }
+                double area = processor.analyzeHand(processor.createSkinMask(hand)).getContourArea();
+                present[i] = area >= MIN_AREA_FRACTION * handArea;
+            }
+        }
+        return present;
+    }
+}
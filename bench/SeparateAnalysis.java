@@ -0,0 +1,180 @@
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.MatOfInt4;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.RotatedRect;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.imgproc.Moments;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finger counting and height measurement as GestureProcessor ran them before
+ * {@link HandAnalysis}: each runs its own contour search, convex hull and moments
+ * on the mask, at full resolution. The overlay drawing they did is left out.
+ * Kept only as the reference that the shared hand analysis is checked against.
+ */
+final class SeparateAnalysis {
+    private SeparateAnalysis() {
+    }
+
+    static int countFingers(Mat thresholdImage) {
+        List<MatOfPoint> contours = new ArrayList<>();
+        Mat hierarchy = new Mat();
+        Imgproc.findContours(thresholdImage, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+        hierarchy.release();
+
+        int fingerCount = 0;
+        int maxIndex = largestContour(contours);
+        if (maxIndex >= 0 && Imgproc.contourArea(contours.get(maxIndex)) > 2000) {
+            MatOfPoint hand = contours.get(maxIndex);
+            double maxArea = Imgproc.contourArea(hand);
+            MatOfInt hullIndices = new MatOfInt();
+            Imgproc.convexHull(hand, hullIndices);
+
+            Point[] contourPoints = hand.toArray();
+            List<Point> pointList = new ArrayList<>();
+            for (int idx : hullIndices.toArray()) {
+                pointList.add(contourPoints[idx]);
+            }
+            MatOfPoint hullPoints = new MatOfPoint();
+            hullPoints.fromList(pointList);
+            double solidity = maxArea / Imgproc.contourArea(hullPoints);
+            hullPoints.release();
+
+            MatOfInt4 defects = new MatOfInt4();
+            if (hullIndices.toArray().length > 3) {
+                Imgproc.convexityDefects(hand, hullIndices, defects);
+            }
+            hullIndices.release();
+
+            Moments moments = Imgproc.moments(hand);
+            Point center = new Point(moments.m10 / moments.m00, moments.m01 / moments.m00);
+            MatOfPoint2f contour2f = new MatOfPoint2f(contourPoints);
+            RotatedRect boundingBox = Imgproc.minAreaRect(contour2f);
+            contour2f.release();
+
+            double palmRadius = 0;
+            if (!defects.empty()) {
+                int[] defectsArray = defects.toArray();
+                for (int i = 0; i < defectsArray.length; i += 4) {
+                    palmRadius = Math.max(palmRadius, distance(center, contourPoints[defectsArray[i + 2]]));
+                }
+            }
+            defects.release();
+            if (palmRadius == 0) {
+                palmRadius = Math.min(boundingBox.size.width, boundingBox.size.height) / 4;
+            }
+
+            if (solidity <= 0.9) {
+                List<Point> fingerCandidates = new ArrayList<>();
+                for (Point p : pointList) {
+                    if (distance(center, p) > palmRadius * 0.8 &&
+                            p.y < center.y + palmRadius * 0.3 &&
+                            !(p.y > center.y && (p.x < center.x - palmRadius * 0.8
+                                    || p.x > center.x + palmRadius * 0.8))) {
+                        fingerCandidates.add(p);
+                    }
+                }
+                fingerCandidates.sort((p1, p2) -> Double.compare(
+                        Math.atan2(p1.y - center.y, p1.x - center.x),
+                        Math.atan2(p2.y - center.y, p2.x - center.x)));
+
+                List<Point> fingerTips = new ArrayList<>();
+                if (!fingerCandidates.isEmpty()) {
+                    fingerTips.add(fingerCandidates.get(0));
+                    for (int i = 1; i < fingerCandidates.size(); i++) {
+                        double distThreshold = fingerTips.size() >= 3 ? palmRadius * 0.35 : palmRadius * 0.4;
+                        if (!isTooClose(fingerTips, fingerCandidates.get(i), distThreshold)) {
+                            fingerTips.add(fingerCandidates.get(i));
+                        }
+                    }
+                }
+
+                for (Point p : pointList) {
+                    double xDiff = Math.abs(p.x - center.x);
+                    double yDiff = Math.abs(p.y - center.y);
+                    if (xDiff > yDiff * 1.2 && distance(center, p) > palmRadius * 0.7 &&
+                            !isTooClose(fingerTips, p, palmRadius * 0.4)) {
+                        fingerTips.add(p);
+                        break;
+                    }
+                }
+                fingerCount = fingerTips.size();
+            }
+        }
+        release(contours);
+        return Math.min(fingerCount, 5);
+    }
+
+    static double getIndexFingerHeightPercentage(Mat thresholdImage) {
+        List<MatOfPoint> contours = new ArrayList<>();
+        Mat hierarchy = new Mat();
+        Imgproc.findContours(thresholdImage, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+        hierarchy.release();
+
+        double percentageHeight = 0.0;
+        int maxIndex = largestContour(contours);
+        if (maxIndex >= 0 && Imgproc.contourArea(contours.get(maxIndex)) > 2000) {
+            MatOfPoint hand = contours.get(maxIndex);
+            Moments moments = Imgproc.moments(hand);
+            Point center = new Point(moments.m10 / moments.m00, moments.m01 / moments.m00);
+
+            MatOfInt hull = new MatOfInt();
+            Imgproc.convexHull(hand, hull);
+            Point[] contourPoints = hand.toArray();
+            Point indexTip = null;
+            double minY = Double.MAX_VALUE;
+            for (int idx : hull.toArray()) {
+                Point p = contourPoints[idx];
+                if (p.y < center.y && p.y < minY) {
+                    minY = p.y;
+                    indexTip = p;
+                }
+            }
+            hull.release();
+
+            if (indexTip != null) {
+                int adjustedBottom = thresholdImage.rows() - 40;
+                percentageHeight = ((adjustedBottom - indexTip.y) / adjustedBottom) * 100.0;
+            }
+        }
+        release(contours);
+        return percentageHeight;
+    }
+
+    private static int largestContour(List<MatOfPoint> contours) {
+        int maxIndex = -1;
+        double maxArea = 0;
+        for (int i = 0; i < contours.size(); i++) {
+            double area = Imgproc.contourArea(contours.get(i));
+            if (area > maxArea) {
+                maxArea = area;
+                maxIndex = i;
+            }
+        }
+        return maxIndex;
+    }
+
+    private static double distance(Point p1, Point p2) {
+        return Math.sqrt(Math.pow(p2.x - p1.x, 2) + Math.pow(p2.y - p1.y, 2));
+    }
+
+    private static boolean isTooClose(List<Point> points, Point newPoint, double minDistance) {
+        for (Point p : points) {
+            if (distance(p, newPoint) < minDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void release(List<MatOfPoint> contours) {
+        for (MatOfPoint contour : contours) {
+            contour.release();
+        }
+    }
+}
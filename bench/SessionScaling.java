@@ -0,0 +1,85 @@
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scaling benchmark for the session engine: runs 1 to N sessions at once on
+ * file-backed sources and reports total and per-session frame rate and latency.
+ * Frames are decoded once up front so the benchmark measures analysis, not
+ * image decoding. Devices are not controlled; each session only runs the
+ * gesture analysis.
+ *
+ * Usage: SessionScaling <video file or image directory> [max sessions] [fps per session, 0 = unthrottled]
+ */
+public class SessionScaling {
+    public static void main(String[] args) throws InterruptedException {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+        String location = args[0];
+        int maxSessions = args.length > 1 ? Integer.parseInt(args[1])
+                : 2 * Runtime.getRuntime().availableProcessors();
+        double fps = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+
+        List<Mat> recording = load(location);
+        System.out.println("Loaded " + recording.size() + " frames; " + Runtime.getRuntime().availableProcessors()
+                + " cores; " + (fps > 0 ? fps + " fps per session" : "unthrottled"));
+
+        // Warm up the JIT before measuring
+        run(recording, 1, 0);
+
+        for (int sessions = 1; sessions <= maxSessions; sessions *= 2) {
+            System.out.println(run(recording, sessions, fps));
+        }
+
+        for (Mat frame : recording) {
+            frame.release();
+        }
+    }
+
+    private static String run(List<Mat> recording, int sessions, double fps) throws InterruptedException {
+        SessionEngine engine = new SessionEngine();
+        for (int i = 0; i < sessions; i++) {
+            FrameSource source = new RecordingSource(recording, fps);
+            engine.addSession(new GestureSession("session-" + (i + 1), source, new GestureProcessor(),
+                    new GestureHandler(), new DeviceManager()));
+        }
+        engine.start();
+        engine.awaitTermination(false);
+        engine.release();
+        return engine.getThroughputSummary();
+    }
+
+    private static List<Mat> load(String location) {
+        FrameSource source = FrameSource.open(location, false);
+        List<Mat> frames = new ArrayList<>();
+        Mat frame;
+        while ((frame = source.readFrame()) != null) {
+            frames.add(frame);
+        }
+        source.release();
+        return frames;
+    }
+
+    /**
+     * Replays frames decoded in memory, handing out a copy of each.
+     */
+    private static class RecordingSource extends ReplayFrameSource {
+        private final List<Mat> frames;
+        private int next;
+
+        RecordingSource(List<Mat> frames, double fps) {
+            super(fps > 0 ? fps : 30, fps > 0);
+            this.frames = frames;
+        }
+
+        @Override
+        protected Mat readNextFrame() {
+            return next < frames.size() ? frames.get(next++).clone() : null;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+}
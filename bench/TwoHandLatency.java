@@ -0,0 +1,110 @@
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-frame analysis time with one hand region, with two regions analysed one after
+ * the other, and in two-hand mode, where the two regions are analysed in parallel.
+ * The recording is turned into a two-hand scene by mirroring the hand region into
+ * the left half of every frame, so both regions hold a hand.
+ *
+ * Usage: TwoHandLatency <recording> [passes]
+ */
+public class TwoHandLatency {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        FrameSource source = FrameSource.open(args[0], false);
+        List<Mat> frames = new ArrayList<>();
+        Mat frame;
+        while ((frame = source.readFrame()) != null) {
+            frames.add(frame);
+        }
+        Rect control = source.getHandRegion();
+        Rect selection = DualRegionAnalyzer.mirror(control, frames.get(0).cols());
+        Mat mirrored = new Mat();
+        for (Mat image : frames) {
+            Core.flip(image, mirrored, 1);
+            mirrored.submat(selection).copyTo(image.submat(selection));
+        }
+        mirrored.release();
+        source.release();
+
+        DeviceManager manager = new DeviceManager();
+        SimulatedBoard board = new SimulatedBoard();
+        board.start();
+        manager.addController(new LEDController(board, 3));
+        manager.addController(new ServoController(board, 9));
+        manager.addController(new BuzzerController(board, 5));
+        manager.startActuation(50);
+
+        System.out.println(frames.size() + " frames, " + passes + " passes; analysis time per frame");
+        GestureProcessor processor = new GestureProcessor();
+        GestureProcessor second = new GestureProcessor();
+        long[] single = new long[frames.size() * passes];
+        long[] sequential = new long[frames.size() * passes];
+        for (int pass = 0; pass < passes; pass++) {
+            for (int i = 0; i < frames.size(); i++) {
+                long start = System.nanoTime();
+                analyse(processor, frames.get(i), control);
+                single[pass * frames.size() + i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                analyse(processor, frames.get(i), control);
+                analyse(second, frames.get(i), selection);
+                sequential[pass * frames.size() + i] = System.nanoTime() - start;
+            }
+        }
+        second.close();
+        System.out.println(summarise("One region", single, frames.size()));
+        System.out.println(summarise("Two regions, one thread", sequential, frames.size()));
+
+        GestureHandler handler = new GestureHandler();
+        handler.setDualRegionAnalyzer(new DualRegionAnalyzer(new GestureProcessor()));
+        long[] parallel = new long[frames.size() * passes];
+        long traceId = 0;
+        for (int pass = 0; pass < passes; pass++) {
+            for (int i = 0; i < frames.size(); i++) {
+                CapturedFrame captured = new CapturedFrame(frames.get(i),
+                        new FrameTrace(traceId++, System.nanoTime()));
+                long start = System.nanoTime();
+                handler.processFrame(captured, control, processor, manager);
+                parallel[pass * frames.size() + i] = System.nanoTime() - start;
+            }
+        }
+        System.out.println(summarise("Two-hand mode", parallel, frames.size()));
+        manager.stopActuation();
+        System.out.println("Selected device " + handler.getGestureDetector().getSelectedDeviceIndex()
+                + ", " + board.getWriteCount() + " pin writes");
+
+        handler.getDualRegionAnalyzer().close();
+        processor.close();
+        for (Mat image : frames) {
+            image.release();
+        }
+        board.stop();
+    }
+
+    private static void analyse(GestureProcessor processor, Mat frame, Rect region) {
+        Mat roi = new Mat(frame, region);
+        HandAnalysis hand = processor.analyzeHand(processor.createSkinMask(roi));
+        processor.detectFingers(hand);
+        processor.getIndexFingerHeightPercentage(hand);
+        roi.release();
+    }
+
+    private static String summarise(String label, long[] nanos, int warmup) {
+        // The first pass warms up the JIT and is left out
+        long[] measured = Arrays.copyOfRange(nanos, warmup, nanos.length);
+        Arrays.sort(measured);
+        double mean = Arrays.stream(measured).average().orElse(0) / 1e6;
+        double p95 = measured[(int) (measured.length * 0.95)] / 1e6;
+        return String.format("%-24s mean %.2f ms, p95 %.2f ms", label, mean, p95);
+    }
+}
@@ -0,0 +1,51 @@
+package benchmark;
+
+import org.opencv.core.Mat;
+
+import java.util.List;
+
+/**
+ * Checks that finger counts and index finger heights read from one shared hand
+ * analysis are exactly those of the earlier path, where counting and height
+ * measurement each ran their own contour search on the mask. Runs at full
+ * resolution, the only scale the earlier path had. Exits with status 1 if any
+ * image disagrees.
+ *
+ * Usage: AnalysisAgreement [source] [resolution...]
+ */
+public class AnalysisAgreement {
+    public static void main(String[] args) {
+        BenchmarkImages.loadNativeLibrary();
+        String source = args.length > 0 ? args[0] : BenchmarkImages.SYNTHETIC;
+        String[] resolutions = args.length > 1
+                ? java.util.Arrays.copyOfRange(args, 1, args.length)
+                : new String[] {"160x120", "320x240", "640x480"};
+
+        int mismatches = 0;
+        System.out.println("resolution  identical finger counts  identical heights");
+        for (String resolution : resolutions) {
+            List<Mat> rois = BenchmarkImages.load(source, BenchmarkImages.parseResolution(resolution));
+            try (ProcessorStages stages = ProcessorStages.create()) {
+                stages.prepare(rois);
+                int counts = 0;
+                int heights = 0;
+                for (int i = 0; i < rois.size(); i++) {
+                    if (stages.countFingers(i) == stages.countFingersSeparately(i)) {
+                        counts++;
+                    }
+                    if (Double.compare(stages.indexFingerHeight(i), stages.indexFingerHeightSeparately(i)) == 0) {
+                        heights++;
+                    }
+                }
+                mismatches += 2 * rois.size() - counts - heights;
+                System.out.printf("%-10s  %d/%-21d %d/%d%n", resolution, counts, rois.size(), heights, rois.size());
+            }
+            for (Mat roi : rois) {
+                roi.release();
+            }
+        }
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import org.opencv.core.Mat;
+
+import java.util.List;
+
+/**
+ * Checks that GestureProcessor stops allocating native scratch buffers once it has
+ * seen every image: after a warm-up pass, full frames are run over the images again,
+ * both while measuring the height and while counting fingers, and the processors' native
+ * allocation count must not grow, at any processing scale.
+ * The count excludes the contour, hull and defect results the OpenCV Java bindings
+ * allocate on every call. Exits with status 1 if the count grows.
+ *
+ * Usage: ArenaAllocations [source] [resolution...]
+ */
+public class ArenaAllocations {
+    private static final int[] SCALES = {1, 2, 4};
+    private static final int WARM_UP_PASSES = 2;
+    private static final int MEASURED_FRAMES = 1000;
+
+    public static void main(String[] args) {
+        BenchmarkImages.loadNativeLibrary();
+        String source = args.length > 0 ? args[0] : BenchmarkImages.SYNTHETIC;
+        String[] resolutions = args.length > 1
+                ? java.util.Arrays.copyOfRange(args, 1, args.length)
+                : new String[] {"160x120", "320x240", "640x480"};
+
+        int grown = 0;
+        System.out.println("resolution  scale  allocations after warm-up  after " + MEASURED_FRAMES + " more frames");
+        for (String resolution : resolutions) {
+            List<Mat> rois = BenchmarkImages.load(source, BenchmarkImages.parseResolution(resolution));
+            for (int scale : SCALES) {
+                try (ProcessorStages stages = ProcessorStages.create(scale)) {
+                    stages.prepare(rois);
+                    for (int i = 0; i < WARM_UP_PASSES * rois.size(); i++) {
+                        stages.fullFrame(i % rois.size());
+                        stages.fullFrameCountingFingers(i % rois.size());
+                    }
+                    long warmedUp = stages.nativeAllocationCount();
+                    for (int i = 0; i < MEASURED_FRAMES; i++) {
+                        stages.fullFrame(i % rois.size());
+                        stages.fullFrameCountingFingers(i % rois.size());
+                    }
+                    long measured = stages.nativeAllocationCount();
+                    if (measured != warmedUp) {
+                        grown++;
+                    }
+                    System.out.printf("%-10s  1/%-4d %-25d  %d%n", resolution, scale, warmedUp, measured);
+                }
+            }
+            for (Mat roi : rois) {
+                roi.release();
+            }
+        }
+        if (grown > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package benchmark;
+
+import org.opencv.core.*;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed ROI images for the benchmarks, so runs are repeatable without a camera.
+ * "synthetic" images are drawn hands (0-5 fingers at two heights) on a dark
+ * background; "recorded" images are loaded from the directory named by the
+ * bench.roi.dir system property and scaled to the requested resolution;
+ * "replay" images are the hand regions of the frames of the recording named by
+ * the bench.replay system property, read through the application's ReplayFrameSource
+ * and scaled the same way.
+ */
+public final class BenchmarkImages {
+    public static final String SYNTHETIC = "synthetic";
+    public static final String RECORDED = "recorded";
+    public static final String RECORDED_DIR_PROPERTY = "bench.roi.dir";
+    public static final String REPLAY = "replay";
+    public static final String REPLAY_PROPERTY = "bench.replay";
+
+    private static final Scalar BACKGROUND = new Scalar(40, 60, 30);
+    private static final Scalar SKIN = new Scalar(120, 150, 210);
+    private static final double[] FINGER_ANGLES = {-40, -15, 10, 35, 80};
+
+    private BenchmarkImages() {
+    }
+
+    /**
+     * Loads the OpenCV native library. Safe to call more than once.
+     */
+    public static void loadNativeLibrary() {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    }
+
+    /**
+     * Parses a resolution such as "320x240".
+     *
+     * @param resolution The resolution string
+     * @return The size it describes
+     */
+    public static Size parseResolution(String resolution) {
+        String[] parts = resolution.toLowerCase().split("x");
+        return new Size(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+    }
+
+    /**
+     * Loads the images for a benchmark source at the given resolution.
+     *
+     * @param source SYNTHETIC, RECORDED or REPLAY
+     * @param size The ROI size to produce
+     * @return The images, in a fixed order
+     */
+    public static List<Mat> load(String source, Size size) {
+        if (SYNTHETIC.equals(source)) {
+            List<Mat> images = new ArrayList<>();
+            for (double lift : new double[] {0.0, 0.1}) {
+                for (int fingers = 0; fingers <= 5; fingers++) {
+                    images.add(syntheticHand((int) size.width, (int) size.height, fingers, lift));
+                }
+            }
+            return images;
+        } else if (RECORDED.equals(source)) {
+            return loadRecorded(size);
+        } else if (REPLAY.equals(source)) {
+            return loadReplay(size);
+        }
+        throw new IllegalArgumentException("Unknown image source: " + source);
+    }
+
+    /**
+     * Draws a hand with the given number of extended fingers.
+     *
+     * @param width The image width
+     * @param height The image height
+     * @param fingers The number of fingers to draw (0-5, the fifth is the thumb)
+     * @param lift How far to raise the hand, as a fraction of the image height
+     * @return A BGR image of the hand
+     */
+    public static Mat syntheticHand(int width, int height, int fingers, double lift) {
+        Mat image = new Mat(height, width, CvType.CV_8UC3, BACKGROUND);
+        double scale = width / 320.0;
+        Point palm = new Point(width * 0.5, height * (0.65 - lift));
+
+        Imgproc.ellipse(image, palm, new Size(55 * scale, 65 * scale), 0, 0, 360, SKIN, -1);
+        Imgproc.rectangle(image, new Point(palm.x - 35 * scale, palm.y),
+                new Point(palm.x + 35 * scale, height), SKIN, -1);
+
+        for (int i = 0; i < fingers && i < FINGER_ANGLES.length; i++) {
+            double angle = Math.toRadians(FINGER_ANGLES[i] - 90);
+            double length = (i == 4 ? 70 : 110) * scale;
+            Point tip = new Point(palm.x + Math.cos(angle) * length, palm.y + Math.sin(angle) * length);
+            Imgproc.line(image, palm, tip, SKIN, (int) Math.max(1, 18 * scale));
+        }
+        return image;
+    }
+
+    private static List<Mat> loadRecorded(Size size) {
+        String directory = System.getProperty(RECORDED_DIR_PROPERTY);
+        if (directory == null) {
+            throw new IllegalStateException("Set -D" + RECORDED_DIR_PROPERTY
+                    + "=<directory of ROI images> to benchmark recorded images");
+        }
+        File[] files = new File(directory).listFiles();
+        if (files == null) {
+            throw new IllegalStateException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+
+        List<Mat> images = new ArrayList<>();
+        for (File file : files) {
+            Mat image = Imgcodecs.imread(file.getPath());
+            if (image.empty()) {
+                continue; // Not an image
+            }
+            Mat resized = new Mat();
+            Imgproc.resize(image, resized, size, 0, 0, Imgproc.INTER_AREA);
+            image.release();
+            images.add(resized);
+        }
+        if (images.isEmpty()) {
+            throw new IllegalStateException("No readable images in " + directory);
+        }
+        return images;
+    }
+
+    private static List<Mat> loadReplay(Size size) {
+        String location = System.getProperty(REPLAY_PROPERTY);
+        if (location == null) {
+            throw new IllegalStateException("Set -D" + REPLAY_PROPERTY
+                    + "=<video file or image directory> to benchmark the hand regions of a recording");
+        }
+        List<Mat> images = new ArrayList<>();
+        for (Mat region : ProcessorStages.readHandRegions(location)) {
+            Mat resized = new Mat();
+            Imgproc.resize(region, resized, size, 0, 0, Imgproc.INTER_AREA);
+            region.release();
+            images.add(resized);
+        }
+        if (images.isEmpty()) {
+            throw new IllegalStateException("No frames in " + location);
+        }
+        return images;
+    }
+}
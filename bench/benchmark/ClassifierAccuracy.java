@@ -0,0 +1,55 @@
+package benchmark;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.util.List;
+
+/**
+ * Measures how closely the lookup-table skin classifier reproduces the HSV
+ * classifier: the share of mask pixels that differ, and how often the finger
+ * count and index finger height agree.
+ *
+ * Usage: ClassifierAccuracy [source] [resolution...]
+ */
+public class ClassifierAccuracy {
+    public static void main(String[] args) {
+        BenchmarkImages.loadNativeLibrary();
+        String source = args.length > 0 ? args[0] : BenchmarkImages.SYNTHETIC;
+        String[] resolutions = args.length > 1
+                ? java.util.Arrays.copyOfRange(args, 1, args.length)
+                : new String[] {"160x120", "320x240", "640x480"};
+
+        System.out.println("resolution  differing mask pixels  finger count agreement  height error max (% of ROI)");
+        for (String resolution : resolutions) {
+            List<Mat> rois = BenchmarkImages.load(source, BenchmarkImages.parseResolution(resolution));
+            Mat difference = new Mat();
+            try (ProcessorStages hsv = ProcessorStages.create(1, ProcessorStages.HSV);
+                 ProcessorStages table = ProcessorStages.create(1, ProcessorStages.LOOKUP_TABLE)) {
+                hsv.prepare(rois);
+                table.prepare(rois);
+
+                long differing = 0;
+                long total = 0;
+                int agree = 0;
+                double maxError = 0;
+                for (int i = 0; i < rois.size(); i++) {
+                    Core.absdiff(hsv.createSkinMask(i), table.createSkinMask(i), difference);
+                    Core.compare(difference, new org.opencv.core.Scalar(127), difference, Core.CMP_GT);
+                    differing += Core.countNonZero(difference);
+                    total += difference.total();
+                    if (hsv.countFingers(i) == table.countFingers(i)) {
+                        agree++;
+                    }
+                    maxError = Math.max(maxError, Math.abs(hsv.indexFingerHeight(i) - table.indexFingerHeight(i)));
+                }
+                System.out.printf("%-10s  %20.3f%%  %12d/%-10d %.2f%n",
+                        resolution, 100.0 * differing / total, agree, rois.size(), maxError);
+            }
+            difference.release();
+            for (Mat roi : rois) {
+                roi.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package benchmark;
+
+import org.opencv.core.Mat;
+
+import java.util.List;
+
+/**
+ * Checks that the fingertip search on flat coordinate arrays gives exactly the
+ * finger counts of the earlier search on boxed point lists, at every processing
+ * scale. Exits with status 1 if any image disagrees.
+ *
+ * Usage: FingertipAgreement [source] [resolution...]
+ */
+public class FingertipAgreement {
+    private static final int[] SCALES = {1, 2, 4};
+
+    public static void main(String[] args) {
+        BenchmarkImages.loadNativeLibrary();
+        String source = args.length > 0 ? args[0] : BenchmarkImages.SYNTHETIC;
+        String[] resolutions = args.length > 1
+                ? java.util.Arrays.copyOfRange(args, 1, args.length)
+                : new String[] {"160x120", "320x240", "640x480"};
+
+        int mismatches = 0;
+        System.out.println("resolution  scale  identical finger counts");
+        for (String resolution : resolutions) {
+            List<Mat> rois = BenchmarkImages.load(source, BenchmarkImages.parseResolution(resolution));
+            for (int scale : SCALES) {
+                try (ProcessorStages stages = ProcessorStages.create(scale)) {
+                    stages.prepare(rois);
+                    int agree = 0;
+                    for (int i = 0; i < rois.size(); i++) {
+                        if (stages.countFingers(i) == stages.countFingersWithLists(i)) {
+                            agree++;
+                        }
+                    }
+                    mismatches += rois.size() - agree;
+                    System.out.printf("%-10s  1/%-4d %d/%d%n", resolution, scale, agree, rois.size());
+                }
+            }
+            for (Mat roi : rois) {
+                roi.release();
+            }
+        }
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+}
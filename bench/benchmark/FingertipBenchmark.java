@@ -0,0 +1,62 @@
+package benchmark;
+
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the fingertip search on flat coordinate arrays with the earlier search
+ * on boxed point lists, on the same hand analyses. Run it with the GC profiler
+ * (through {@link GestureBenchmarks}) to see the allocation rate of each.
+ * {@link FingertipAgreement} checks that both give the same finger counts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FingertipBenchmark {
+    @Param({"160x120", "320x240", "640x480"})
+    public String resolution;
+
+    @Param({BenchmarkImages.SYNTHETIC})
+    public String source;
+
+    private ProcessorStages stages;
+    private List<Mat> rois;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkImages.loadNativeLibrary();
+        rois = BenchmarkImages.load(source, BenchmarkImages.parseResolution(resolution));
+        stages = ProcessorStages.create();
+        stages.prepare(rois);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stages.close();
+        for (Mat roi : rois) {
+            roi.release();
+        }
+    }
+
+    private int nextImage() {
+        next = (next + 1) % rois.size();
+        return next;
+    }
+
+    @Benchmark
+    public int arrays() {
+        return stages.countFingers(nextImage());
+    }
+
+    @Benchmark
+    public int lists() {
+        return stages.countFingersWithLists(nextImage());
+    }
+}
@@ -0,0 +1,83 @@
+package benchmark;
+
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for each stage of the GestureProcessor hot path on fixed ROI images.
+ * Runs headless: no camera, window or Arduino is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GestureProcessorBenchmark {
+    @Param({"160x120", "320x240", "640x480"})
+    public String resolution;
+
+    @Param({BenchmarkImages.SYNTHETIC})
+    public String source;
+
+    @Param({"1", "2", "4"})
+    public int processingScale;
+
+    private ProcessorStages stages;
+    private List<Mat> rois;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkImages.loadNativeLibrary();
+        rois = BenchmarkImages.load(source, BenchmarkImages.parseResolution(resolution));
+        stages = ProcessorStages.create(processingScale);
+        stages.prepare(rois);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stages.close();
+        for (Mat roi : rois) {
+            roi.release();
+        }
+    }
+
+    private int nextImage() {
+        next = (next + 1) % rois.size();
+        return next;
+    }
+
+    @Benchmark
+    public Mat createSkinMask() {
+        return stages.createSkinMask(nextImage());
+    }
+
+    @Benchmark
+    public Object analyzeHand() {
+        return stages.analyzeHand(nextImage());
+    }
+
+    @Benchmark
+    public int countFingers() {
+        return stages.countFingers(nextImage());
+    }
+
+    @Benchmark
+    public double indexFingerHeight() {
+        return stages.indexFingerHeight(nextImage());
+    }
+
+    @Benchmark
+    public int fullFrame() {
+        return stages.fullFrame(nextImage());
+    }
+
+    @Benchmark
+    public int fullFrameCountingFingers() {
+        return stages.fullFrameCountingFingers(nextImage());
+    }
+}
@@ -0,0 +1,150 @@
+package benchmark;
+
+import org.opencv.core.Mat;
+
+import java.util.List;
+
+/**
+ * The GestureProcessor stages as seen by the benchmarks.
+ * The application classes live in the default package, which a packaged JMH
+ * benchmark cannot import, so a default-package adapter implements this
+ * interface and is created by name.
+ */
+public interface ProcessorStages extends AutoCloseable {
+    /** Skin classification by HSV conversion and range checks. */
+    String HSV = "hsv";
+    /** Skin classification by the precomputed color lookup table. */
+    String LOOKUP_TABLE = "lookup";
+    /** Background subtraction with a Gaussian mixture model. */
+    String MOG2 = "mog2";
+    /** Background subtraction with a K-nearest-neighbours model. */
+    String KNN = "knn";
+    /** Skin classification inside the MOG2 foreground. */
+    String HYBRID = "hybrid";
+
+    /**
+     * Prepares the stages for a fixed set of ROI images. The masks and hand
+     * analyses needed as inputs by the later stages are computed here.
+     *
+     * @param rois The ROI images to process
+     */
+    void prepare(List<Mat> rois);
+
+    Mat createSkinMask(int image);
+
+    Object analyzeHand(int image);
+
+    int countFingers(int image);
+
+    /**
+     * Counts fingers with the fingertip search GestureProcessor used before its
+     * primitive-array geometry, on the same hand analysis as {@link #countFingers(int)}.
+     *
+     * @param image The image index
+     * @return The finger count
+     */
+    int countFingersWithLists(int image);
+
+    double indexFingerHeight(int image);
+
+    /**
+     * Counts fingers as GestureProcessor did before the hand analysis was shared:
+     * with its own contour search on the image's mask. Only meaningful at full resolution.
+     *
+     * @param image The image index
+     * @return The finger count
+     */
+    int countFingersSeparately(int image);
+
+    /**
+     * Measures the index finger height as GestureProcessor did before the hand analysis
+     * was shared: with its own contour search on the image's mask. Only meaningful at
+     * full resolution.
+     *
+     * @param image The image index
+     * @return The height percentage
+     */
+    double indexFingerHeightSeparately(int image);
+
+    /**
+     * Runs every stage on one image, as the pipeline does per frame while it measures
+     * the height: the mask is made at the processing scale.
+     *
+     * @param image The image index
+     * @return The finger count, so the work cannot be optimised away
+     */
+    int fullFrame(int image);
+
+    /**
+     * Runs every stage on one image, as the pipeline does per frame while it counts
+     * fingers: the mask is made at full resolution at any processing scale.
+     *
+     * @param image The image index
+     * @return The finger count, so the work cannot be optimised away
+     */
+    int fullFrameCountingFingers(int image);
+
+    /**
+     * Gets the native allocation count of GestureProcessor's scratch buffers.
+     *
+     * @return The allocation count
+     */
+    long nativeAllocationCount();
+
+    @Override
+    void close();
+
+    /**
+     * Creates the adapter for the application's GestureProcessor at full resolution.
+     *
+     * @return A new, unprepared set of stages
+     */
+    static ProcessorStages create() {
+        return create(1);
+    }
+
+    /**
+     * Creates the adapter for the application's GestureProcessor with HSV skin classification.
+     *
+     * @param processingScale The processor's processing scale (1, 2 or 4)
+     * @return A new, unprepared set of stages
+     */
+    static ProcessorStages create(int processingScale) {
+        return create(processingScale, HSV);
+    }
+
+    /**
+     * Creates the adapter for the application's GestureProcessor.
+     *
+     * @param processingScale The processor's processing scale (1, 2 or 4)
+     * @param segmentation HSV, LOOKUP_TABLE, MOG2, KNN or HYBRID
+     * @return A new, unprepared set of stages
+     */
+    static ProcessorStages create(int processingScale, String segmentation) {
+        try {
+            return (ProcessorStages) Class.forName("GestureProcessorStages")
+                    .getDeclaredConstructor(int.class, String.class)
+                    .newInstance(processingScale, segmentation);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("GestureProcessorStages is not on the classpath", e);
+        }
+    }
+
+    /**
+     * Reads the hand region of every frame of a recording through the application's
+     * frame source, as the pipeline sees it with a fixed hand region.
+     *
+     * @param location The video file or image directory
+     * @return The hand regions, in frame order; the caller releases them
+     */
+    @SuppressWarnings("unchecked")
+    static List<Mat> readHandRegions(String location) {
+        try {
+            return (List<Mat>) Class.forName("GestureProcessorStages")
+                    .getMethod("readHandRegions", String.class)
+                    .invoke(null, location);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("GestureProcessorStages is not on the classpath", e);
+        }
+    }
+}
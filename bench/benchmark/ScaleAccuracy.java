@@ -0,0 +1,71 @@
+package benchmark;
+
+import org.opencv.core.Mat;
+
+import java.util.List;
+
+/**
+ * Measures how much precision each processing scale gives up compared with full
+ * resolution: how often the finger count agrees and how far the index finger
+ * height moves. Pair it with the processingScale parameter of
+ * {@link GestureProcessorBenchmark} to see the speed side of the trade-off.
+ * Fingers are counted at full resolution at every scale, so any finger count
+ * that differs is a bug: the run then exits with status 1.
+ *
+ * Usage: ScaleAccuracy [source] [resolution...]
+ */
+public class ScaleAccuracy {
+    private static final int[] SCALES = {2, 4};
+
+    public static void main(String[] args) {
+        BenchmarkImages.loadNativeLibrary();
+        String source = args.length > 0 ? args[0] : BenchmarkImages.SYNTHETIC;
+        String[] resolutions = args.length > 1
+                ? java.util.Arrays.copyOfRange(args, 1, args.length)
+                : new String[] {"160x120", "320x240", "640x480"};
+
+        int mismatches = 0;
+        System.out.println("resolution  scale  finger count agreement  height error mean / max (% of ROI)");
+        for (String resolution : resolutions) {
+            List<Mat> rois = BenchmarkImages.load(source, BenchmarkImages.parseResolution(resolution));
+            try (ProcessorStages reference = ProcessorStages.create(1)) {
+                reference.prepare(rois);
+                for (int scale : SCALES) {
+                    try (ProcessorStages scaled = ProcessorStages.create(scale)) {
+                        scaled.prepare(rois);
+                        mismatches += report(resolution, scale, reference, scaled, rois.size());
+                    }
+                }
+            }
+            for (Mat roi : rois) {
+                roi.release();
+            }
+        }
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints the accuracy of one scale.
+     *
+     * @return The number of images whose finger count differs
+     */
+    private static int report(String resolution, int scale, ProcessorStages reference,
+                               ProcessorStages scaled, int images) {
+        int agree = 0;
+        double totalError = 0;
+        double maxError = 0;
+        for (int i = 0; i < images; i++) {
+            if (reference.countFingers(i) == scaled.countFingers(i)) {
+                agree++;
+            }
+            double error = Math.abs(reference.indexFingerHeight(i) - scaled.indexFingerHeight(i));
+            totalError += error;
+            maxError = Math.max(maxError, error);
+        }
+        System.out.printf("%-10s  1/%-4d %6d/%-16d %6.2f / %.2f%n",
+                resolution, scale, agree, images, totalError / images, maxError);
+        return images - agree;
+    }
+}
@@ -0,0 +1,53 @@
+package benchmark;
+
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of the segmentation strategies on the full createSkinMask stage,
+ * including the blur and morphology every strategy shares. The background models
+ * keep learning from the rotating images, as they would from a live camera.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentationBenchmark {
+    @Param({"320x240", "640x480"})
+    public String resolution;
+
+    @Param({ProcessorStages.HSV, ProcessorStages.LOOKUP_TABLE, ProcessorStages.MOG2,
+            ProcessorStages.KNN, ProcessorStages.HYBRID})
+    public String segmentation;
+
+    private ProcessorStages stages;
+    private List<Mat> rois;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkImages.loadNativeLibrary();
+        rois = BenchmarkImages.load(BenchmarkImages.SYNTHETIC, BenchmarkImages.parseResolution(resolution));
+        stages = ProcessorStages.create(1, segmentation);
+        stages.prepare(rois);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stages.close();
+        for (Mat roi : rois) {
+            roi.release();
+        }
+    }
+
+    @Benchmark
+    public Mat createSkinMask() {
+        next = (next + 1) % rois.size();
+        return stages.createSkinMask(next);
+    }
+}
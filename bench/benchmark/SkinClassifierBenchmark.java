@@ -0,0 +1,52 @@
+package benchmark;
+
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the two skin classifiers on the full createSkinMask stage:
+ * HSV conversion with two range checks against the precomputed color lookup table.
+ * {@link ClassifierAccuracy} reports how closely the table's masks match.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SkinClassifierBenchmark {
+    @Param({"160x120", "320x240", "640x480"})
+    public String resolution;
+
+    @Param({ProcessorStages.HSV, ProcessorStages.LOOKUP_TABLE})
+    public String classifier;
+
+    private ProcessorStages stages;
+    private List<Mat> rois;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkImages.loadNativeLibrary();
+        rois = BenchmarkImages.load(BenchmarkImages.SYNTHETIC, BenchmarkImages.parseResolution(resolution));
+        stages = ProcessorStages.create(1, classifier);
+        stages.prepare(rois);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stages.close();
+        for (Mat roi : rois) {
+            roi.release();
+        }
+    }
+
+    @Benchmark
+    public Mat createSkinMask() {
+        next = (next + 1) % rois.size();
+        return stages.createSkinMask(next);
+    }
+}
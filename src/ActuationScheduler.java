@@ -0,0 +1,341 @@
+import org.firmata4j.IODevice;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes device values to the board on a dedicated actuation thread, so serial
+ * I/O never blocks frame processing.
+ * Each controller has a "latest value" slot: bursts of updates are merged into
+ * the newest value, values equal to the last written one are skipped, and each
+ * pin is written at most at its configured maximum rate.
+ * All values due when the thread wakes up are written as one burst through the
+ * board's {@link BoardTransport}, highest priority first. If the burst fails, its
+ * values are queued again, unless newer ones have arrived, and retried shortly.
+ * Every write emits a {@link TraceEvents.PinWrite} event carrying the trace of the
+ * frame that produced the value, and is counted in the device's {@link Metrics}.
+ */
+public class ActuationScheduler {
+    private static final int NO_VALUE = Integer.MIN_VALUE;
+    private static final long IDLE_PARK_NS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long RETRY_DELAY_NS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final Comparator<PinSlot> HIGHEST_PRIORITY_FIRST =
+            (a, b) -> Integer.compare(b.taken.getPriority(), a.taken.getPriority());
+
+    private final List<PinSlot> slots;
+    private final AtomicLong writesIssued;
+    private final AtomicLong writesCoalesced;
+    private final AtomicLong writesUnchanged;
+    private final long defaultMinIntervalNanos;
+    private final String threadName;
+    private final BoardTransport transport;
+    // Held while a burst is submitted or collected, so a burst is never split
+    private final Object burstLock = new Object();
+    // Only touched by the thread writing pending values
+    private final List<PinSlot> burstSlots = new ArrayList<>();
+    private final List<PinUpdate> burst = new ArrayList<>();
+
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * The pending and last written value of one controller.
+     */
+    private static class PinSlot {
+        final DeviceController controller;
+        final AtomicReference<PinUpdate> pending = new AtomicReference<>();
+        volatile long minIntervalNanos;
+        // Only touched by the actuation thread
+        int lastWrittenValue = NO_VALUE;
+        long lastWriteTime;
+        PinUpdate taken;
+
+        PinSlot(DeviceController controller, long minIntervalNanos) {
+            this.controller = controller;
+            this.minIntervalNanos = minIntervalNanos;
+        }
+    }
+
+    /**
+     * Creates a scheduler. Call {@link #start()} to begin writing.
+     *
+     * @param maxUpdatesPerSecond The default maximum write rate per pin
+     */
+    public ActuationScheduler(double maxUpdatesPerSecond) {
+        this(maxUpdatesPerSecond, "actuation");
+    }
+
+    /**
+     * Creates a scheduler whose thread has the given name, so the I/O lanes of
+     * several boards can be told apart. Call {@link #start()} to begin writing.
+     *
+     * @param maxUpdatesPerSecond The default maximum write rate per pin
+     * @param threadName The name of the actuation thread
+     */
+    public ActuationScheduler(double maxUpdatesPerSecond, String threadName) {
+        this(maxUpdatesPerSecond, threadName, BoardTransport.PIN_WRITES);
+    }
+
+    /**
+     * Creates a scheduler for the controllers of one board, whose bursts are sent
+     * through the given transport. Call {@link #start()} to begin writing.
+     *
+     * @param maxUpdatesPerSecond The default maximum write rate per pin
+     * @param threadName The name of the actuation thread
+     * @param transport How bursts reach the board
+     */
+    public ActuationScheduler(double maxUpdatesPerSecond, String threadName, BoardTransport transport) {
+        this.slots = new CopyOnWriteArrayList<>();
+        this.writesIssued = new AtomicLong();
+        this.writesCoalesced = new AtomicLong();
+        this.writesUnchanged = new AtomicLong();
+        this.defaultMinIntervalNanos = toIntervalNanos(maxUpdatesPerSecond);
+        this.threadName = threadName;
+        this.transport = transport;
+    }
+
+    /**
+     * Adds a controller. Its slot index matches the order controllers are added.
+     *
+     * @param controller The controller to schedule writes for
+     */
+    public void addController(DeviceController controller) {
+        slots.add(new PinSlot(controller, defaultMinIntervalNanos));
+    }
+
+    /**
+     * Sets the maximum write rate for one controller.
+     *
+     * @param index The controller index
+     * @param maxUpdatesPerSecond The maximum number of writes per second
+     */
+    public void setMaxUpdateRate(int index, double maxUpdatesPerSecond) {
+        slots.get(index).minIntervalNanos = toIntervalNanos(maxUpdatesPerSecond);
+    }
+
+    /**
+     * Starts the actuation thread.
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Writes any pending values and stops the actuation thread.
+     *
+     * @throws InterruptedException If interrupted while waiting for the thread
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+        writePending(Long.MAX_VALUE, true);
+    }
+
+    /**
+     * Queues a value for a controller and returns immediately.
+     * A value still waiting from an earlier call is replaced.
+     *
+     * @param index The controller index
+     * @param value The value to write
+     * @param trace The trace of the frame the value was derived from
+     */
+    public void submit(int index, int value, FrameTrace trace) {
+        PinSlot slot = slots.get(index);
+        replacePending(slot, new PinUpdate(slot.controller, value, DeviceManager.PRIORITY_CONTROL,
+                trace, System.nanoTime()));
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Queues several values at once and returns immediately. They are never split
+     * across bursts, though a pin held back by its rate limit is written later.
+     *
+     * @param indices The controller index of each update
+     * @param updates The updates
+     */
+    public void submit(int[] indices, List<PinUpdate> updates) {
+        synchronized (burstLock) {
+            for (int i = 0; i < updates.size(); i++) {
+                replacePending(slots.get(indices[i]), updates.get(i));
+            }
+        }
+        LockSupport.unpark(thread);
+    }
+
+    private void replacePending(PinSlot slot, PinUpdate update) {
+        if (slot.pending.getAndSet(update) != null) {
+            writesCoalesced.incrementAndGet();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long waitNanos = writePending(System.nanoTime(), false);
+            LockSupport.parkNanos(this, Math.min(waitNanos, IDLE_PARK_NS));
+        }
+    }
+
+    /**
+     * Writes every pending value that is due, as one burst.
+     *
+     * @param now The current time
+     * @param ignoreRateLimit true to write regardless of the rate limit (used on stop)
+     * @return How long until the next rate-limited or failed value is due, or Long.MAX_VALUE
+     */
+    private long writePending(long now, boolean ignoreRateLimit) {
+        long nextDue = Long.MAX_VALUE;
+        burstSlots.clear();
+        synchronized (burstLock) {
+            for (PinSlot slot : slots) {
+                if (slot.pending.get() == null) {
+                    continue;
+                }
+
+                long dueTime = slot.lastWriteTime + slot.minIntervalNanos;
+                if (!ignoreRateLimit && slot.lastWrittenValue != NO_VALUE && now < dueTime) {
+                    nextDue = Math.min(nextDue, dueTime - now);
+                    continue;
+                }
+
+                PinUpdate update = slot.pending.getAndSet(null);
+                if (update.getValue() == slot.lastWrittenValue) {
+                    writesUnchanged.incrementAndGet();
+                    continue;
+                }
+                slot.taken = update;
+                burstSlots.add(slot);
+            }
+        }
+        if (burstSlots.isEmpty()) {
+            return nextDue;
+        }
+
+        // Stable, so equal priorities keep the order the controllers were added in
+        burstSlots.sort(HIGHEST_PRIORITY_FIRST);
+        burst.clear();
+        for (PinSlot slot : burstSlots) {
+            burst.add(slot.taken);
+        }
+        try {
+            writeBurst(burstSlots.get(0).controller.getBoard(), transport, burst);
+            for (PinSlot slot : burstSlots) {
+                slot.lastWrittenValue = slot.taken.getValue();
+                slot.lastWriteTime = now;
+            }
+            writesIssued.addAndGet(burstSlots.size());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error writing to " + deviceNames(burstSlots) + ": " + e.getMessage());
+            // Nothing may have reached the board, so try again; a newer value still wins
+            for (PinSlot slot : burstSlots) {
+                if (!slot.pending.compareAndSet(null, slot.taken)) {
+                    writesCoalesced.incrementAndGet();
+                }
+            }
+            nextDue = Math.min(nextDue, RETRY_DELAY_NS);
+        }
+        for (PinSlot slot : burstSlots) {
+            slot.taken = null;
+        }
+        return nextDue;
+    }
+
+    private static String deviceNames(List<PinSlot> slots) {
+        StringBuilder names = new StringBuilder();
+        for (PinSlot slot : slots) {
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(slot.controller.getDeviceName());
+        }
+        return names.toString();
+    }
+
+    /**
+     * Writes a burst of updates to a board through a transport, recording each write
+     * and its end-to-end latency as a Flight Recorder event, and the write and
+     * actuation latency as metrics.
+     *
+     * @param board The board every update belongs to
+     * @param transport How the burst reaches the board
+     * @param updates The updates, highest priority first
+     * @throws IOException If the write fails
+     */
+    static void writeBurst(IODevice board, BoardTransport transport, List<PinUpdate> updates)
+            throws IOException {
+        TraceEvents.PinWrite[] events = new TraceEvents.PinWrite[updates.size()];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new TraceEvents.PinWrite();
+            events[i].begin();
+        }
+        long start = System.nanoTime();
+        transport.send(board, updates);
+        long end = System.nanoTime();
+        for (int i = 0; i < events.length; i++) {
+            PinUpdate update = updates.get(i);
+            DeviceController controller = update.getController();
+            Metrics.DeviceMetrics metrics = Metrics.device(controller.getDeviceName());
+            metrics.writes.increment();
+            metrics.writeLatency.record(end - start);
+            Metrics.ACTUATION_LATENCY.record(end - update.getRequestTimeNanos());
+            TraceEvents.PinWrite event = events[i];
+            event.end();
+            if (event.shouldCommit()) {
+                event.traceId = update.getTrace().getTraceId();
+                event.device = controller.getDeviceName();
+                event.value = update.getValue();
+                event.burstSize = events.length;
+                event.captureToWrite = update.getTrace().nanosSinceCapture();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of values actually written to the board.
+     *
+     * @return The writes issued
+     */
+    public long getWritesIssued() {
+        return writesIssued.get();
+    }
+
+    /**
+     * Gets the number of values that were never written, either because a newer value
+     * replaced them or because they matched the value already on the pin.
+     *
+     * @return The writes suppressed
+     */
+    public long getWritesSuppressed() {
+        return writesCoalesced.get() + writesUnchanged.get();
+    }
+
+    /**
+     * Builds a one-line summary of issued and suppressed writes.
+     *
+     * @return The statistics line
+     */
+    public String getStatsSummary() {
+        return String.format("Actuation: %d writes issued, %d suppressed (%d coalesced, %d unchanged)",
+                getWritesIssued(), getWritesSuppressed(), writesCoalesced.get(), writesUnchanged.get());
+    }
+
+    private static long toIntervalNanos(double maxUpdatesPerSecond) {
+        if (maxUpdatesPerSecond <= 0) {
+            throw new IllegalArgumentException("Update rate must be positive: " + maxUpdatesPerSecond);
+        }
+        return (long) (1_000_000_000L / maxUpdatesPerSecond);
+    }
+}
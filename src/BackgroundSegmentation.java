@@ -0,0 +1,125 @@
+import org.opencv.core.Algorithm;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.video.BackgroundSubtractor;
+import org.opencv.video.BackgroundSubtractorKNN;
+import org.opencv.video.BackgroundSubtractorMOG2;
+import org.opencv.video.Video;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Segments the hand as whatever differs from a learned model of the empty scene,
+ * using one of OpenCV's background subtractors. Works regardless of skin tone and
+ * lighting color, but the hand region has to stay in one place, and a hand held
+ * perfectly still is slowly learned into the background.
+ * Pixels the subtractor marks as shadows count as background.
+ */
+public class BackgroundSegmentation implements SegmentationStrategy {
+    // Background models: Gaussian mixture or K nearest neighbours
+    public static final int MODEL_MOG2 = 1;
+    public static final int MODEL_KNN = 2;
+
+    /** Number of frames the background model remembers. */
+    public static final int HISTORY = 500;
+    // Subtractors mark shadows as 127 and foreground as 255
+    private static final double SHADOW_VALUE = 127;
+    // A negative rate lets the subtractor learn quickly at first, then at 1 / HISTORY
+    private static final double AUTOMATIC_LEARNING_RATE = -1;
+    // The bindings only free a subtractor in its finalizer, through these private members
+    private static final Field NATIVE_OBJ = findNativeObj();
+    private static final Method DELETE_MOG2 = findDelete(BackgroundSubtractorMOG2.class);
+    private static final Method DELETE_KNN = findDelete(BackgroundSubtractorKNN.class);
+
+    private final int model;
+    private BackgroundSubtractor subtractor;
+
+    /**
+     * Creates a background segmentation that has not seen any frames yet.
+     *
+     * @param model MODEL_MOG2 or MODEL_KNN
+     */
+    public BackgroundSegmentation(int model) {
+        if (model != MODEL_MOG2 && model != MODEL_KNN) {
+            throw new IllegalArgumentException("Unknown background model: " + model);
+        }
+        this.model = model;
+    }
+
+    @Override
+    public void segment(Mat roi, Mat mask) {
+        if (subtractor == null) {
+            subtractor = model == MODEL_MOG2
+                    ? Video.createBackgroundSubtractorMOG2(HISTORY, 16, true)
+                    : Video.createBackgroundSubtractorKNN(HISTORY, 400, true);
+        }
+        subtractor.apply(roi, mask, AUTOMATIC_LEARNING_RATE);
+        Imgproc.threshold(mask, mask, SHADOW_VALUE, 255, Imgproc.THRESH_BINARY);
+    }
+
+    @Override
+    public boolean needsFixedRegion() {
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        // A new subtractor is created for the next frame
+        release();
+    }
+
+    @Override
+    public String getName() {
+        return model == MODEL_MOG2 ? MOG2 : KNN;
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    /**
+     * Frees the subtractor's native model now instead of when it is finalized, and
+     * clears its handle so the finalizer does not free it again. If the bindings do
+     * not allow that, the finalizer frees it.
+     */
+    private void release() {
+        if (subtractor == null) {
+            return;
+        }
+        Method delete = model == MODEL_MOG2 ? DELETE_MOG2 : DELETE_KNN;
+        if (delete != null && NATIVE_OBJ != null) {
+            try {
+                long address = NATIVE_OBJ.getLong(subtractor);
+                NATIVE_OBJ.setLong(subtractor, 0);
+                delete.invoke(null, address);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot free the background model", e);
+            }
+        }
+        subtractor = null;
+    }
+
+    private static Field findNativeObj() {
+        try {
+            Field field = Algorithm.class.getDeclaredField("nativeObj");
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Background models cannot be freed early, leaving them to the finalizer: " + e);
+            return null;
+        }
+    }
+
+    private static Method findDelete(Class<? extends Algorithm> type) {
+        try {
+            Method method = type.getDeclaredMethod("delete", long.class);
+            method.setAccessible(true);
+            return method;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Background models cannot be freed early, leaving them to the finalizer: " + e);
+            return null;
+        }
+    }
+}
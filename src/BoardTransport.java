@@ -0,0 +1,30 @@
+import org.firmata4j.IODevice;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sends a burst of pin updates to one board. The {@link DeviceManager} hands every
+ * write for a board to that board's transport, so how updates reach the board can
+ * be swapped, for example to measure bursts against a {@link SimulatedBoard}.
+ */
+public interface BoardTransport {
+    /**
+     * Writes each update through its device's pin, one Firmata message per update.
+     * Works with any board.
+     */
+    BoardTransport PIN_WRITES = (board, updates) -> {
+        for (PinUpdate update : updates) {
+            update.getController().setValue(update.getValue());
+        }
+    };
+
+    /**
+     * Writes a burst of updates in the given order.
+     *
+     * @param board The board every update belongs to
+     * @param updates The updates, highest priority first
+     * @throws IOException If the board cannot be written; updates may then be partly applied
+     */
+    void send(IODevice board, List<PinUpdate> updates) throws IOException;
+}
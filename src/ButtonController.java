@@ -1,7 +1,7 @@
 import org.firmata4j.Pin;
 import org.firmata4j.IOEvent;
 import org.firmata4j.IODeviceEventListener;
-import org.firmata4j.firmata.FirmataDevice;
+import org.firmata4j.IODevice;
 import java.io.IOException;
 
 /**
@@ -34,7 +34,7 @@ public class ButtonController implements IODeviceEventListener {
      * @param pinNumber The pin number to use for this button
      * @throws IOException If there's an error configuring the pin
      */
-    public ButtonController(FirmataDevice device, int pinNumber) throws IOException {
+    public ButtonController(IODevice device, int pinNumber) throws IOException {
         // Configure the pin as an input
         buttonPin = device.getPin(pinNumber);
         buttonPin.setMode(Pin.Mode.INPUT);
@@ -1,5 +1,5 @@
 import org.firmata4j.Pin;
-import org.firmata4j.firmata.FirmataDevice;
+import org.firmata4j.IODevice;
 
 import java.io.IOException;
 
@@ -17,7 +17,7 @@ public class BuzzerController extends DeviceController {
      * @param pinNumber The pin number for the buzzer
      * @throws IOException If there's an error setting up the pin
      */
-    public BuzzerController(FirmataDevice board, int pinNumber) throws IOException {
+    public BuzzerController(IODevice board, int pinNumber) throws IOException {
         super(board, pinNumber, Pin.Mode.PWM, MIN_VOLUME, MAX_VOLUME, "Buzzer");
     }
 }
\ No newline at end of file
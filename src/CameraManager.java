@@ -4,13 +4,10 @@
  * Note: The logic for computer vision was generated by AI as it's beyond the scope of this course.
  */
 import org.opencv.core.*;
-import org.opencv.imgproc.Imgproc;
 import org.opencv.videoio.VideoCapture;
-import org.opencv.highgui.HighGui;
 
-public class CameraManager {
+public class CameraManager implements FrameSource {
     private VideoCapture camera;
-    private String windowName;
     private Rect handRegion;
     
     static {
@@ -19,42 +16,43 @@ public class CameraManager {
     }
     
     /**
-     * Constructs a new CameraManager with the specified window name.
-     *
-     * @param windowName The name of the window where camera frames will be displayed
+     * Constructs a new CameraManager for the default camera.
+     */
+    public CameraManager() {
+        this(0);
+    }
+    
+    /**
+     * Constructs a new CameraManager for one of several attached cameras.
+     * 
+     * @param cameraIndex The index of the camera (0 for the default camera)
      */
-    public CameraManager(String windowName) {
-        this.windowName = windowName;
-        init();
+    public CameraManager(int cameraIndex) {
+        init(cameraIndex);
     }
     
     /**
-     * Initializes the camera, display window, and sets up the hand detection region.
+     * Initializes the camera and sets up the hand detection region.
      * 
+     * @param cameraIndex The index of the camera to open
      * @throws RuntimeException if the camera cannot be accessed
      */
-    private void init() {
+    private void init(int cameraIndex) {
         // Initialize camera
-        camera = new VideoCapture(0);
+        camera = new VideoCapture(cameraIndex);
         if (!camera.isOpened()) {
             throw new RuntimeException("Error: Camera not accessible");
         }
         
-        // Create window
-        HighGui.namedWindow(windowName);
-        
         // Read one frame to get dimensions
         Mat tempFrame = new Mat();
         camera.read(tempFrame);
         int frameWidth = tempFrame.cols();
         int frameHeight = tempFrame.rows();
+        tempFrame.release();
         
         // Define hand detection region (center-right portion of the frame)
-        int roiWidth = frameWidth / 3;
-        int roiHeight = frameHeight / 2;
-        int roiX = frameWidth / 2;
-        int roiY = frameHeight / 4;
-        handRegion = new Rect(roiX, roiY, roiWidth, roiHeight);
+        handRegion = FrameSource.defaultHandRegion(frameWidth, frameHeight);
     }
     
     /**
@@ -63,6 +61,7 @@ public class CameraManager {
      * @return A Mat object containing the captured frame
      * @throws RuntimeException if no frame could be captured
      */
+    @Override
     public Mat readFrame() {
         Mat frame = new Mat();
         camera.read(frame);
@@ -76,31 +75,22 @@ public class CameraManager {
     }
     
     /**
-     * Displays the current frame in the window.
-     *
-     * @param frame The Mat object to display
-     */
-    public void showFrame(Mat frame) {
-        HighGui.imshow(windowName, frame);
-    }
-    
-    /**
-     * Waits for a key press for the specified delay.
+     * The camera delivers frames at its own pace, so it is a real-time source.
      *
-     * @param delay Time in milliseconds to wait for a key event
-     * @return The key code of the pressed key or -1 if no key was pressed
+     * @return true
      */
-    public int waitKey(int delay) {
-        return HighGui.waitKey(delay) & 0xFF;
+    @Override
+    public boolean isRealTime() {
+        return true;
     }
     
     /**
      * Releases all resources used by this CameraManager.
      * Should be called when done using the camera.
      */
+    @Override
     public void release() {
         camera.release();
-        HighGui.destroyAllWindows();
     }
     
     /**
@@ -108,6 +98,7 @@ public class CameraManager {
      *
      * @return A Rect object representing the hand detection region
      */
+    @Override
     public Rect getHandRegion() {
         return handRegion;
     }
@@ -0,0 +1,45 @@
+import org.opencv.core.Mat;
+
+/**
+ * A frame read from a FrameSource, tagged with its trace.
+ */
+public final class CapturedFrame {
+    private final Mat image;
+    private final FrameTrace trace;
+
+    /**
+     * Creates a captured frame.
+     *
+     * @param image The frame image, owned by whoever holds this object
+     * @param trace The trace identifying the frame
+     */
+    public CapturedFrame(Mat image, FrameTrace trace) {
+        this.image = image;
+        this.trace = trace;
+    }
+
+    /**
+     * Gets the frame image.
+     *
+     * @return The image
+     */
+    public Mat getImage() {
+        return image;
+    }
+
+    /**
+     * Gets the trace identifying the frame.
+     *
+     * @return The trace
+     */
+    public FrameTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Releases the frame image.
+     */
+    public void release() {
+        image.release();
+    }
+}
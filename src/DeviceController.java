@@ -1,5 +1,5 @@
 import org.firmata4j.Pin;
-import org.firmata4j.firmata.FirmataDevice;
+import org.firmata4j.IODevice;
 
 import java.io.IOException;
 
@@ -16,14 +16,14 @@ public abstract class DeviceController {
     /**
      * Constructor that initializes a device on the specified pin.
      *
-     * @param board The Firmata FirmataDevice that is already started and initialized.
+     * @param board The board (Firmata or simulated) that is already started and initialized.
      * @param pinNumber The pin number the device is connected to.
      * @param mode The pin mode to set (e.g., Pin.Mode.SERVO, Pin.Mode.PWM).
      * @param minValue The minimum valid value for this device.
      * @param maxValue The maximum valid value for this device.
      * @param deviceName The descriptive name of this device.
      */
-    protected DeviceController(FirmataDevice board, int pinNumber, Pin.Mode mode, 
+    protected DeviceController(IODevice board, int pinNumber, Pin.Mode mode, 
                               int minValue, int maxValue, String deviceName) throws IOException {
         this.devicePin = board.getPin(pinNumber);
         this.devicePin.setMode(mode);
@@ -39,11 +39,21 @@ public abstract class DeviceController {
      * @throws IllegalArgumentException if the value is out of range.
      */
     public void setValue(int value) throws IOException {
+        checkValue(value);
+        devicePin.setValue(value);
+    }
+
+    /**
+     * Checks that a value is valid for this device without writing it.
+     *
+     * @param value The value to check.
+     * @throws IllegalArgumentException if the value is out of range.
+     */
+    public void checkValue(int value) {
         if (value < minValue || value > maxValue) {
             throw new IllegalArgumentException("Value must be between "
                     + minValue + " and " + maxValue);
         }
-        devicePin.setValue(value);
     }
     
     /**
@@ -54,4 +64,22 @@ public abstract class DeviceController {
     public String getDeviceName() {
         return deviceName;
     }
+
+    /**
+     * Gets the pin this device is connected to.
+     *
+     * @return The device's pin.
+     */
+    public Pin getPin() {
+        return devicePin;
+    }
+
+    /**
+     * Gets the board this device is connected to.
+     *
+     * @return The board that owns the device's pin.
+     */
+    public IODevice getBoard() {
+        return devicePin.getDevice();
+    }
 }
\ No newline at end of file
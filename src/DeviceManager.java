@@ -1,61 +1,215 @@
-import org.firmata4j.firmata.FirmataDevice;
+import org.firmata4j.IODevice;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * Manages multiple device controllers.
+ * Manages multiple device controllers, which may be spread across several boards.
  * Provides centralized access to control multiple Arduino devices.
+ * Every controller gets a global ID, in the order controllers are added, no matter
+ * which board it is on. Once actuation is started each board has its own I/O lane
+ * (an {@link ActuationScheduler} thread), so a slow or disconnected board never
+ * stalls writes to the others.
+ * The values set in one frame can be collected in a {@link Transaction} and sent to
+ * each board as one burst through the board's {@link BoardTransport}.
  */
 public class DeviceManager {
-    private final List<DeviceController> controllers;
-    private final FirmataDevice board;
+    /** Priority of values that follow the hand. */
+    public static final int PRIORITY_CONTROL = 0;
+    /** Priority of values that return a device to rest, written before any others in a burst. */
+    public static final int PRIORITY_RESET = 10;
+
+    private final List<ControllerEntry> controllers;
+    private final List<BoardLane> boards;
+    private double maxUpdatesPerSecond;
+    private boolean actuating;
+
+    /**
+     * A board and the controllers connected to it.
+     */
+    private static class BoardLane {
+        final String name;
+        final IODevice device;
+        final BoardTransport transport;
+        final List<DeviceController> controllers = new ArrayList<>();
+        volatile ActuationScheduler scheduler;
+
+        BoardLane(String name, IODevice device, BoardTransport transport) {
+            this.name = name;
+            this.device = device;
+            this.transport = transport;
+        }
+    }
+
+    /**
+     * A controller with its board lane and its slot index in that lane's scheduler.
+     */
+    private static class ControllerEntry {
+        final DeviceController controller;
+        final BoardLane lane;
+        final int slot;
+
+        ControllerEntry(DeviceController controller, BoardLane lane, int slot) {
+            this.controller = controller;
+            this.lane = lane;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * Constructor that initializes a DeviceManager without boards. Boards are
+     * registered with {@link #addBoard(String, IODevice)} or when their first
+     * controller is added.
+     */
+    public DeviceManager() {
+        this.controllers = new ArrayList<>();
+        this.boards = new ArrayList<>();
+    }
 
     /**
      * Constructor that initializes the DeviceManager with a board instance.
      * 
-     * @param board The Firmata board that all devices are connected to
+     * @param board The board that all devices are connected to, or null for none
      */
-    public DeviceManager(FirmataDevice board) {
-        this.controllers = new ArrayList<>();
-        this.board = board;
+    public DeviceManager(IODevice board) {
+        this();
+        if (board != null) {
+            addBoard("board-1", board);
+        }
     }
     
     /**
      * Constructor that initializes the DeviceManager with a board instance and
      * an array of pre-configured device controllers.
      * 
-     * @param board The Firmata board
+     * @param board The board
      * @param controllers Array of preconfigured device controllers
      */
-    public DeviceManager(FirmataDevice board, DeviceController[] controllers) {
-        this.controllers = new ArrayList<>(Arrays.asList(controllers));
-        this.board = board;
+    public DeviceManager(IODevice board, DeviceController[] controllers) {
+        this(board);
+        for (DeviceController controller : controllers) {
+            addController(controller);
+        }
     }
     
     /**
-     * Adds a device controller to be managed.
+     * Registers a board under a name used in thread names and log messages. Its
+     * values are written one pin at a time ({@link BoardTransport#PIN_WRITES}).
+     * If actuation is already running, the board's I/O lane is started right away.
+     * 
+     * @param name The name of the board
+     * @param board The started board
+     * @throws IllegalArgumentException if the board or the name is already registered
+     */
+    public void addBoard(String name, IODevice board) {
+        addBoard(name, board, BoardTransport.PIN_WRITES);
+    }
+    
+    /**
+     * Registers a board whose values are written through the given transport.
+     * If actuation is already running, the board's I/O lane is started right away.
+     * 
+     * @param name The name of the board
+     * @param board The started board
+     * @param transport How bursts of values reach the board
+     * @throws IllegalArgumentException if the board or the name is already registered
+     */
+    public void addBoard(String name, IODevice board, BoardTransport transport) {
+        for (BoardLane lane : boards) {
+            if (lane.device == board || lane.name.equals(name)) {
+                throw new IllegalArgumentException("Board already registered: " + name);
+            }
+        }
+        BoardLane lane = new BoardLane(name, board, transport);
+        boards.add(lane);
+        if (actuating) {
+            startLane(lane);
+        }
+    }
+    
+    /**
+     * Adds a device controller to be managed. The controller is assigned to the lane
+     * of the board its pin belongs to; an unknown board is registered automatically.
      * 
      * @param controller The device controller to add
+     * @return The global ID of the controller
+     */
+    public int addController(DeviceController controller) {
+        BoardLane lane = findLane(controller.getBoard());
+        if (lane == null) {
+            addBoard("board-" + (boards.size() + 1), controller.getBoard());
+            lane = boards.get(boards.size() - 1);
+        }
+        lane.controllers.add(controller);
+        if (lane.scheduler != null) {
+            lane.scheduler.addController(controller);
+        }
+        controllers.add(new ControllerEntry(controller, lane, lane.controllers.size() - 1));
+        return controllers.size() - 1;
+    }
+    
+    /**
+     * Starts one actuation thread per board. From then on {@link #controlDevice(int, int)}
+     * returns immediately and values are written in the background, merging bursts,
+     * skipping unchanged values and limiting each pin to the given rate.
+     * 
+     * @param maxUpdatesPerSecond The maximum number of writes per second for each pin
+     */
+    public void startActuation(double maxUpdatesPerSecond) {
+        if (actuating) {
+            throw new IllegalStateException("Actuation thread already started");
+        }
+        this.maxUpdatesPerSecond = maxUpdatesPerSecond;
+        actuating = true;
+        for (BoardLane lane : boards) {
+            startLane(lane);
+        }
+    }
+    
+    /**
+     * Writes any pending values and stops the actuation threads.
+     * Later calls to {@link #controlDevice(int, int)} write synchronously again.
+     * 
+     * @throws InterruptedException If interrupted while waiting for the threads
      */
-    public void addController(DeviceController controller) {
-        controllers.add(controller);
+    public void stopActuation() throws InterruptedException {
+        if (!actuating) {
+            return;
+        }
+        actuating = false;
+        for (BoardLane lane : boards) {
+            lane.scheduler.stop();
+            System.out.println(lane.name + " " + lane.scheduler.getStatsSummary());
+            lane.scheduler = null;
+        }
     }
     
     /**
-     * Gets a device controller at the specified index.
+     * Gets the actuation scheduler of a board, for its write statistics.
      * 
-     * @param index The index of the controller to retrieve
-     * @return The DeviceController at the specified index
+     * @param boardName The name the board was registered under
+     * @return The scheduler, or null if the board is unknown or actuation is not running
+     */
+    public ActuationScheduler getActuationScheduler(String boardName) {
+        for (BoardLane lane : boards) {
+            if (lane.name.equals(boardName)) {
+                return lane.scheduler;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Gets a device controller by its global ID.
+     * 
+     * @param index The global ID of the controller to retrieve
+     * @return The DeviceController with the specified ID
      * @throws IndexOutOfBoundsException if the index is out of range
      */
     public DeviceController getController(int index) {
-        if (index < 0 || index >= controllers.size()) {
-            throw new IndexOutOfBoundsException("Controller index out of range: " + index);
-        }
-        return controllers.get(index);
+        return getEntry(index).controller;
     }
     
     /**
@@ -69,17 +223,201 @@ public class DeviceManager {
         return getController(index).getDeviceName();
     }
     
+    /**
+     * Gets the name of the board a controller is connected to.
+     * 
+     * @param index The global ID of the controller
+     * @return The board name
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public String getBoardName(int index) {
+        return getEntry(index).lane.name;
+    }
+    
     /**
      * Controls a specific device by setting its value.
+     * When the actuation threads are running the value is queued on the lane of the
+     * device's board and this returns immediately; otherwise it is written before returning.
      * 
      * @param index The index of the controller to set
      * @param value The value to set
      * @throws IOException If an I/O error occurs during communication with the device
      * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the value is out of range for the device
      */
     public void controlDevice(int index, int value) throws IOException {
-        DeviceController controller = getController(index);
-        controller.setValue(value);
+        controlDevice(index, value, FrameTrace.NONE);
+    }
+    
+    /**
+     * Controls a specific device by setting its value, tagging the write with the
+     * trace of the frame the value was derived from.
+     * 
+     * @param index The index of the controller to set
+     * @param value The value to set
+     * @param trace The trace of the frame that produced the value
+     * @throws IOException If an I/O error occurs during communication with the device
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the value is out of range for the device
+     */
+    public void controlDevice(int index, int value, FrameTrace trace) throws IOException {
+        ControllerEntry entry = getEntry(index);
+        entry.controller.checkValue(value);
+        ActuationScheduler scheduler = entry.lane.scheduler;
+        if (scheduler != null) {
+            scheduler.submit(entry.slot, value, trace);
+        } else {
+            ActuationScheduler.writeBurst(entry.lane.device, entry.lane.transport, Collections.singletonList(
+                    new PinUpdate(entry.controller, value, PRIORITY_CONTROL, trace, System.nanoTime())));
+        }
+    }
+    
+    /**
+     * Creates a transaction for collecting the values of one frame. Keep it and
+     * commit it once per frame.
+     * 
+     * @return The transaction, for use by one thread
+     */
+    public Transaction newTransaction() {
+        return new Transaction();
+    }
+    
+    /**
+     * The values set during one frame, written when the frame commits them: each
+     * board gets all of its values as one burst, highest priority first, so a frame
+     * that changes several devices pays the per-write cost of the serial link once
+     * per board. A later value for a device replaces an earlier one. The transaction
+     * is empty again after a commit and can be reused for the next frame.
+     */
+    public final class Transaction {
+        private PinUpdate[] updates = new PinUpdate[0];
+        // Global IDs of the controllers with a value, in the order they were first set
+        private int[] touched = new int[0];
+        private int count;
+        private final List<PinUpdate> laneUpdates = new ArrayList<>();
+        private int[] laneSlots = new int[0];
+
+        private Transaction() {
+        }
+
+        /**
+         * Sets a device value at control priority, with no frame trace.
+         * 
+         * @param index The global ID of the controller
+         * @param value The value to set
+         * @throws IndexOutOfBoundsException if the index is out of range
+         * @throws IllegalArgumentException if the value is out of range for the device
+         */
+        public void set(int index, int value) {
+            set(index, value, PRIORITY_CONTROL, FrameTrace.NONE);
+        }
+
+        /**
+         * Sets a device value, to be written when the transaction is committed.
+         * 
+         * @param index The global ID of the controller
+         * @param value The value to set
+         * @param priority The order within the board's burst, higher first
+         * @param trace The trace of the frame that produced the value
+         * @throws IndexOutOfBoundsException if the index is out of range
+         * @throws IllegalArgumentException if the value is out of range for the device
+         */
+        public void set(int index, int value, int priority, FrameTrace trace) {
+            ControllerEntry entry = getEntry(index);
+            entry.controller.checkValue(value);
+            if (index >= updates.length) {
+                int capacity = controllers.size();
+                PinUpdate[] grown = new PinUpdate[capacity];
+                System.arraycopy(updates, 0, grown, 0, updates.length);
+                updates = grown;
+                int[] grownTouched = new int[capacity];
+                System.arraycopy(touched, 0, grownTouched, 0, count);
+                touched = grownTouched;
+                laneSlots = new int[capacity];
+            }
+            if (updates[index] == null) {
+                touched[count++] = index;
+            }
+            updates[index] = new PinUpdate(entry.controller, value, priority, trace, System.nanoTime());
+        }
+
+        /**
+         * Gets the number of devices with a value waiting to be committed.
+         * 
+         * @return The number of values
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Sends the values to their boards, one burst per board, and empties the
+         * transaction. While the actuation threads are running this returns
+         * immediately; otherwise the bursts are written before returning. A board
+         * that fails does not stop the bursts to the others.
+         * 
+         * @throws IOException If writing to a board failed, the first such error
+         */
+        public void commit() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            // Stable insertion sort, highest priority first; there are only a few devices
+            for (int i = 1; i < count; i++) {
+                int index = touched[i];
+                int priority = updates[index].getPriority();
+                int j = i - 1;
+                while (j >= 0 && updates[touched[j]].getPriority() < priority) {
+                    touched[j + 1] = touched[j];
+                    j--;
+                }
+                touched[j + 1] = index;
+            }
+
+            IOException failure = null;
+            for (BoardLane lane : boards) {
+                laneUpdates.clear();
+                for (int i = 0; i < count; i++) {
+                    ControllerEntry entry = controllers.get(touched[i]);
+                    if (entry.lane == lane) {
+                        laneSlots[laneUpdates.size()] = entry.slot;
+                        laneUpdates.add(updates[touched[i]]);
+                    }
+                }
+                if (laneUpdates.isEmpty()) {
+                    continue;
+                }
+                ActuationScheduler scheduler = lane.scheduler;
+                if (scheduler != null) {
+                    scheduler.submit(laneSlots, laneUpdates);
+                } else {
+                    try {
+                        ActuationScheduler.writeBurst(lane.device, lane.transport, laneUpdates);
+                    } catch (IOException e) {
+                        if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                }
+            }
+
+            clear();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        /**
+         * Discards the values set since the last commit without writing them,
+         * for a frame that failed before it could commit.
+         */
+        public void clear() {
+            for (int i = 0; i < count; i++) {
+                updates[touched[i]] = null;
+            }
+            count = 0;
+            laneUpdates.clear();
+        }
     }
     
     /**
@@ -92,11 +430,57 @@ public class DeviceManager {
     }
     
     /**
-     * Gets the board instance this manager is using.
+     * Returns the number of boards the controllers are spread across.
+     * 
+     * @return The number of boards
+     */
+    public int getBoardCount() {
+        return boards.size();
+    }
+    
+    /**
+     * Gets the first board registered with this manager.
+     * 
+     * @return The first board, or null if there is none
+     */
+    public IODevice getBoard() {
+        return boards.isEmpty() ? null : boards.get(0).device;
+    }
+    
+    /**
+     * Gets the board a controller is connected to.
      * 
-     * @return The FirmataDevice board
+     * @param index The global ID of the controller
+     * @return The board
+     * @throws IndexOutOfBoundsException if the index is out of range
      */
-    public FirmataDevice getBoard() {
-        return board;
+    public IODevice getBoard(int index) {
+        return getEntry(index).lane.device;
+    }
+
+    private ControllerEntry getEntry(int index) {
+        if (index < 0 || index >= controllers.size()) {
+            throw new IndexOutOfBoundsException("Controller index out of range: " + index);
+        }
+        return controllers.get(index);
+    }
+
+    private BoardLane findLane(IODevice board) {
+        for (BoardLane lane : boards) {
+            if (lane.device == board) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    private void startLane(BoardLane lane) {
+        ActuationScheduler scheduler = new ActuationScheduler(maxUpdatesPerSecond, "actuation-" + lane.name,
+                lane.transport);
+        for (DeviceController controller : lane.controllers) {
+            scheduler.addController(controller);
+        }
+        scheduler.start();
+        lane.scheduler = scheduler;
     }
 }
\ No newline at end of file
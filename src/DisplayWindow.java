@@ -0,0 +1,46 @@
+import org.opencv.core.Mat;
+import org.opencv.highgui.HighGui;
+
+/**
+ * The on-screen window that shows processed frames and receives key presses.
+ * Not created at all when running headless.
+ */
+public class DisplayWindow {
+    private final String windowName;
+
+    /**
+     * Creates and opens a display window.
+     *
+     * @param windowName The name of the window where frames will be displayed
+     */
+    public DisplayWindow(String windowName) {
+        this.windowName = windowName;
+        HighGui.namedWindow(windowName);
+    }
+
+    /**
+     * Displays the current frame in the window.
+     *
+     * @param frame The Mat object to display
+     */
+    public void showFrame(Mat frame) {
+        HighGui.imshow(windowName, frame);
+    }
+
+    /**
+     * Waits for a key press for the specified delay.
+     *
+     * @param delay Time in milliseconds to wait for a key event
+     * @return The key code of the pressed key or -1 if no key was pressed
+     */
+    public int waitKey(int delay) {
+        return HighGui.waitKey(delay) & 0xFF;
+    }
+
+    /**
+     * Closes the window.
+     */
+    public void close() {
+        HighGui.destroyAllWindows();
+    }
+}
@@ -0,0 +1,239 @@
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Analyses two hand regions of the same frame at the same time: a selection region,
+ * where one hand chooses a device by showing fingers, and a control region, where the
+ * other hand sets the device's value by its height.
+ * The control region is analysed on a worker thread with its own GestureProcessor
+ * while the calling thread analyses the selection region with the pipeline's
+ * processor, so a frame takes about as long as a single region instead of twice as long.
+ * On a single core there is nothing to gain, and both regions are analysed on the calling thread.
+ * The regions are fixed: the hand tracker is not used in two-hand mode.
+ */
+public class DualRegionAnalyzer implements AutoCloseable {
+    private final GestureProcessor controlProcessor;
+    private final ExecutorService worker;
+    private final boolean parallel;
+    private Rect selectionRegion;
+    private Rect controlRegion;
+
+    // Results of the last analysed frame
+    private Rect analysedSelectionRegion;
+    private Rect analysedControlRegion;
+    private HandAnalysis selectionHand;
+    private FingerDetection selectionFingers;
+    private HandAnalysis controlHand;
+    private double controlPercentage;
+
+    /**
+     * Creates an analyzer whose regions default to the frame source's hand region for
+     * control and its mirror image in the left half of the frame for selection.
+     *
+     * @param controlProcessor The processor for the control region
+     */
+    public DualRegionAnalyzer(GestureProcessor controlProcessor) {
+        this(controlProcessor, Runtime.getRuntime().availableProcessors() > 1);
+    }
+
+    /**
+     * Creates an analyzer, choosing whether the regions are analysed in parallel.
+     *
+     * @param controlProcessor The processor for the control region
+     * @param parallel true to analyse the control region on a worker thread
+     */
+    public DualRegionAnalyzer(GestureProcessor controlProcessor, boolean parallel) {
+        this.controlProcessor = controlProcessor;
+        this.parallel = parallel;
+        this.worker = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "control-region");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the region in which finger counts select a device.
+     *
+     * @param selectionRegion The region, or null for the mirror image of the hand region
+     */
+    public void setSelectionRegion(Rect selectionRegion) {
+        this.selectionRegion = selectionRegion;
+    }
+
+    /**
+     * Sets the region in which the hand height controls the selected device.
+     *
+     * @param controlRegion The region, or null for the frame source's hand region
+     */
+    public void setControlRegion(Rect controlRegion) {
+        this.controlRegion = controlRegion;
+    }
+
+    /**
+     * Analyses both regions of a frame, in parallel if possible. The results are available from the
+     * getters until the next call.
+     *
+     * @param frame The current video frame and its trace
+     * @param handRegion The frame source's hand region, used for any region not configured
+     * @param selectionProcessor The processor for the selection region, used on the calling thread
+     * @throws IllegalStateException If the analysis of the control region fails
+     */
+    public void analyse(CapturedFrame frame, Rect handRegion, GestureProcessor selectionProcessor) {
+        Mat image = frame.getImage();
+        Rect selection = selectionRegion != null ? selectionRegion : mirror(handRegion, image.cols());
+        Rect control = controlRegion != null ? controlRegion : handRegion;
+
+        // Keep the control region segmented the same way when the strategy is switched at runtime
+        String segmentation = selectionProcessor.getSegmentationStrategy().getName();
+        if (!segmentation.equals(controlProcessor.getSegmentationStrategy().getName())) {
+            controlProcessor.setSegmentationStrategy(SegmentationStrategy.create(segmentation));
+        }
+
+        // Only the selection hand's fingers are counted, so only its mask needs full resolution;
+        // the pipeline's processor is left as it was for the next one-hand frame
+        boolean fingerCounting = selectionProcessor.isFingerCounting();
+        selectionProcessor.setFingerCounting(true);
+
+        Runnable controlAnalysis = () -> {
+            Mat roiMat = new Mat(image, control);
+            HandAnalysis hand = analyseRegion(roiMat, controlProcessor, frame.getTrace());
+            roiMat.release();
+            controlHand = hand;
+            controlPercentage = controlProcessor.getIndexFingerHeightPercentage(hand);
+        };
+        Future<?> controlResult = null;
+        if (parallel) {
+            controlResult = worker.submit(controlAnalysis);
+        } else {
+            controlAnalysis.run();
+        }
+
+        Mat roiMat = new Mat(image, selection);
+        try {
+            HandAnalysis hand = analyseRegion(roiMat, selectionProcessor, frame.getTrace());
+            selectionHand = hand;
+            long fingertipsStart = System.nanoTime();
+            selectionFingers = selectionProcessor.detectFingers(hand);
+            Metrics.FINGERTIPS_LATENCY.record(System.nanoTime() - fingertipsStart);
+        } finally {
+            roiMat.release();
+            selectionProcessor.setFingerCounting(fingerCounting);
+        }
+
+        if (controlResult != null) {
+            await(controlResult);
+        }
+        analysedSelectionRegion = selection;
+        analysedControlRegion = control;
+    }
+
+    /**
+     * Waits for the control region; Future.get() also makes the worker's results
+     * visible to this thread.
+     */
+    private static void await(Future<?> controlResult) {
+        try {
+            controlResult.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            controlResult.cancel(true);
+            throw new IllegalStateException("Interrupted while analysing the control region", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Analysis of the control region failed", e.getCause());
+        }
+    }
+
+    private static HandAnalysis analyseRegion(Mat roiMat, GestureProcessor processor, FrameTrace trace) {
+        TraceEvents.SkinMask maskEvent = new TraceEvents.SkinMask();
+        maskEvent.begin();
+        long maskStart = System.nanoTime();
+        Mat skinMask = processor.createSkinMask(roiMat);
+        long maskEnd = System.nanoTime();
+        maskEvent.traceId = trace.getTraceId();
+        maskEvent.commit();
+        Metrics.SKIN_MASK_LATENCY.record(maskEnd - maskStart);
+        HandAnalysis hand = processor.analyzeHand(skinMask);
+        Metrics.CONTOURS_LATENCY.record(System.nanoTime() - maskEnd);
+        return hand;
+    }
+
+    /**
+     * Mirrors a region about the vertical center line of the frame.
+     *
+     * @param region The region to mirror
+     * @param frameWidth The width of the frame
+     * @return The mirrored region
+     */
+    public static Rect mirror(Rect region, int frameWidth) {
+        return new Rect(frameWidth - region.x - region.width, region.y, region.width, region.height);
+    }
+
+    /**
+     * Gets the selection region of the last analysed frame.
+     *
+     * @return The selection region
+     */
+    public Rect getSelectionRegion() {
+        return analysedSelectionRegion;
+    }
+
+    /**
+     * Gets the control region of the last analysed frame.
+     *
+     * @return The control region
+     */
+    public Rect getControlRegion() {
+        return analysedControlRegion;
+    }
+
+    /**
+     * Gets the hand analysis of the selection region.
+     *
+     * @return The selection hand
+     */
+    public HandAnalysis getSelectionHand() {
+        return selectionHand;
+    }
+
+    /**
+     * Gets the fingertip detection of the selection hand.
+     *
+     * @return The selection fingers
+     */
+    public FingerDetection getSelectionFingers() {
+        return selectionFingers;
+    }
+
+    /**
+     * Gets the hand analysis of the control region.
+     *
+     * @return The control hand
+     */
+    public HandAnalysis getControlHand() {
+        return controlHand;
+    }
+
+    /**
+     * Gets the index finger height in the control region.
+     *
+     * @return The height as a percentage of the control region
+     */
+    public double getControlPercentage() {
+        return controlPercentage;
+    }
+
+    /**
+     * Stops the worker thread and releases the control region's processor.
+     */
+    @Override
+    public void close() {
+        worker.shutdownNow();
+        controlProcessor.close();
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.Arrays;
+
+/**
+ * Per-frame finger counts collected over a time window that starts at the first
+ * frame added, kept in primitive arrays with a running histogram so adding a frame
+ * and reading how often each count occurred are both constant time. The owner ends
+ * the window by clearing it once a frame arrives past its length.
+ * The arrays double when a fast source fills them, so every frame in the window is
+ * counted; after that adding a frame no longer allocates.
+ */
+public class FingerCountWindow {
+    private final long windowNanos;
+    private long[] timestamps;
+    private byte[] fingerCounts;
+    private final int[] histogram;
+    private int size;
+
+    /**
+     * Creates an empty window.
+     *
+     * @param windowNanos How long the window lasts from its first frame
+     * @param initialCapacity The number of frames held before the window has to grow
+     * @param maxFingerCount The largest finger count that will be added
+     */
+    public FingerCountWindow(long windowNanos, int initialCapacity, int maxFingerCount) {
+        this.windowNanos = windowNanos;
+        this.timestamps = new long[initialCapacity];
+        this.fingerCounts = new byte[initialCapacity];
+        this.histogram = new int[maxFingerCount + 1];
+    }
+
+    /**
+     * Adds the finger count of one frame.
+     *
+     * @param timeNanos The frame time (System.nanoTime() units)
+     * @param fingerCount The finger count, 0 for no valid detection
+     */
+    public void add(long timeNanos, int fingerCount) {
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            fingerCounts = Arrays.copyOf(fingerCounts, size * 2);
+        }
+        timestamps[size] = timeNanos;
+        fingerCounts[size] = (byte) fingerCount;
+        histogram[fingerCount]++;
+        size++;
+    }
+
+    /**
+     * Gets how many frames in the window had the given finger count.
+     *
+     * @param fingerCount The finger count
+     * @return The number of frames
+     */
+    public int getCount(int fingerCount) {
+        return histogram[fingerCount];
+    }
+
+    /**
+     * Gets the number of frames in the window.
+     *
+     * @return The frame count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the time spanned by the frames in the window.
+     *
+     * @return Nanoseconds from the oldest to the newest frame, or 0 if fewer than two frames
+     */
+    public long getSpanNanos() {
+        if (size < 2) {
+            return 0;
+        }
+        return timestamps[size - 1] - timestamps[0];
+    }
+
+    /**
+     * Gets the length of the window.
+     *
+     * @return The window length in nanoseconds
+     */
+    public long getWindowNanos() {
+        return windowNanos;
+    }
+
+    /**
+     * Removes every frame from the window.
+     */
+    public void clear() {
+        Arrays.fill(histogram, 0);
+        size = 0;
+    }
+}
@@ -0,0 +1,97 @@
+import org.opencv.core.Point;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of the fingertip search on one analysed hand. Its lists cannot be
+ * modified; the Points are shared with the hand analysis and must not be changed.
+ * Holds everything needed to report the finger count and, optionally, to draw it.
+ */
+public final class FingerDetection {
+    private static final FingerDetection NONE = new FingerDetection(false,
+            Collections.emptyList(), Collections.emptyList(), null);
+
+    private final boolean fist;
+    private final List<Point> candidates;
+    private final List<Point> fingerTips;
+    private final Point thumb;
+
+    /**
+     * Creates a new detection result.
+     *
+     * @param fist true if the hand was classified as a closed fist
+     * @param candidates The hull points that passed the fingertip filter
+     * @param fingerTips The accepted fingertips, including the thumb if found
+     * @param thumb The fingertip accepted as the thumb, or null
+     */
+    public FingerDetection(boolean fist, List<Point> candidates, List<Point> fingerTips, Point thumb) {
+        this.fist = fist;
+        this.candidates = Collections.unmodifiableList(candidates);
+        this.fingerTips = Collections.unmodifiableList(fingerTips);
+        this.thumb = thumb;
+    }
+
+    /**
+     * Gets the result used when no hand is present.
+     *
+     * @return An empty detection
+     */
+    public static FingerDetection none() {
+        return NONE;
+    }
+
+    /**
+     * Creates the result for a closed fist.
+     *
+     * @return A detection with no fingertips and the fist flag set
+     */
+    public static FingerDetection fist() {
+        return new FingerDetection(true, Collections.emptyList(), Collections.emptyList(), null);
+    }
+
+    /**
+     * Gets the number of extended fingers.
+     *
+     * @return The finger count (0-5)
+     */
+    public int getFingerCount() {
+        return Math.min(fingerTips.size(), 5); // Limit to 5 fingers
+    }
+
+    /**
+     * Checks whether the hand was classified as a closed fist.
+     *
+     * @return true for a fist
+     */
+    public boolean isFist() {
+        return fist;
+    }
+
+    /**
+     * Gets the hull points that passed the fingertip filter.
+     *
+     * @return A read-only list of candidate points
+     */
+    public List<Point> getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Gets the accepted fingertips, including the thumb if one was found.
+     *
+     * @return A read-only list of fingertip points
+     */
+    public List<Point> getFingerTips() {
+        return fingerTips;
+    }
+
+    /**
+     * Gets the fingertip accepted as the thumb.
+     *
+     * @return The thumb point, or null if no thumb was found
+     */
+    public Point getThumb() {
+        return thumb;
+    }
+}
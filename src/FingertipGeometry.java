@@ -0,0 +1,208 @@
+import org.opencv.core.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fingertip search of {@link GestureProcessor}, run on flat coordinate arrays.
+ * The hull is copied into primitive arrays once per hand, the distance and angle of
+ * each hull point from the palm center are computed once, and distance tests compare
+ * squared distances, so no square roots or trigonometry run inside the loops. The
+ * results are identical to measuring the distances with square roots.
+ * Buffers grow to the largest hull seen and are then reused; like the rest of the
+ * processor, an instance must only be used by one thread.
+ */
+public final class FingertipGeometry {
+    private static final int INITIAL_CAPACITY = 64;
+    // Relative band around a squared threshold in which squaring may have rounded the wrong way
+    private static final double BOUNDARY_MARGIN = 0x1p-48;
+
+    private List<Point> hull;
+    private double[] px = new double[INITIAL_CAPACITY];
+    private double[] py = new double[INITIAL_CAPACITY];
+    private double[] dx = new double[INITIAL_CAPACITY];
+    private double[] dy = new double[INITIAL_CAPACITY];
+    private double[] distanceSquared = new double[INITIAL_CAPACITY];
+    private double[] angle = new double[INITIAL_CAPACITY];
+    private int[] candidates = new int[INITIAL_CAPACITY];
+    private int[] order = new int[INITIAL_CAPACITY];
+    private int[] tips = new int[INITIAL_CAPACITY];
+    private int candidateCount;
+    private int tipCount;
+    private int thumb;
+
+    /**
+     * Finds the fingertips of a hand that is present and not a fist. The result
+     * is kept for {@link #toDetection()} until the next call.
+     *
+     * @param hand The hand analysis for the current frame
+     * @return The number of accepted fingertips, including the thumb if found
+     */
+    public int detect(HandAnalysis hand) {
+        hull = hand.getHullPoints();
+        int size = hull.size();
+        ensureCapacity(size);
+
+        Point center = hand.getCentroid();
+        double palmRadius = hand.getPalmRadius();
+        double cx = center.x;
+        double cy = center.y;
+        for (int i = 0; i < size; i++) {
+            Point p = hull.get(i);
+            double x = p.x - cx;
+            double y = p.y - cy;
+            px[i] = p.x;
+            py[i] = p.y;
+            dx[i] = x;
+            dy[i] = y;
+            distanceSquared[i] = x * x + y * y;
+        }
+
+        // Filter for potential fingertips. Only count points that are:
+        // 1. Far enough from the center (extended fingers)
+        // 2. Above or not too far below the center (avoid wrist and lower points)
+        // 3. Not at the extreme left/right bottom corners (often false positives)
+        double candidateDistance = palmRadius * 0.8;
+        double candidateDistanceSquared = square(candidateDistance);
+        double maxY = cy + palmRadius * 0.3; // Stricter vertical constraint
+        double cornerLeft = cx - palmRadius * 0.8;
+        double cornerRight = cx + palmRadius * 0.8;
+        candidateCount = 0;
+        for (int i = 0; i < size; i++) {
+            double y = py[i];
+            if (isFarther(distanceSquared[i], candidateDistance, candidateDistanceSquared) && y < maxY
+                    && !(y > cy && (px[i] < cornerLeft || px[i] > cornerRight))) {
+                candidates[candidateCount++] = i;
+                // Sort key, computed once per candidate instead of once per comparison
+                angle[i] = Math.atan2(dy[i], dx[i]);
+            }
+        }
+
+        // Sort candidates by angle around center (clockwise); this ordering helps with
+        // adjacent finger detection. Insertion sort is stable like List.sort and fast
+        // for the handful of candidates a hull yields.
+        System.arraycopy(candidates, 0, order, 0, candidateCount);
+        for (int i = 1; i < candidateCount; i++) {
+            int index = order[i];
+            double key = angle[index];
+            int j = i - 1;
+            while (j >= 0 && Double.compare(angle[order[j]], key) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = index;
+        }
+
+        // Filter candidates that are too close together. The threshold relaxes
+        // once three fingers have been accepted, for the 4th finger.
+        double spacing = palmRadius * 0.4;
+        double relaxedSpacing = palmRadius * 0.35;
+        tipCount = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            int index = order[i];
+            double threshold = tipCount >= 3 ? relaxedSpacing : spacing;
+            if (!isTooClose(index, threshold, square(threshold))) {
+                tips[tipCount++] = index;
+            }
+        }
+
+        // Handle thumb separately - look for points to the side that are
+        // more horizontal than vertical from the center
+        double thumbDistance = palmRadius * 0.7;
+        double thumbDistanceSquared = square(thumbDistance);
+        double spacingSquared = square(spacing);
+        thumb = -1;
+        for (int i = 0; i < size; i++) {
+            if (Math.abs(dx[i]) > Math.abs(dy[i]) * 1.2
+                    && isFarther(distanceSquared[i], thumbDistance, thumbDistanceSquared)
+                    && !isTooClose(i, spacing, spacingSquared)) {
+                tips[tipCount++] = i;
+                thumb = i;
+                break;
+            }
+        }
+        return tipCount;
+    }
+
+    /**
+     * Builds the detection result of the last {@link #detect(HandAnalysis)} call.
+     * The points are the hand's own hull points; none are copied.
+     *
+     * @return The detected candidates, fingertips and thumb
+     */
+    public FingerDetection toDetection() {
+        List<Point> candidatePoints = new ArrayList<>(candidateCount);
+        for (int i = 0; i < candidateCount; i++) {
+            candidatePoints.add(hull.get(candidates[i]));
+        }
+        List<Point> tipPoints = new ArrayList<>(tipCount);
+        for (int i = 0; i < tipCount; i++) {
+            tipPoints.add(hull.get(tips[i]));
+        }
+        return new FingerDetection(false, candidatePoints, tipPoints, thumb >= 0 ? hull.get(thumb) : null);
+    }
+
+    private boolean isTooClose(int index, double minDistance, double minDistanceSquared) {
+        double x = px[index];
+        double y = py[index];
+        for (int i = 0; i < tipCount; i++) {
+            double ex = px[tips[i]] - x;
+            double ey = py[tips[i]] - y;
+            if (isCloser(ex * ex + ey * ey, minDistance, minDistanceSquared)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensureCapacity(int size) {
+        // The thumb can be added after every candidate has been accepted
+        if (size < tips.length) {
+            return;
+        }
+        int capacity = Math.max(size + 1, tips.length * 2);
+        px = new double[capacity];
+        py = new double[capacity];
+        dx = new double[capacity];
+        dy = new double[capacity];
+        distanceSquared = new double[capacity];
+        angle = new double[capacity];
+        candidates = new int[capacity];
+        order = new int[capacity];
+        tips = new int[capacity];
+    }
+
+    /**
+     * Checks sqrt(distanceSquared) &lt; limit without the square root. Only values within
+     * rounding error of the squared limit take the square root, so the answer is always
+     * the same as comparing the distance itself.
+     */
+    private static boolean isCloser(double distanceSquared, double limit, double limitSquared) {
+        double margin = limitSquared * BOUNDARY_MARGIN;
+        if (distanceSquared < limitSquared - margin) {
+            return true;
+        }
+        if (distanceSquared > limitSquared + margin) {
+            return false;
+        }
+        return Math.sqrt(distanceSquared) < limit;
+    }
+
+    /**
+     * Checks sqrt(distanceSquared) &gt; limit, see {@link #isCloser(double, double, double)}.
+     */
+    private static boolean isFarther(double distanceSquared, double limit, double limitSquared) {
+        double margin = limitSquared * BOUNDARY_MARGIN;
+        if (distanceSquared > limitSquared + margin) {
+            return true;
+        }
+        if (distanceSquared < limitSquared - margin) {
+            return false;
+        }
+        return Math.sqrt(distanceSquared) > limit;
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+}
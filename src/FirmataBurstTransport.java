@@ -0,0 +1,92 @@
+import org.firmata4j.IODevice;
+import org.firmata4j.Pin;
+import org.firmata4j.firmata.FirmataMessageFactory;
+import org.firmata4j.firmata.FirmataPin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Sends the updates of a burst for PWM, servo and analog pins as one serial write
+ * of back-to-back Firmata analog messages, so a frame that changes several devices
+ * pays the per-write cost of the serial link once. Digital outputs share a port
+ * message with their neighbours, so they are still written through their pin, in
+ * their place in the burst.
+ * In firmata4j, {@link FirmataPin#setValue(long)} only sends a value that differs
+ * from the one it last recorded, and records it and notifies the pin's listeners
+ * once sent. Values sent here are recorded the same way after the burst is written,
+ * so {@link Pin#getValue()}, pin listeners and later writes through the pin see them.
+ * If the recording method cannot be reached, Firmata pins are written one by one.
+ */
+public final class FirmataBurstTransport implements BoardTransport {
+    // An analog message is three bytes; pins above 15 use a longer extended message
+    private static final int ANALOG_MESSAGE_BYTES = 3;
+    // FirmataPin.updateValue(long), which is package-private
+    private static final Method UPDATE_VALUE = findUpdateValue();
+
+    @Override
+    public void send(IODevice board, List<PinUpdate> updates) throws IOException {
+        ByteArrayOutputStream burst = new ByteArrayOutputStream(updates.size() * ANALOG_MESSAGE_BYTES);
+        int firstPacked = 0;
+        for (int i = 0; i < updates.size(); i++) {
+            PinUpdate update = updates.get(i);
+            Pin pin = update.getController().getPin();
+            if (isPackable(pin)) {
+                byte[] message = FirmataMessageFactory.setAnalogPinValue(pin.getIndex(), update.getValue());
+                burst.write(message, 0, message.length);
+            } else {
+                flush(board, burst, updates, firstPacked, i);
+                update.getController().setValue(update.getValue());
+                firstPacked = i + 1;
+            }
+        }
+        flush(board, burst, updates, firstPacked, updates.size());
+    }
+
+    private static boolean isPackable(Pin pin) {
+        Pin.Mode mode = pin.getMode();
+        if (mode != Pin.Mode.PWM && mode != Pin.Mode.SERVO && mode != Pin.Mode.ANALOG) {
+            return false;
+        }
+        return !(pin instanceof FirmataPin) || UPDATE_VALUE != null;
+    }
+
+    /**
+     * Sends the packed messages, then records the values of updates[from, to) on their pins
+     */
+    private static void flush(IODevice board, ByteArrayOutputStream burst, List<PinUpdate> updates,
+                              int from, int to) throws IOException {
+        if (burst.size() == 0) {
+            return;
+        }
+        board.sendMessage(burst.toByteArray());
+        burst.reset();
+        for (int i = from; i < to; i++) {
+            PinUpdate update = updates.get(i);
+            Pin pin = update.getController().getPin();
+            if (pin instanceof FirmataPin) {
+                try {
+                    UPDATE_VALUE.invoke(pin, (long) update.getValue());
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot record the value of pin " + pin.getIndex(), e);
+                } catch (InvocationTargetException e) {
+                    throw new IOException("Cannot record the value of pin " + pin.getIndex(), e.getCause());
+                }
+            }
+        }
+    }
+
+    private static Method findUpdateValue() {
+        try {
+            Method method = FirmataPin.class.getDeclaredMethod("updateValue", long.class);
+            method.setAccessible(true);
+            return method;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Firmata pin values cannot be recorded, writing them one by one: " + e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+import org.opencv.core.Rect;
+
+/**
+ * Read-only, drawing-free description of what the pipeline observed and decided
+ * for one frame. A renderer can turn it into overlays when a display is attached;
+ * headless installations simply ignore it.
+ * Its regions and hand analyses are shared, not copied, and must not be modified.
+ */
+public final class FrameObservation {
+    private final int mode;
+    private final Rect handRegion;
+    private final Rect referenceRegion;
+    private final HandAnalysis hand;
+    private final FingerDetection fingers;
+    private final double heightPercentage;
+    private final int collectedFrames;
+    private final int framesToCollect;
+    private final int selectedDeviceIndex;
+    private final int deviceValue;
+    private final Rect controlRegion;
+    private final HandAnalysis controlHand;
+
+    /**
+     * Creates a new observation.
+     *
+     * @param mode The mode the frame was processed in
+     * @param handRegion The region of the frame that was analysed
+     * @param referenceRegion The fixed region the height is measured against
+     * @param hand The hand analysis for the region
+     * @param fingers The fingertip detection for the hand
+     * @param heightPercentage The index finger height as a percentage of the region
+     * @param collectedFrames Frames collected so far for a gesture, or -1 if not collecting
+     * @param framesToCollect Frames needed before a gesture is decided
+     * @param selectedDeviceIndex The selected device after this frame, or -1
+     * @param deviceValue The value sent to the selected device this frame, or -1
+     */
+    public FrameObservation(int mode, Rect handRegion, Rect referenceRegion,
+                            HandAnalysis hand, FingerDetection fingers,
+                            double heightPercentage, int collectedFrames, int framesToCollect,
+                            int selectedDeviceIndex, int deviceValue) {
+        this(mode, handRegion, referenceRegion, hand, fingers, heightPercentage, collectedFrames,
+                framesToCollect, selectedDeviceIndex, deviceValue, null, null);
+    }
+
+    /**
+     * Creates a new two-hand observation, in which the hand region is the selection
+     * region and the height is measured in a separate control region.
+     *
+     * @param mode The mode the frame was processed in
+     * @param handRegion The selection region
+     * @param referenceRegion The selection region
+     * @param hand The hand analysis for the selection region
+     * @param fingers The fingertip detection for the selection hand
+     * @param heightPercentage The index finger height as a percentage of the control region
+     * @param collectedFrames Frames collected so far for a gesture, or -1 if not collecting
+     * @param framesToCollect Frames needed before a gesture is decided
+     * @param selectedDeviceIndex The selected device after this frame, or -1
+     * @param deviceValue The value sent to the selected device this frame, or -1
+     * @param controlRegion The region the control hand was analysed in, or null with one hand
+     * @param controlHand The hand analysis for the control region, or null with one hand
+     */
+    public FrameObservation(int mode, Rect handRegion, Rect referenceRegion,
+                            HandAnalysis hand, FingerDetection fingers,
+                            double heightPercentage, int collectedFrames, int framesToCollect,
+                            int selectedDeviceIndex, int deviceValue,
+                            Rect controlRegion, HandAnalysis controlHand) {
+        this.mode = mode;
+        this.handRegion = handRegion;
+        this.referenceRegion = referenceRegion;
+        this.hand = hand;
+        this.fingers = fingers;
+        this.heightPercentage = heightPercentage;
+        this.collectedFrames = collectedFrames;
+        this.framesToCollect = framesToCollect;
+        this.selectedDeviceIndex = selectedDeviceIndex;
+        this.deviceValue = deviceValue;
+        this.controlRegion = controlRegion;
+        this.controlHand = controlHand;
+    }
+
+    /**
+     * Gets the mode the frame was processed in.
+     *
+     * @return GestureHandler.MODE_FINGER_COUNTING, MODE_DISTANCE_MEASUREMENT or MODE_TWO_HAND
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * Gets the region of the frame that was analysed.
+     *
+     * @return The hand region
+     */
+    public Rect getHandRegion() {
+        return handRegion;
+    }
+
+    /**
+     * Gets the fixed region the index finger height is measured against.
+     * Equal to the hand region unless the hand is being tracked.
+     *
+     * @return The reference region
+     */
+    public Rect getReferenceRegion() {
+        return referenceRegion;
+    }
+
+    /**
+     * Gets the hand analysis for the region.
+     *
+     * @return The hand analysis
+     */
+    public HandAnalysis getHand() {
+        return hand;
+    }
+
+    /**
+     * Gets the fingertip detection for the hand.
+     *
+     * @return The finger detection
+     */
+    public FingerDetection getFingers() {
+        return fingers;
+    }
+
+    /**
+     * Gets the detected number of fingers.
+     *
+     * @return The finger count (0-5)
+     */
+    public int getFingerCount() {
+        return fingers.getFingerCount();
+    }
+
+    /**
+     * Gets the index finger height as a percentage of the region height.
+     *
+     * @return The height percentage
+     */
+    public double getHeightPercentage() {
+        return heightPercentage;
+    }
+
+    /**
+     * Checks whether frames were being collected for a gesture decision.
+     *
+     * @return true while a gesture is being collected
+     */
+    public boolean isCollecting() {
+        return collectedFrames >= 0;
+    }
+
+    /**
+     * Gets the number of frames collected so far for the current gesture.
+     *
+     * @return The collected frame count, or -1 if not collecting
+     */
+    public int getCollectedFrames() {
+        return collectedFrames;
+    }
+
+    /**
+     * Gets the number of frames needed before a gesture is decided.
+     *
+     * @return The frames to collect
+     */
+    public int getFramesToCollect() {
+        return framesToCollect;
+    }
+
+    /**
+     * Gets the selected device after this frame.
+     *
+     * @return The selected device index, or -1 if none selected
+     */
+    public int getSelectedDeviceIndex() {
+        return selectedDeviceIndex;
+    }
+
+    /**
+     * Gets the value sent to the selected device this frame.
+     *
+     * @return The device value, or -1 if no device was controlled
+     */
+    public int getDeviceValue() {
+        return deviceValue;
+    }
+
+    /**
+     * Gets the region the control hand was analysed in.
+     *
+     * @return The control region, or null unless in two-hand mode
+     */
+    public Rect getControlRegion() {
+        return controlRegion;
+    }
+
+    /**
+     * Gets the hand analysis for the control region.
+     *
+     * @return The control hand, or null unless in two-hand mode
+     */
+    public HandAnalysis getControlHand() {
+        return controlHand;
+    }
+}
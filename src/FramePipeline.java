@@ -0,0 +1,332 @@
+import org.opencv.core.Mat;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs capture, analysis and display on three separate threads connected by
+ * latest-frame-wins queues, so throughput is limited by the slowest stage
+ * instead of the sum of all stages.
+ * In headless mode there is no display stage: nothing is drawn and HighGui is never used.
+ * While the gesture handler's motion gate is idle, a live camera is read at the idle rate.
+ * Pressing 's' in the window switches to the next segmentation strategy, and 'r'
+ * does what the reset button does.
+ */
+public class FramePipeline {
+    private static final int QUEUE_CAPACITY = 1;
+    private static final long POLL_TIMEOUT_MS = 100;
+    private static final long STATS_INTERVAL_NS = TimeUnit.SECONDS.toNanos(5);
+    private static final int ESC_KEY = 27;
+    private static final int SEGMENTATION_KEY = 's';
+    private static final int RESET_KEY = 'r';
+
+    private final FrameSource frameSource;
+    private final DisplayWindow display;
+    private final GestureProcessor gestureProcessor;
+    private final HandGestureUI ui;
+    private final GestureHandler gestureHandler;
+    private final DeviceManager deviceManager;
+    private final boolean headless;
+    private final AtomicLong totalAnalysedFrames;
+
+    private final FrameQueue<CapturedFrame> analysisQueue;
+    private final FrameQueue<RenderJob> displayQueue;
+    private final AtomicLong capturedFrames;
+    private final AtomicLong analysedFrames;
+    private final AtomicLong displayedFrames;
+    private long nextTraceId;
+
+    private volatile boolean running;
+    private volatile boolean sourceFinished;
+    private long startTime;
+    private long endTime;
+    private Thread captureThread;
+    private Thread analysisThread;
+    private Thread displayThread;
+    private long lastReport;
+
+    /**
+     * A frame waiting to be drawn and shown, together with what was observed in it.
+     */
+    private static class RenderJob {
+        final Mat frame;
+        final FrameObservation observation;
+
+        RenderJob(Mat frame, FrameObservation observation) {
+            this.frame = frame;
+            this.observation = observation;
+        }
+    }
+
+    /**
+     * Creates a new pipeline around the existing application components.
+     *
+     * @param frameSource The camera or recording to capture frames from
+     * @param display The window to show frames in, or null to run headless
+     * @param gestureProcessor The gesture processor
+     * @param ui The UI component used to draw overlays (unused when headless)
+     * @param gestureHandler The gesture handler
+     * @param deviceManager The device manager
+     */
+    public FramePipeline(FrameSource frameSource, DisplayWindow display,
+                         GestureProcessor gestureProcessor, HandGestureUI ui,
+                         GestureHandler gestureHandler, DeviceManager deviceManager) {
+        this.frameSource = frameSource;
+        this.display = display;
+        this.gestureProcessor = gestureProcessor;
+        this.ui = ui;
+        this.gestureHandler = gestureHandler;
+        this.deviceManager = deviceManager;
+        this.headless = display == null;
+        this.analysisQueue = new FrameQueue<>("analysis", QUEUE_CAPACITY, CapturedFrame::release);
+        this.displayQueue = new FrameQueue<>("display", QUEUE_CAPACITY, job -> job.frame.release());
+        this.capturedFrames = new AtomicLong();
+        this.analysedFrames = new AtomicLong();
+        this.displayedFrames = new AtomicLong();
+        this.totalAnalysedFrames = new AtomicLong();
+    }
+
+    /**
+     * Starts the capture, analysis and (unless headless) display threads.
+     */
+    public void start() {
+        running = true;
+        startTime = System.nanoTime();
+        lastReport = startTime;
+        captureThread = new Thread(this::runCapture, "capture");
+        analysisThread = new Thread(this::runAnalysis, "analysis");
+        captureThread.start();
+        analysisThread.start();
+        if (!headless) {
+            displayThread = new Thread(this::runDisplay, "display");
+            displayThread.start();
+        }
+    }
+
+    /**
+     * Asks all stages to finish. Returns immediately.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Waits until all stages have finished and releases any frames still queued.
+     *
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public void awaitTermination() throws InterruptedException {
+        captureThread.join();
+        analysisThread.join();
+        if (displayThread != null) {
+            displayThread.join();
+        }
+        analysisQueue.clear();
+        displayQueue.clear();
+        endTime = System.nanoTime();
+    }
+
+    /**
+     * Summarises the whole run: frames analysed, elapsed time and overall throughput.
+     * Call after {@link #awaitTermination()}.
+     *
+     * @return The throughput line
+     */
+    public String getThroughputSummary() {
+        long frames = totalAnalysedFrames.get();
+        double seconds = (endTime - startTime) / 1e9;
+        return String.format("Analysed %d frames in %.2f s (%.1f fps), %d dropped",
+                frames, seconds, frames / seconds,
+                analysisQueue.getDroppedCount() + displayQueue.getDroppedCount());
+    }
+
+    /**
+     * Reads frames from the source as fast as it delivers them.
+     * Real-time sources drop stale frames; recordings wait for the analysis stage
+     * so every frame is processed.
+     * Each frame gets a trace ID and capture timestamp that follow it to the pin write.
+     */
+    private void runCapture() {
+        try {
+            while (running) {
+                long frameStart = System.nanoTime();
+                TraceEvents.FrameCapture event = new TraceEvents.FrameCapture();
+                event.begin();
+                Mat image = frameSource.readFrame();
+                if (image == null) {
+                    // End of the recording: let analysis drain the queue, then stop
+                    sourceFinished = true;
+                    break;
+                }
+                long traceId = nextTraceId++;
+                CapturedFrame frame = new CapturedFrame(image, new FrameTrace(traceId, System.nanoTime()));
+                event.traceId = traceId;
+                event.commit();
+                capturedFrames.incrementAndGet();
+                if (frameSource.isRealTime()) {
+                    analysisQueue.offer(frame);
+                } else {
+                    while (!analysisQueue.offer(frame, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        if (!running) {
+                            frame.release();
+                            return;
+                        }
+                    }
+                }
+                throttleWhileIdle(frameStart);
+            }
+        } catch (Exception e) {
+            fail("capture", e);
+        }
+    }
+
+    /**
+     * While the motion gate is idle, waits out the rest of the idle frame interval so
+     * a live camera is read at the idle rate. Recordings are never slowed down.
+     *
+     * @param frameStart The time the current frame's capture started
+     */
+    private void throttleWhileIdle(long frameStart) throws InterruptedException {
+        MotionGate motionGate = gestureHandler.getMotionGate();
+        if (motionGate == null || !frameSource.isRealTime() || !motionGate.isIdle()) {
+            return;
+        }
+        long wait = motionGate.getIdleFrameIntervalNanos() - (System.nanoTime() - frameStart);
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Runs gesture analysis and device control on the freshest captured frame.
+     * Frames are handed to the display stage for drawing, or released when headless.
+     */
+    private void runAnalysis() {
+        try {
+            while (running) {
+                CapturedFrame frame = analysisQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    if (sourceFinished && analysisQueue.depth() == 0) {
+                        stop();
+                    }
+                    continue;
+                }
+
+                // Process the frame based on the current mode
+                FrameObservation observation = gestureHandler.processFrame(frame,
+                        frameSource.getHandRegion(), gestureProcessor, deviceManager);
+                analysedFrames.incrementAndGet();
+                totalAnalysedFrames.incrementAndGet();
+
+                if (headless) {
+                    frame.release();
+                    reportStatsIfDue();
+                } else {
+                    displayQueue.offer(new RenderJob(frame.getImage(), observation));
+                }
+            }
+        } catch (Exception e) {
+            fail("analysis", e);
+        }
+    }
+
+    /**
+     * Draws and shows the latest analysed frame, handles key presses and prints statistics.
+     */
+    private void runDisplay() {
+        try {
+            while (running) {
+                RenderJob job = displayQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (job != null) {
+                    ui.render(job.frame, job.observation, deviceManager);
+                    display.showFrame(job.frame);
+                    job.frame.release();
+                    displayedFrames.incrementAndGet();
+                }
+
+                // Check for key press
+                int key = display.waitKey(1);
+                if (key == ESC_KEY) {
+                    stop();
+                } else if (key == SEGMENTATION_KEY) {
+                    switchSegmentation();
+                } else if (key == RESET_KEY) {
+                    // Applied by the analysis thread before its next frame
+                    gestureHandler.postCommand(GestureCommand.RESET);
+                }
+
+                reportStatsIfDue();
+            }
+        } catch (Exception e) {
+            fail("display", e);
+        }
+    }
+
+    /**
+     * Hands the next strategy in {@link SegmentationStrategy#NAMES} to the processor,
+     * which takes it over between frames.
+     */
+    private void switchSegmentation() {
+        String current = gestureProcessor.getSegmentationStrategy().getName();
+        int index = Arrays.asList(SegmentationStrategy.NAMES).indexOf(current);
+        String next = SegmentationStrategy.NAMES[(index + 1) % SegmentationStrategy.NAMES.length];
+        gestureProcessor.setSegmentationStrategy(SegmentationStrategy.create(next));
+        System.out.println("Segmentation: " + next);
+    }
+
+    /**
+     * Prints the statistics line if the report interval has passed.
+     * Only called from the last stage of the pipeline.
+     */
+    private void reportStatsIfDue() {
+        long now = System.nanoTime();
+        if (now - lastReport >= STATS_INTERVAL_NS) {
+            System.out.println(takeStatsSummary(now - lastReport));
+            lastReport = now;
+        }
+    }
+
+    /**
+     * Builds a one-line summary of stage throughput, queue depths and dropped frames,
+     * and restarts the per-stage frame counters.
+     *
+     * @param elapsedNanos The time since the previous summary, used for the fps figures
+     * @return The statistics line
+     */
+    private String takeStatsSummary(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long captured = capturedFrames.getAndSet(0);
+        long analysed = analysedFrames.getAndSet(0);
+        long displayed = displayedFrames.getAndSet(0);
+        return String.format("Pipeline fps: capture %.1f, analysis %.1f, display %.1f | "
+                        + "%s queue depth %d dropped %d | %s queue depth %d dropped %d",
+                captured / seconds, analysed / seconds, displayed / seconds,
+                analysisQueue.getName(), analysisQueue.depth(), analysisQueue.getDroppedCount(),
+                displayQueue.getName(), displayQueue.depth(), displayQueue.getDroppedCount());
+    }
+
+    /**
+     * Gets the queue between capture and analysis.
+     *
+     * @return The analysis queue
+     */
+    public FrameQueue<CapturedFrame> getAnalysisQueue() {
+        return analysisQueue;
+    }
+
+    /**
+     * Gets the queue between analysis and display.
+     *
+     * @return The display queue
+     */
+    public FrameQueue<?> getDisplayQueue() {
+        return displayQueue;
+    }
+
+    private void fail(String stage, Exception e) {
+        System.err.println("Error in " + stage + " stage: " + e.getMessage());
+        e.printStackTrace();
+        stop();
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded hand-off queue between two pipeline stages (one producer, one consumer).
+ * When the queue is full the oldest item is dropped so the consumer always
+ * receives the freshest frame ("latest frame wins").
+ *
+ * @param <T> The type of item passed between the stages
+ */
+public class FrameQueue<T> {
+    private final String name;
+    private final ArrayBlockingQueue<T> queue;
+    private final Consumer<T> dropHandler;
+    private final AtomicLong offered;
+    private final AtomicLong dropped;
+    private final MetricsRegistry.Counter droppedMetric;
+
+    /**
+     * Creates a new queue.
+     *
+     * @param name A short name used in statistics output
+     * @param capacity The maximum number of items waiting in the queue
+     * @param dropHandler Called with each item that is dropped (e.g. to release a Mat)
+     */
+    public FrameQueue(String name, int capacity, Consumer<T> dropHandler) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dropHandler = dropHandler;
+        this.offered = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.droppedMetric = Metrics.framesDropped(name);
+    }
+
+    /**
+     * Adds an item, dropping the oldest waiting items if the queue is full.
+     * Never blocks the producer.
+     *
+     * @param item The item to add
+     */
+    public void offer(T item) {
+        offered.incrementAndGet();
+        while (!queue.offer(item)) {
+            T stale = queue.poll();
+            if (stale != null) {
+                dropped.incrementAndGet();
+                droppedMetric.increment();
+                dropHandler.accept(stale);
+            }
+        }
+    }
+
+    /**
+     * Adds an item, waiting up to the given time for space if the queue is full.
+     * Used when every item must be processed, such as when replaying a recording
+     * unthrottled.
+     *
+     * @param item The item to add
+     * @param timeout How long to wait for space
+     * @param unit The unit of the timeout
+     * @return true if the item was added, false if the queue stayed full
+     * @throws InterruptedException If the waiting thread is interrupted
+     */
+    public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+        if (queue.offer(item, timeout, unit)) {
+            offered.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Waits up to the given time for the next item.
+     *
+     * @param timeout How long to wait
+     * @param unit The unit of the timeout
+     * @return The next item, or null if none arrived in time
+     * @throws InterruptedException If the waiting thread is interrupted
+     */
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    /**
+     * Removes every waiting item, passing each to the drop handler.
+     */
+    public void clear() {
+        T stale;
+        while ((stale = queue.poll()) != null) {
+            dropHandler.accept(stale);
+        }
+    }
+
+    /**
+     * Gets the number of items currently waiting.
+     *
+     * @return The queue depth
+     */
+    public int depth() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the total number of items offered to this queue.
+     *
+     * @return The offered count
+     */
+    public long getOfferedCount() {
+        return offered.get();
+    }
+
+    /**
+     * Gets the number of items dropped because the consumer fell behind.
+     *
+     * @return The dropped count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the name of this queue.
+     *
+     * @return The queue name
+     */
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,71 @@
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.io.File;
+
+/**
+ * A source of video frames for the gesture pipeline.
+ * Implemented by the live camera and by replay sources that read recorded
+ * video files or image sequences, so the pipeline can run without a camera.
+ */
+public interface FrameSource {
+    /**
+     * Reads the next frame.
+     *
+     * @return A new Mat the caller owns, or null once the source is exhausted
+     */
+    Mat readFrame();
+
+    /**
+     * Gets the rectangular region used for hand detection.
+     *
+     * @return A Rect object representing the hand detection region
+     */
+    Rect getHandRegion();
+
+    /**
+     * Checks whether frames arrive in real time. Real-time sources keep producing
+     * whether or not the pipeline keeps up, so stale frames are dropped; other
+     * sources wait for the pipeline so every frame is processed.
+     *
+     * @return true for a real-time source
+     */
+    boolean isRealTime();
+
+    /**
+     * Releases all resources used by this source.
+     */
+    void release();
+
+    /**
+     * Defines the default hand detection region (center-right portion of the frame).
+     *
+     * @param frameWidth The width of the frame
+     * @param frameHeight The height of the frame
+     * @return The hand detection region
+     */
+    static Rect defaultHandRegion(int frameWidth, int frameHeight) {
+        int roiWidth = frameWidth / 3;
+        int roiHeight = frameHeight / 2;
+        int roiX = frameWidth / 2;
+        int roiY = frameHeight / 4;
+        return new Rect(roiX, roiY, roiWidth, roiHeight);
+    }
+
+    /**
+     * Opens a recorded source: a directory is read as an image sequence,
+     * anything else as a video file.
+     *
+     * @param location The video file or image directory
+     * @param realTime true to replay at the recorded frame rate, false to replay
+     *                 as fast as the pipeline consumes frames
+     * @return The opened source
+     */
+    static FrameSource open(String location, boolean realTime) {
+        File file = new File(location);
+        if (file.isDirectory()) {
+            return new ImageSequenceFrameSource(file, ImageSequenceFrameSource.DEFAULT_FPS, realTime);
+        }
+        return new VideoFileFrameSource(location, realTime);
+    }
+}
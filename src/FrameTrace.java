@@ -0,0 +1,74 @@
+/**
+ * Identifies one captured frame as it moves through the pipeline, from the
+ * camera read to the resulting pin write. Used to correlate the Flight Recorder
+ * events of each stage.
+ */
+public final class FrameTrace {
+    /** Trace used for work that did not come from a frame, such as a button press. */
+    public static final FrameTrace NONE = new FrameTrace(-1, 0);
+    private static final long LIVE = -1;
+
+    private final long traceId;
+    private final long captureTimeNanos;
+    private final long replayedLatencyNanos;
+
+    /**
+     * Creates a trace for a captured frame.
+     *
+     * @param traceId A number unique to this frame
+     * @param captureTimeNanos The System.nanoTime() at which the frame was captured
+     */
+    public FrameTrace(long traceId, long captureTimeNanos) {
+        this(traceId, captureTimeNanos, LIVE);
+    }
+
+    private FrameTrace(long traceId, long captureTimeNanos, long replayedLatencyNanos) {
+        this.traceId = traceId;
+        this.captureTimeNanos = captureTimeNanos;
+        this.replayedLatencyNanos = replayedLatencyNanos;
+    }
+
+    /**
+     * Creates the trace of a frame replayed from a {@link SessionLog}. Its time since
+     * capture is the latency measured when the frame was recorded, so anything that
+     * depends on the latency decides as it did then, however fast the replay runs.
+     *
+     * @param traceId The recorded trace ID
+     * @param captureTimeNanos The recorded capture time
+     * @param latencyNanos The recorded time since capture
+     * @return The trace
+     */
+    public static FrameTrace replayed(long traceId, long captureTimeNanos, long latencyNanos) {
+        return new FrameTrace(traceId, captureTimeNanos, latencyNanos);
+    }
+
+    /**
+     * Gets the trace ID of the frame.
+     *
+     * @return The trace ID, or -1 for work not caused by a frame
+     */
+    public long getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * Gets the time the frame was captured.
+     *
+     * @return The capture time in System.nanoTime() units
+     */
+    public long getCaptureTimeNanos() {
+        return captureTimeNanos;
+    }
+
+    /**
+     * Gets the time elapsed since the frame was captured.
+     *
+     * @return The elapsed nanoseconds, or 0 for work not caused by a frame
+     */
+    public long nanosSinceCapture() {
+        if (traceId < 0) {
+            return 0;
+        }
+        return replayedLatencyNanos != LIVE ? replayedLatencyNanos : System.nanoTime() - captureTimeNanos;
+    }
+}
@@ -0,0 +1,21 @@
+import java.io.IOException;
+
+/**
+ * An input from outside the frame loop, such as a button press, a key or a network
+ * request. Commands are posted to a {@link GestureHandler} from any thread and applied
+ * by the thread that processes frames, between two frames, so they never race with
+ * the gesture state and the posting thread never waits for vision work.
+ */
+public interface GestureCommand {
+    /** The reset button: resets the controlled device and returns to device selection. */
+    GestureCommand RESET = GestureHandler::handleResetButtonPress;
+
+    /**
+     * Applies the command. Only called by the thread that processes frames.
+     *
+     * @param handler The handler whose state the command changes
+     * @param deviceManager The devices of the handler
+     * @throws IOException If there's an error controlling devices
+     */
+    void apply(GestureHandler handler, DeviceManager deviceManager) throws IOException;
+}
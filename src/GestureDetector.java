@@ -1,22 +1,50 @@
-import org.opencv.core.*;
-
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles finger detection and analysis, including tracking detection consistency
  * across frames and determining user gestures.
+ * Finger counts are collected over a time window rather than a fixed number of
+ * frames. A sequential probability ratio test decides as soon as the evidence is
+ * strong enough: a clean gesture is selected well before the window ends, and a
+ * hopeless one is abandoned early. Gestures still undecided when the window ends
+ * fall back to the fixed 80% rule.
  */
 public class GestureDetector {
     // Constants for gesture recognition
-    private static final int FRAMES_TO_COLLECT = 50;
+    // 50 frames at 30 fps: the 51st, 1667 ms after the first, ends the window. Half a
+    // frame shorter so timestamp jitter cannot let it in and raise the bar of the 80% rule
+    private static final long WINDOW_MS = 1650;
+    // The window at up to 150 fps; faster sources, such as a replay with --fast, grow it
+    private static final int WINDOW_CAPACITY = 256;
+    private static final int MAX_FINGERS = 5;
+    private static final int DEFAULT_FRAMES_TO_COLLECT = 50;
     private static final double DETECTION_THRESHOLD = 0.8; // 80%
+
+    // Sequential test: a clean gesture agrees on 90% of frames, a failing one on 70%.
+    // The false-accept rate is shared between the candidate counts. The false-reject
+    // rate is lower, so a gesture near the 80% rule is seldom given up on before the
+    // window ends; with 1% it was, and fewer such gestures were selected than with
+    // the fixed window alone
+    private static final double CLEAN_RATE = 0.9;
+    private static final double FAILING_RATE = 0.7;
+    private static final double FALSE_ACCEPT_RATE = 0.01;
+    private static final double FALSE_REJECT_RATE = 0.002;
+    private static final double HIT_EVIDENCE = Math.log(CLEAN_RATE / FAILING_RATE);
+    private static final double MISS_EVIDENCE = Math.log((1 - CLEAN_RATE) / (1 - FAILING_RATE));
+    private static final double REJECT_BOUND = Math.log(FALSE_REJECT_RATE / (1 - FALSE_ACCEPT_RATE));
+
+    // Why a collection ended
+    private static final int DECISION_NONE = 0;
+    private static final int DECISION_ACCEPTED = 1;
+    private static final int DECISION_REJECTED = 2;
+    private static final int DECISION_WINDOW_COMPLETE = 3;
     
     // Tracking state
     private boolean isCollectingFrames;
-    private int framesCollected;
-    private List<Integer> detectedFingers;
+    private long collectionStart;
+    private final FingerCountWindow detectedFingers;
+    private int decision;
+    private int leadingCount;
     private int selectedDeviceIndex;
     
     /**
@@ -24,61 +52,78 @@ public class GestureDetector {
      */
     public GestureDetector() {
         isCollectingFrames = false;
-        framesCollected = 0;
-        detectedFingers = new ArrayList<>();
+        detectedFingers = new FingerCountWindow(TimeUnit.MILLISECONDS.toNanos(WINDOW_MS),
+                WINDOW_CAPACITY, MAX_FINGERS);
+        decision = DECISION_NONE;
         selectedDeviceIndex = -1;
     }
     
+    /**
+     * Processes finger detection from a single frame, timed by the system clock.
+     *
+     * @param fingerCount The detected finger count from the current frame
+     * @param deviceManager The device manager to get device count
+     * @return true if a decision has been reached and analysis is needed
+     */
+    public boolean processFingerDetection(int fingerCount, DeviceManager deviceManager) {
+        return processFingerDetection(fingerCount, System.nanoTime(), deviceManager);
+    }
+    
     /**
      * Processes finger detection from a single frame.
      *
-     * @param frame The frame to display status information on
      * @param fingerCount The detected finger count from the current frame
-     * @param ui The UI helper to display information
+     * @param frameTimeNanos When the frame was captured (System.nanoTime() units)
      * @param deviceManager The device manager to get device count
-     * @return true if collection is complete and analysis is needed
+     * @return true if a decision has been reached and analysis is needed
      */
-    public boolean processFingerDetection(Mat frame, int fingerCount, HandGestureUI ui, 
-                                        DeviceManager deviceManager) {
+    public boolean processFingerDetection(int fingerCount, long frameTimeNanos, DeviceManager deviceManager) {
+        int deviceCount = Math.min(deviceManager.getControllerCount(), MAX_FINGERS);
+
         // Only process meaningful finger counts (1-5)
-        if (fingerCount >= 1 && fingerCount <= deviceManager.getControllerCount()) {
-            if (!isCollectingFrames) {
-                // Start collecting frames for this detection
-                isCollectingFrames = true;
-                framesCollected = 0;
-                detectedFingers.clear();
-                System.out.println("Started collecting frames for finger count: " + fingerCount);
-            }
-            
-            // Add this detection to our collection
-            detectedFingers.add(fingerCount);
-            framesCollected++;
-        } else if (isCollectingFrames) {
-            // Add zero as placeholder if no valid fingers detected
-            detectedFingers.add(0);
-            framesCollected++;
+        boolean valid = fingerCount >= 1 && fingerCount <= deviceCount;
+        if (valid && !isCollectingFrames) {
+            // Start collecting frames for this detection
+            isCollectingFrames = true;
+            collectionStart = frameTimeNanos;
+            detectedFingers.clear();
+            System.out.println("Started collecting frames for finger count: " + fingerCount);
         }
-        
-        if (isCollectingFrames) {
-            // Calculate position for the collection progress text
-            int deviceCount = deviceManager.getControllerCount();
-            int yPosition = 90 + 25 + (deviceCount * 25) + 35;
-            
-            // Display collection progress
-            ui.displayText(frame, 
-                          "Collecting: " + framesCollected + "/" + FRAMES_TO_COLLECT, 
-                          new Point(30, yPosition), 
-                          new Scalar(255, 255, 0), 
-                          0.7);
+        if (!isCollectingFrames) {
+            return false; // No analysis needed yet
         }
-        
-        // Check if we've collected enough frames
-        if (isCollectingFrames && framesCollected >= FRAMES_TO_COLLECT) {
+        if (frameTimeNanos - collectionStart >= detectedFingers.getWindowNanos()) {
+            // This frame is past the window: decide on the frames inside it
+            decision = DECISION_WINDOW_COMPLETE;
             isCollectingFrames = false;
             return true; // Analysis needed
         }
-        
-        return false; // No analysis needed yet
+
+        // Add this detection, with zero as placeholder if no valid fingers detected
+        detectedFingers.add(frameTimeNanos, valid ? fingerCount : 0);
+
+        // Weigh the evidence for the most frequent count
+        leadingCount = 0;
+        int hits = 0;
+        for (int i = 1; i <= deviceCount; i++) {
+            if (detectedFingers.getCount(i) > hits) {
+                hits = detectedFingers.getCount(i);
+                leadingCount = i;
+            }
+        }
+        int misses = detectedFingers.size() - hits;
+        double evidence = hits * HIT_EVIDENCE + misses * MISS_EVIDENCE;
+        double acceptBound = Math.log((1 - FALSE_REJECT_RATE) / (FALSE_ACCEPT_RATE / deviceCount));
+
+        if (evidence >= acceptBound) {
+            decision = DECISION_ACCEPTED;
+        } else if (evidence <= REJECT_BOUND) {
+            decision = DECISION_REJECTED;
+        } else {
+            return false; // No analysis needed yet
+        }
+        isCollectingFrames = false;
+        return true; // Analysis needed
     }
     
     /**
@@ -88,37 +133,28 @@ public class GestureDetector {
      * @return The index of the selected device, or -1 if no consistent detection
      */
     public int analyzeDetectedFingers(DeviceManager deviceManager) {
-        // Count occurrences of each finger count
-        int[] counts = new int[deviceManager.getControllerCount() + 1];
-        for (int fingers : detectedFingers) {
-            if (fingers >= 1 && fingers <= deviceManager.getControllerCount()) {
-                counts[fingers]++;
-            }
-        }
-        
-        // Find the most frequent finger count that meets the threshold
-        int mostFrequent = 0;
-        int maxCount = 0;
-        for (int i = 1; i <= deviceManager.getControllerCount(); i++) {
-            if (counts[i] > maxCount) {
-                maxCount = counts[i];
-                mostFrequent = i;
-            }
-        }
-        
-        // Check if it meets our threshold
-        double detectionRate = (double) maxCount / FRAMES_TO_COLLECT;
-        if (detectionRate >= DETECTION_THRESHOLD && mostFrequent > 0) {
-            System.out.println("Detected finger count " + mostFrequent + 
-                              " with confidence " + (detectionRate * 100) + "%");
+        int frames = detectedFingers.size();
+        double detectionRate = frames == 0 ? 0 : (double) detectedFingers.getCount(leadingCount) / frames;
+        boolean detected = leadingCount > 0 && (decision == DECISION_ACCEPTED
+                || (decision == DECISION_WINDOW_COMPLETE && detectionRate >= DETECTION_THRESHOLD));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(detectedFingers.getSpanNanos());
+        decision = DECISION_NONE;
+        (detected ? Metrics.GESTURES_SELECTED : Metrics.GESTURES_UNDECIDED).increment();
+        Metrics.GESTURE_CONFIDENCE.record(Math.round(detectionRate * 1000));
+
+        if (detected) {
+            System.out.println("Detected finger count " + leadingCount + 
+                              " with confidence " + (detectionRate * 100) + "% after " +
+                              frames + " frames (" + elapsedMs + " ms)");
             
             // Store the selected device index
-            selectedDeviceIndex = mostFrequent - 1; // Convert to 0-based index
+            selectedDeviceIndex = leadingCount - 1; // Convert to 0-based index
             System.out.println("Selected device index: " + selectedDeviceIndex);
             return selectedDeviceIndex;
         } else {
             System.out.println("No consistent finger count detected. Highest was " + 
-                              mostFrequent + " with " + (detectionRate * 100) + "% confidence");
+                              leadingCount + " with " + (detectionRate * 100) + "% confidence after " +
+                              frames + " frames (" + elapsedMs + " ms)");
             return -1; // No consistent detection
         }
     }
@@ -128,11 +164,45 @@ public class GestureDetector {
      */
     public void resetDetectionState() {
         isCollectingFrames = false;
-        framesCollected = 0;
         detectedFingers.clear();
+        decision = DECISION_NONE;
+        leadingCount = 0;
         selectedDeviceIndex = -1;
     }
     
+    /**
+     * Checks whether frames are currently being collected for a gesture.
+     *
+     * @return true while collecting
+     */
+    public boolean isCollectingFrames() {
+        return isCollectingFrames;
+    }
+    
+    /**
+     * Gets the number of frames collected for the current gesture.
+     *
+     * @return The collected frame count
+     */
+    public int getFramesCollected() {
+        return detectedFingers.size();
+    }
+    
+    /**
+     * Gets the number of frames the collection window holds at the current frame rate.
+     * A clean gesture is usually decided well before this many frames.
+     *
+     * @return The expected frames in the window
+     */
+    public int getFramesToCollect() {
+        int frames = detectedFingers.size();
+        long span = detectedFingers.getSpanNanos();
+        if (span <= 0) {
+            return DEFAULT_FRAMES_TO_COLLECT;
+        }
+        return (int) Math.round(detectedFingers.getWindowNanos() * (frames - 1) / (double) span);
+    }
+    
     /**
      * Gets the currently selected device index.
      *
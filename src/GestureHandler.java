@@ -1,19 +1,51 @@
 import org.opencv.core.*;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Centralizes all gesture analysis and processing functionality.
  * Works with GestureDetector to process hand gestures for device control.
+ * The state is only touched by the thread that processes frames; other threads
+ * change it by posting a {@link GestureCommand}.
  */
 public class GestureHandler {
     // Application modes
     public static final int MODE_FINGER_COUNTING = 1;
     public static final int MODE_DISTANCE_MEASUREMENT = 2;
+    // One hand selects a device while the other controls it, see DualRegionAnalyzer
+    public static final int MODE_TWO_HAND = 3;
+    
+    /** The furthest ahead a height is predicted, however slow the pipeline gets. */
+    public static final long MAX_PREDICTION_NANOS = 150_000_000L;
+    /** Filtered heights closer than this, in percent, to the last one sent are not sent. */
+    public static final double HEIGHT_DEADBAND = 1.0;
     
     // Current application state
     private int currentMode;
     private GestureDetector gestureDetector;
+    private HandTracker handTracker;
+    private MotionGate motionGate;
+    private DualRegionAnalyzer dualRegionAnalyzer;
+    // The last analysed frame's result, reused for frames the motion gate skips
+    private Rect lastRegion;
+    private HandAnalysis lastHand;
+    private FingerDetection lastFingers;
+    private double lastPercentage;
+    private HeightFilter[] heightFilters;
+    private double[] sentHeights;
+    private long pipelineLatencyNanos;
+    // Commands posted by other threads, applied by the frame thread between frames
+    private final Queue<GestureCommand> commands;
+    private SessionRecorder recorder;
+    // The capture-to-control latency the height filter used for the current frame
+    private long frameLatencyNanos;
+    // Collects the device values of a frame; open only while a frame is processed
+    private DeviceManager transactionManager;
+    private DeviceManager.Transaction transaction;
+    private boolean frameOpen;
     
     /**
      * Creates a new GestureAnalyzer with default mode.
@@ -21,39 +53,195 @@ public class GestureHandler {
     public GestureHandler() {
         this.currentMode = MODE_FINGER_COUNTING;
         this.gestureDetector = new GestureDetector();
+        this.heightFilters = new HeightFilter[0];
+        this.sentHeights = new double[0];
+        this.commands = new ConcurrentLinkedQueue<>();
+    }
+    
+    /**
+     * Posts a command to be applied before the next frame is processed. Safe to call
+     * from any thread; never blocks.
+     * 
+     * @param command The command to apply
+     */
+    public void postCommand(GestureCommand command) {
+        commands.offer(command);
+    }
+    
+    /**
+     * Gets the number of posted commands not yet applied.
+     * 
+     * @return The number of waiting commands
+     */
+    public int getPendingCommandCount() {
+        return commands.size();
+    }
+    
+    /**
+     * Applies the commands posted since the last frame, in the order they were posted.
+     * A command that fails is reported and does not stop the others.
+     *
+     * @return The number of reset commands applied, for the session recorder
+     */
+    private int applyCommands(DeviceManager deviceManager) {
+        int resets = 0;
+        GestureCommand command;
+        while ((command = commands.poll()) != null) {
+            if (command == GestureCommand.RESET) {
+                resets++;
+            }
+            try {
+                command.apply(this, deviceManager);
+            } catch (IOException e) {
+                System.err.println("Error applying command: " + e.getMessage());
+            }
+        }
+        return resets;
     }
 
     // Logic from AI as it was extracted from OpenCV finger detection logic
     /**
-     * Processes the current frame for gesture analysis.
+     * Processes the current frame for gesture analysis. Nothing is drawn here;
+     * the returned observation can be rendered by {@link HandGestureUI} when a
+     * display is attached. Each stage emits a Flight Recorder event tagged with
+     * the frame's trace ID.
+     * With a {@link HandTracker} set, the region around the tracked hand is analysed
+     * instead of the hand region, and the height is still measured against the hand region.
+     * Segmentation strategies that need a fixed region turn tracking off while they are in use.
+     * With a {@link MotionGate} set, frames in which nothing moved reuse the previous
+     * frame's hand analysis instead of running the skin mask and contour stages.
+     * With a {@link DualRegionAnalyzer} set, the frame is processed in two-hand mode.
+     * Commands posted with {@link #postCommand(GestureCommand)} are applied first.
+     * With a {@link SessionRecorder} set, the regions looked at and the decisions are recorded.
+     * Device values set while the frame is processed, including by commands, are
+     * written together at the end of the frame, one burst per board; if processing
+     * fails, they are discarded.
      * 
-     * @param frame The current video frame
-     * @param cameraManager The camera manager
+     * @param frame The current video frame and its trace
+     * @param handRegion The fixed region of the frame to analyse and measure height against
      * @param gestureProcessor The gesture processor
-     * @param ui The UI component
      * @param deviceManager The device manager
+     * @return What was observed and decided for this frame
      * @throws IOException If there's an error controlling devices
      */
-    public void processFrame(Mat frame, CameraManager cameraManager,
-                            GestureProcessor gestureProcessor, HandGestureUI ui,
-                            DeviceManager deviceManager) throws IOException {
-        // Extract the region of interest
-        Rect handRegion = cameraManager.getHandRegion();
-        Mat roiMat = new Mat(frame, handRegion);
+    public FrameObservation processFrame(CapturedFrame frame, Rect handRegion,
+                                         GestureProcessor gestureProcessor,
+                                         DeviceManager deviceManager) throws IOException {
+        if (transactionManager != deviceManager) {
+            transactionManager = deviceManager;
+            transaction = deviceManager.newTransaction();
+        }
+        FrameObservation observation;
+        frameOpen = true;
+        boolean completed = false;
+        try {
+            observation = analyseFrame(frame, handRegion, gestureProcessor, deviceManager);
+            completed = true;
+        } finally {
+            frameOpen = false;
+            if (!completed) {
+                // Values from a failed frame must not be written with the next frame's
+                transaction.clear();
+            }
+        }
+        transaction.commit();
+        return observation;
+    }
 
-        // Create skin mask
-        Mat skinMask = gestureProcessor.createSkinMask(roiMat);
+    private FrameObservation analyseFrame(CapturedFrame frame, Rect handRegion,
+                                          GestureProcessor gestureProcessor,
+                                          DeviceManager deviceManager) throws IOException {
+        int resets = applyCommands(deviceManager);
+        Metrics.FRAMES.increment();
+        frameLatencyNanos = 0;
+        if (dualRegionAnalyzer != null) {
+            return processTwoHandFrame(frame, handRegion, gestureProcessor, deviceManager);
+        }
+        FrameTrace trace = frame.getTrace();
 
-        if (currentMode == MODE_FINGER_COUNTING) {
-            // Count fingers
-            int fingerCount = gestureProcessor.countFingers(skinMask, roiMat);
-            ui.displayFingerCount(frame, fingerCount);
-            
-            // Display device options when in finger counting mode
-            ui.displayDeviceOptions(frame, deviceManager);
-            
+        // Skip the expensive stages and reuse the last result when the scene has not
+        // changed since the last analysed frame
+        Rect region;
+        Rect searchedRegion = null;
+        HandAnalysis hand;
+        FingerDetection fingers;
+        double percentage;
+        boolean analysed = motionGate == null
+                || motionGate.shouldAnalyse(frame.getImage(), trace.getCaptureTimeNanos());
+        if (analysed) {
+            // Extract the region of interest, following the hand if it is being tracked; a
+            // background model only works on a region that stays put, so it disables tracking
+            boolean tracking = handTracker != null && !gestureProcessor.getSegmentationStrategy().needsFixedRegion();
+            if (tracking && handTracker.isSearchDue()) {
+                // The tracker searches the whole frame for a lost hand
+                searchedRegion = new Rect(0, 0, frame.getImage().cols(), frame.getImage().rows());
+            }
+            region = tracking ? handTracker.locate(frame.getImage(), handRegion, gestureProcessor) : handRegion;
+            Mat roiMat = new Mat(frame.getImage(), region);
+
+            // Counting fingers needs a full resolution mask; the height does not
+            gestureProcessor.setFingerCounting(currentMode == MODE_FINGER_COUNTING);
+
+            // Create skin mask and analyse the hand once for both modes
+            TraceEvents.SkinMask maskEvent = new TraceEvents.SkinMask();
+            maskEvent.begin();
+            long maskStart = System.nanoTime();
+            Mat skinMask = gestureProcessor.createSkinMask(roiMat);
+            long maskEnd = System.nanoTime();
+            maskEvent.traceId = trace.getTraceId();
+            maskEvent.commit();
+            Metrics.SKIN_MASK_LATENCY.record(maskEnd - maskStart);
+
+            TraceEvents.ContourAnalysis analysisEvent = new TraceEvents.ContourAnalysis();
+            analysisEvent.begin();
+            hand = gestureProcessor.analyzeHand(skinMask);
+            long contoursEnd = System.nanoTime();
+            Metrics.CONTOURS_LATENCY.record(contoursEnd - maskEnd);
+            roiMat.release();
+            if (tracking) {
+                handTracker.update(region, hand);
+            }
+
+            // Both signals are cheap once the hand is analysed, so compute them every frame
+            long fingertipsStart = System.nanoTime();
+            fingers = gestureProcessor.detectFingers(hand);
+            Metrics.FINGERTIPS_LATENCY.record(System.nanoTime() - fingertipsStart);
+            percentage = gestureProcessor.getIndexFingerHeightPercentage(hand, region, handRegion);
+            analysisEvent.end();
+            if (analysisEvent.shouldCommit()) {
+                analysisEvent.traceId = trace.getTraceId();
+                analysisEvent.handPresent = hand.isHandPresent();
+                analysisEvent.fingerCount = fingers.getFingerCount();
+                analysisEvent.heightPercentage = percentage;
+                analysisEvent.commit();
+            }
+            if (motionGate != null) {
+                motionGate.analysed(hand.isHandPresent());
+            }
+            lastRegion = region;
+            lastHand = hand;
+            lastFingers = fingers;
+            lastPercentage = percentage;
+        } else {
+            region = lastRegion;
+            hand = lastHand;
+            fingers = lastFingers;
+            percentage = lastPercentage;
+        }
+
+        TraceEvents.GestureDecision decisionEvent = new TraceEvents.GestureDecision();
+        decisionEvent.begin();
+        int mode = currentMode;
+        int collectedFrames = -1;
+        int deviceValue = -1;
+
+        if (mode == MODE_FINGER_COUNTING) {
             // Process finger detection using the GestureDetector
-            boolean analysisNeeded = gestureDetector.processFingerDetection(frame, fingerCount, ui, deviceManager);
+            boolean analysisNeeded = gestureDetector.processFingerDetection(fingers.getFingerCount(),
+                    trace.getCaptureTimeNanos(), deviceManager);
+            if (gestureDetector.isCollectingFrames() || analysisNeeded) {
+                collectedFrames = gestureDetector.getFramesCollected();
+            }
             
             // If we collected enough frames, analyze the gesture
             if (analysisNeeded) {
@@ -61,37 +249,113 @@ public class GestureHandler {
                 if (deviceIndex >= 0) {
                     // Switch to distance measurement mode with the selected device
                     currentMode = MODE_DISTANCE_MEASUREMENT;
+                    resetHeightFilter(deviceIndex);
                     System.out.println("Switching to distance measurement for device " + deviceIndex);
                 }
             }
             
-        } else if (currentMode == MODE_DISTANCE_MEASUREMENT && 
+        } else if (mode == MODE_DISTANCE_MEASUREMENT && 
                   gestureDetector.getSelectedDeviceIndex() >= 0) {
-            // Measure distance as percentage
-            double percentage = gestureProcessor.getIndexFingerHeightPercentage(skinMask, roiMat);
-            ui.displayHeightPercentage(frame, percentage);
-            
             // Control the selected device based on height percentage
-            controlSelectedDevice(deviceManager, percentage, frame, ui);
+            deviceValue = controlSelectedDevice(deviceManager, percentage, trace);
         }
 
-        // Display instructions
-        int selectedDeviceIndex = gestureDetector.getSelectedDeviceIndex();
-        if (selectedDeviceIndex >= 0) {
-            // Get the actual device name instead of just the index
-            String deviceName = deviceManager.getDeviceName(selectedDeviceIndex);
-            ui.displayText(frame, "Controlling: " + deviceName, new Point(10, 70), 
-                          new Scalar(0, 255, 0), 1.0);
-        } else {
-            ui.displayHandPlacementInstructions(frame);
+        decisionEvent.end();
+        if (decisionEvent.shouldCommit()) {
+            decisionEvent.traceId = trace.getTraceId();
+            decisionEvent.mode = mode;
+            decisionEvent.selectedDevice = gestureDetector.getSelectedDeviceIndex();
+            decisionEvent.deviceValue = deviceValue;
+            decisionEvent.captureToDecision = trace.nanosSinceCapture();
+            decisionEvent.commit();
+        }
+
+        FrameObservation observation = new FrameObservation(mode, region, handRegion, hand, fingers,
+                percentage, collectedFrames, gestureDetector.getFramesToCollect(),
+                gestureDetector.getSelectedDeviceIndex(), deviceValue);
+        if (recorder != null) {
+            recorder.record(frame, handRegion, searchedRegion != null ? searchedRegion : region, analysed,
+                    observation, resets, frameLatencyNanos);
+        }
+        return observation;
+    }
+    
+    /**
+     * Processes a frame in two-hand mode: the finger count in the selection region
+     * selects a device, and in the same frame the hand height in the control region
+     * sets its value. Both regions are analysed in parallel. Showing a different finger
+     * count switches devices without going through the reset button, and the device
+     * keeps its value while the control hand is out of its region.
+     */
+    private FrameObservation processTwoHandFrame(CapturedFrame frame, Rect handRegion,
+                                                 GestureProcessor gestureProcessor,
+                                                 DeviceManager deviceManager) throws IOException {
+        FrameTrace trace = frame.getTrace();
+        DualRegionAnalyzer analyzer = dualRegionAnalyzer;
+        boolean gateAnalyse = motionGate != null
+                && motionGate.shouldAnalyse(frame.getImage(), trace.getCaptureTimeNanos());
+        // The first frame is analysed regardless, since there is no result to reuse yet
+        if (motionGate == null || gateAnalyse || analyzer.getSelectionHand() == null) {
+            analyzer.analyse(frame, handRegion, gestureProcessor);
+            if (gateAnalyse) {
+                motionGate.analysed(analyzer.getSelectionHand().isHandPresent()
+                        || analyzer.getControlHand().isHandPresent());
+            }
+        }
+        FingerDetection fingers = analyzer.getSelectionFingers();
+        HandAnalysis controlHand = analyzer.getControlHand();
+        double percentage = analyzer.getControlPercentage();
+
+        TraceEvents.GestureDecision decisionEvent = new TraceEvents.GestureDecision();
+        decisionEvent.begin();
+        int collectedFrames = -1;
+        int deviceValue = -1;
+
+        // The selection hand is always watched, so a new count can replace the selection
+        boolean analysisNeeded = gestureDetector.processFingerDetection(fingers.getFingerCount(),
+                trace.getCaptureTimeNanos(), deviceManager);
+        if (gestureDetector.isCollectingFrames() || analysisNeeded) {
+            collectedFrames = gestureDetector.getFramesCollected();
         }
+        if (analysisNeeded) {
+            int previousDevice = gestureDetector.getSelectedDeviceIndex();
+            int deviceIndex = gestureDetector.analyzeDetectedFingers(deviceManager);
+            if (deviceIndex >= 0 && deviceIndex != previousDevice) {
+                resetHeightFilter(deviceIndex);
+                System.out.println("Controlling device " + deviceIndex + " with the other hand");
+            }
+        }
+
+        if (gestureDetector.getSelectedDeviceIndex() >= 0 && controlHand.isHandPresent()) {
+            deviceValue = controlSelectedDevice(deviceManager, percentage, trace);
+        }
+
+        decisionEvent.end();
+        if (decisionEvent.shouldCommit()) {
+            decisionEvent.traceId = trace.getTraceId();
+            decisionEvent.mode = MODE_TWO_HAND;
+            decisionEvent.selectedDevice = gestureDetector.getSelectedDeviceIndex();
+            decisionEvent.deviceValue = deviceValue;
+            decisionEvent.captureToDecision = trace.nanosSinceCapture();
+            decisionEvent.commit();
+        }
+
+        Rect selectionRegion = analyzer.getSelectionRegion();
+        return new FrameObservation(MODE_TWO_HAND, selectionRegion, selectionRegion,
+                analyzer.getSelectionHand(), fingers, percentage,
+                collectedFrames, gestureDetector.getFramesToCollect(),
+                gestureDetector.getSelectedDeviceIndex(), deviceValue,
+                analyzer.getControlRegion(), controlHand);
     }
     
     /**
-     * Controls the selected device based on the detected height percentage.
+     * Controls the selected device based on the detected height percentage,
+     * smoothed and predicted by the device's height filter if it has one.
+     *
+     * @return The value sent to the device, or -1 if no valid device is selected
      */
-    private void controlSelectedDevice(DeviceManager deviceManager, double percentage, 
-                                     Mat frame, HandGestureUI ui) throws IOException {
+    private int controlSelectedDevice(DeviceManager deviceManager, double percentage,
+                                      FrameTrace trace) throws IOException {
         int selectedDeviceIndex = gestureDetector.getSelectedDeviceIndex();
         
         // Ensure device index is valid
@@ -113,18 +377,62 @@ public class GestureHandler {
                 maxValue = BuzzerController.MAX_VOLUME;
             }
             
-            int mappedValue = mapPercentageToRange(percentage, minValue, maxValue);
+            double height = filterHeight(selectedDeviceIndex, percentage, trace);
+            int mappedValue = mapPercentageToRange(height, minValue, maxValue);
             
             // Control the device
-            deviceManager.controlDevice(selectedDeviceIndex, mappedValue);
-            
-            // Get device name
-            String deviceName = deviceManager.getDeviceName(selectedDeviceIndex);
-            
-            // Display the control value
-            ui.displayText(frame, deviceName + " Value: " + mappedValue, new Point(10, 100), 
-                          new Scalar(255, 255, 0), 1.0);
+            sendValue(deviceManager, selectedDeviceIndex, mappedValue, DeviceManager.PRIORITY_CONTROL, trace);
+            return mappedValue;
         }
+        return -1;
+    }
+    
+    /**
+     * Sets a device value. While a frame is processed the value joins the frame's
+     * transaction; otherwise it is written right away.
+     */
+    private void sendValue(DeviceManager deviceManager, int index, int value, int priority,
+                           FrameTrace trace) throws IOException {
+        if (frameOpen) {
+            transaction.set(index, value, priority, trace);
+        } else {
+            deviceManager.controlDevice(index, value, trace);
+        }
+    }
+    
+    /**
+     * Smooths the height for a device and extrapolates it by the pipeline latency,
+     * so the value matches where the hand is when it is written rather than where
+     * it was when the frame was captured. Changes smaller than {@link #HEIGHT_DEADBAND}
+     * are held back so a resting hand does not cause a write every frame.
+     *
+     * @return The height to send, or the measured height if the device has no filter
+     */
+    private double filterHeight(int deviceIndex, double percentage, FrameTrace trace) {
+        HeightFilter filter = getHeightFilter(deviceIndex);
+        if (filter == null) {
+            return percentage;
+        }
+        double height;
+        if (trace.getTraceId() < 0) {
+            // No capture time to measure the latency from
+            height = filter.filter(percentage, System.nanoTime());
+        } else {
+            // Average the latency over recent frames so a single slow frame does not make the value jump
+            long latency = trace.nanosSinceCapture();
+            frameLatencyNanos = latency;
+            pipelineLatencyNanos = pipelineLatencyNanos == 0 ? latency
+                    : pipelineLatencyNanos + (latency - pipelineLatencyNanos) / 8;
+            filter.filter(percentage, trace.getCaptureTimeNanos());
+            height = filter.predict(Math.min(pipelineLatencyNanos, MAX_PREDICTION_NANOS));
+        }
+
+        double sent = sentHeights[deviceIndex];
+        if (!Double.isNaN(sent) && Math.abs(height - sent) < HEIGHT_DEADBAND) {
+            return sent;
+        }
+        sentHeights[deviceIndex] = height;
+        return height;
     }
     
     /**
@@ -142,13 +450,15 @@ public class GestureHandler {
      * Handles the reset button press event.
      * This resets the currently selected device to its minimum value
      * and switches back to finger counting mode.
+     * Must be called on the frame thread; other threads post {@link GestureCommand#RESET}.
      * 
      * @param deviceManager The device manager to control devices
      * @throws IOException If there's an issue controlling the device
      */
     public void handleResetButtonPress(DeviceManager deviceManager) throws IOException {
-        // Only take action if we're in distance measurement mode with a device selected
-        if (currentMode == MODE_DISTANCE_MEASUREMENT && gestureDetector.getSelectedDeviceIndex() >= 0) {
+        // Only take action if a device is being controlled
+        if ((currentMode == MODE_DISTANCE_MEASUREMENT || currentMode == MODE_TWO_HAND)
+                && gestureDetector.getSelectedDeviceIndex() >= 0) {
             System.out.println("Reset button pressed - resetting device and switching modes");
             
             int selectedDeviceIndex = gestureDetector.getSelectedDeviceIndex();
@@ -167,26 +477,41 @@ public class GestureHandler {
             }
             
             // Set device to minimum value
-            deviceManager.controlDevice(selectedDeviceIndex, minValue);
+            sendValue(deviceManager, selectedDeviceIndex, minValue, DeviceManager.PRIORITY_RESET, FrameTrace.NONE);
             
-            // Reset state and switch back to finger counting mode
+            // Reset state and switch back to finger counting mode; in two-hand mode
+            // selecting and controlling continue side by side
             resetDetectionState();
+            if (currentMode == MODE_TWO_HAND) {
+                return;
+            }
             currentMode = MODE_FINGER_COUNTING;
             System.out.println("Switched back to Finger Counting mode");
         }
     }
     
+    private void resetHeightFilter(int deviceIndex) {
+        HeightFilter filter = getHeightFilter(deviceIndex);
+        if (filter != null) {
+            filter.reset();
+            sentHeights[deviceIndex] = Double.NaN;
+        }
+    }
+    
     /**
      * Resets the detection state.
      */
     public void resetDetectionState() {
         gestureDetector.resetDetectionState();
+        for (int i = 0; i < heightFilters.length; i++) {
+            resetHeightFilter(i);
+        }
     }
     
     /**
      * Gets the current mode.
      * 
-     * @return The current mode (MODE_FINGER_COUNTING or MODE_DISTANCE_MEASUREMENT)
+     * @return The current mode (MODE_FINGER_COUNTING, MODE_DISTANCE_MEASUREMENT or MODE_TWO_HAND)
      */
     public int getMode() {
         return currentMode;
@@ -201,6 +526,118 @@ public class GestureHandler {
         this.currentMode = mode;
     }
     
+    /**
+     * Sets the tracker that moves the analysed region with the hand.
+     * 
+     * @param handTracker The tracker, or null to always analyse the fixed hand region
+     */
+    public void setHandTracker(HandTracker handTracker) {
+        this.handTracker = handTracker;
+    }
+    
+    /**
+     * Gets the tracker that moves the analysed region with the hand.
+     * 
+     * @return The tracker, or null if the fixed hand region is used
+     */
+    public HandTracker getHandTracker() {
+        return handTracker;
+    }
+    
+    /**
+     * Sets the gate that skips the analysis of frames in which nothing moved.
+     * 
+     * @param motionGate The gate, or null to analyse every frame
+     */
+    public void setMotionGate(MotionGate motionGate) {
+        this.motionGate = motionGate;
+    }
+    
+    /**
+     * Gets the gate that skips the analysis of frames in which nothing moved.
+     * 
+     * @return The gate, or null if every frame is analysed
+     */
+    public MotionGate getMotionGate() {
+        return motionGate;
+    }
+    
+    /**
+     * Switches two-hand mode on or off. In two-hand mode one hand selects a device
+     * while the other controls it, each in its own region.
+     * 
+     * @param dualRegionAnalyzer The analyzer for the two regions, or null for one-hand mode
+     */
+    public void setDualRegionAnalyzer(DualRegionAnalyzer dualRegionAnalyzer) {
+        this.dualRegionAnalyzer = dualRegionAnalyzer;
+        resetDetectionState();
+        currentMode = dualRegionAnalyzer != null ? MODE_TWO_HAND : MODE_FINGER_COUNTING;
+    }
+    
+    /**
+     * Gets the analyzer used in two-hand mode.
+     * 
+     * @return The analyzer, or null in one-hand mode
+     */
+    public DualRegionAnalyzer getDualRegionAnalyzer() {
+        return dualRegionAnalyzer;
+    }
+    
+    /**
+     * Sets the recorder that logs each frame's hand region and decisions for replay.
+     * Two-hand mode analyses regions outside the hand region and is not recorded.
+     * 
+     * @param recorder The recorder, or null to stop recording
+     */
+    public void setRecorder(SessionRecorder recorder) {
+        this.recorder = recorder;
+    }
+    
+    /**
+     * Gets the recorder that logs each frame's hand region and decisions.
+     * 
+     * @return The recorder, or null if the session is not recorded
+     */
+    public SessionRecorder getRecorder() {
+        return recorder;
+    }
+    
+    /**
+     * Sets the filter that smooths the height before it is sent to a device.
+     * Each device needs its own filter instance.
+     * 
+     * @param deviceIndex The index of the device
+     * @param filter The filter, or null to send the measured height unchanged
+     */
+    public void setHeightFilter(int deviceIndex, HeightFilter filter) {
+        if (deviceIndex >= heightFilters.length) {
+            heightFilters = Arrays.copyOf(heightFilters, deviceIndex + 1);
+            sentHeights = Arrays.copyOf(sentHeights, deviceIndex + 1);
+        }
+        heightFilters[deviceIndex] = filter;
+        sentHeights[deviceIndex] = Double.NaN;
+    }
+    
+    /**
+     * Gets the filter that smooths the height before it is sent to a device.
+     * 
+     * @param deviceIndex The index of the device
+     * @return The filter, or null if the measured height is sent unchanged
+     */
+    public HeightFilter getHeightFilter(int deviceIndex) {
+        return deviceIndex < heightFilters.length ? heightFilters[deviceIndex] : null;
+    }
+    
+    /**
+     * Gets the average time from frame capture to device control, which is how far
+     * ahead the height filters predict.
+     * 
+     * @return The average latency in nanoseconds, or 0 before any filtered value was sent
+     */
+    public long getPipelineLatencyNanos() {
+        return pipelineLatencyNanos;
+    }
+    
     /**
      * Gets the GestureDetector used by this analyzer.
      * 
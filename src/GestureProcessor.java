@@ -8,23 +8,216 @@ import org.opencv.imgproc.Moments;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class GestureProcessor implements AutoCloseable {
+    // Default skin thresholds (HSV); shared so no Scalar or Size is created per frame
+    public static final Scalar SKIN_LOWER_1 = new Scalar(0, 20, 70);
+    public static final Scalar SKIN_UPPER_1 = new Scalar(20, 150, 255);
+    public static final Scalar SKIN_LOWER_2 = new Scalar(170, 20, 70);
+    public static final Scalar SKIN_UPPER_2 = new Scalar(180, 150, 255);
+    private static final Size BLUR_SIZE = new Size(9, 9);
+    private static final Size KERNEL_SIZE = new Size(5, 5);
+    private static final double MIN_HAND_AREA = 2000;
+    // Size(0, 0) makes resize compute the output size from the scale factors
+    private static final Size FROM_FACTORS = new Size();
+
+    // Processing scales: segmentation and contour search run on the ROI divided by this
+    public static final int SCALE_FULL = 1;
+    public static final int SCALE_HALF = 2;
+    public static final int SCALE_QUARTER = 4;
+
+    // Skin classifiers of the default skin segmentation, see SkinSegmentation
+    public static final int CLASSIFIER_HSV = SkinSegmentation.CLASSIFIER_HSV;
+    public static final int CLASSIFIER_LOOKUP_TABLE = SkinSegmentation.CLASSIFIER_LOOKUP_TABLE;
+
+    // Scratch buffers reused every frame, released on close()
+    private final MatArena arena = new MatArena();
+    private final Mat scaledRoi = arena.add(new Mat());
+    private final Mat skinMask = arena.add(new Mat());
+    private final Mat fullMask = arena.add(new Mat());
+    private final Mat hierarchy = arena.add(new Mat());
+    private final MatOfInt hullIndices = arena.addVectorBuffer(new MatOfInt());
+    private final MatOfInt4 defects = arena.addVectorBuffer(new MatOfInt4());
+    private final MatOfPoint2f contour2f = arena.add(new MatOfPoint2f());
+    private final Mat kernel = arena.add(new Mat());
+    private final List<MatOfPoint> contours = new ArrayList<>();
+    private final FingertipGeometry fingertips = new FingertipGeometry();
+
+    private int processingScale;
+    private boolean fingerCounting;
+    // The scale the blur, kernel and segmentation are set up for, 0 before the first mask
+    private int maskScale;
+    private Size blurSize;
+    private double blurSigma;
+    private int roiWidth;
+    private int roiHeight;
+    // Only touched by the processing thread; replacements wait in pendingSegmentation
+    private SegmentationStrategy segmentation = new SkinSegmentation();
+    private final AtomicReference<SegmentationStrategy> pendingSegmentation = new AtomicReference<>();
+    private final Point roiOffset = new Point();
+    private final Size roiParentSize = new Size();
+    private final Size roiSize = new Size();
+    private Rect segmentedRegion;
 
-public class GestureProcessor {
-    
     /**
-     * Count the number of extended fingers in the provided thresholded image.
-     * 
+     * Creates a processor that works at the full ROI resolution.
+     */
+    public GestureProcessor() {
+        this(SCALE_FULL);
+    }
+
+    /**
+     * Creates a processor that segments and analyses a downscaled copy of the ROI.
+     *
+     * @param processingScale SCALE_FULL, SCALE_HALF or SCALE_QUARTER
+     */
+    public GestureProcessor(int processingScale) {
+        setProcessingScale(processingScale);
+    }
+
+    /**
+     * Sets the scale that segmentation and contour extraction run at while fingers
+     * are not being counted (see {@link #setFingerCounting(boolean)}). At SCALE_HALF
+     * or SCALE_QUARTER the ROI is downscaled first, the blur and morphology kernels
+     * shrink with it, and the resulting hand points are mapped back to full ROI
+     * coordinates, trading a few pixels of precision for a large speed-up.
+     *
+     * @param processingScale SCALE_FULL, SCALE_HALF or SCALE_QUARTER
+     */
+    public void setProcessingScale(int processingScale) {
+        if (processingScale != SCALE_FULL && processingScale != SCALE_HALF && processingScale != SCALE_QUARTER) {
+            throw new IllegalArgumentException("Processing scale must be 1, 2 or 4: " + processingScale);
+        }
+        this.processingScale = processingScale;
+    }
+
+    /**
+     * Sets whether the fingers of the next masks will be counted. While they are,
+     * masks are made at full resolution whatever the processing scale: the palm
+     * radius comes from convexity defects a pixel or two deep, which downscaling
+     * smooths away, and the finger count changes with it. The height, centroid and
+     * hand location are unaffected, so they keep the speed of the processing scale.
+     * A strategy that learns from earlier frames keeps segmenting at the processing
+     * scale, so its model is not lost when this changes; its mask is scaled up to
+     * full resolution instead. Off by default.
+     *
+     * @param fingerCounting True if the fingers of the next masks will be counted
+     */
+    public void setFingerCounting(boolean fingerCounting) {
+        this.fingerCounting = fingerCounting;
+    }
+
+    /**
+     * Gets whether masks are made at full resolution for finger counting.
+     *
+     * @return True if fingers are being counted
+     */
+    public boolean isFingerCounting() {
+        return fingerCounting;
+    }
+
+    /**
+     * Replaces the strategy that decides which pixels belong to the hand. Safe to call
+     * from any thread while frames are being processed: the new strategy takes over
+     * at the start of the next {@link #createSkinMask(Mat)} call, and the old one is
+     * closed by the processing thread.
+     *
+     * @param strategy The new segmentation strategy
+     */
+    public void setSegmentationStrategy(SegmentationStrategy strategy) {
+        SegmentationStrategy replaced = pendingSegmentation.getAndSet(strategy);
+        if (replaced != null) {
+            // Never used, so closing it here cannot race with the processing thread
+            replaced.close();
+        }
+    }
+
+    /**
+     * Gets the segmentation strategy, including one set but not yet taken over.
+     *
+     * @return The segmentation strategy
+     */
+    public SegmentationStrategy getSegmentationStrategy() {
+        SegmentationStrategy pending = pendingSegmentation.get();
+        return pending != null ? pending : segmentation;
+    }
+
+    /**
+     * Sets how pixels are classified as skin. CLASSIFIER_LOOKUP_TABLE replaces the
+     * HSV conversion and the two range checks with one pass over a precomputed
+     * 32x32x32 color table, built from the same thresholds.
+     * Applies to the skin part of the segmentation strategy; a background-only
+     * strategy is left unchanged.
+     *
+     * @param skinClassifier CLASSIFIER_HSV or CLASSIFIER_LOOKUP_TABLE
+     */
+    public void setSkinClassifier(int skinClassifier) {
+        SkinSegmentation skin = getSkinSegmentation();
+        if (skin != null) {
+            skin.setClassifier(skinClassifier);
+        }
+    }
+
+    /**
+     * Gets how pixels are classified as skin.
+     *
+     * @return CLASSIFIER_HSV or CLASSIFIER_LOOKUP_TABLE, or 0 if the strategy does not use skin color
+     */
+    public int getSkinClassifier() {
+        SkinSegmentation skin = getSkinSegmentation();
+        return skin != null ? skin.getClassifier() : 0;
+    }
+
+    /**
+     * Sets the two HSV ranges that count as skin (hue wraps around at 180).
+     * The color table, if in use, is rebuilt only when the ranges actually change.
+     * Applies to the skin part of the segmentation strategy.
+     *
+     * @param lower1 Lower bound of the first range
+     * @param upper1 Upper bound of the first range
+     * @param lower2 Lower bound of the second range
+     * @param upper2 Upper bound of the second range
+     */
+    public void setSkinThresholds(Scalar lower1, Scalar upper1, Scalar lower2, Scalar upper2) {
+        SkinSegmentation skin = getSkinSegmentation();
+        if (skin != null) {
+            skin.setThresholds(lower1, upper1, lower2, upper2);
+        }
+    }
+
+    /**
+     * Gets the scale that segmentation and contour extraction run at while fingers
+     * are not being counted.
+     *
+     * @return SCALE_FULL, SCALE_HALF or SCALE_QUARTER
+     */
+    public int getProcessingScale() {
+        return processingScale;
+    }
+
+    /**
+     * Analyses the hand silhouette in a skin mask. The contour search, convex hull,
+     * convexity defects and moments are computed once here and shared by
+     * {@link #detectFingers(HandAnalysis)} and
+     * {@link #getIndexFingerHeightPercentage(HandAnalysis)}.
+     * A downscaled mask returned by {@link #createSkinMask(Mat)} is analysed at its
+     * own size and the result is mapped back to full ROI coordinates.
+     *
      * @param thresholdImage The binary image containing hand silhouette
-     * @param roiFrame The original ROI image for visualization
-     * @return The number of fingers detected (0-5)
+     * @return The analysis of the largest contour, or a "no hand" result
      */
-    public int countFingers(Mat thresholdImage, Mat roiFrame) {
+    public HandAnalysis analyzeHand(Mat thresholdImage) {
         // Find contours
-        List<MatOfPoint> contours = new ArrayList<>();
-        Mat hierarchy = new Mat();
+        arena.releaseTransient(contours);
         Imgproc.findContours(thresholdImage, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
 
-        int fingerCount = 0;
+        int scale = getMaskScale(thresholdImage);
+        int width = scale == SCALE_FULL ? thresholdImage.cols() : roiWidth;
+        int height = scale == SCALE_FULL ? thresholdImage.rows() : roiHeight;
+        double areaScale = scale * scale;
+        double offset = (scale - 1) / 2.0; // Center of the block of ROI pixels behind a mask pixel
+        HandAnalysis analysis = HandAnalysis.noHand(width, height);
 
         if (!contours.isEmpty()) {
             // Find the largest contour (assumed to be the hand)
@@ -39,300 +232,333 @@ public class GestureProcessor {
             }
 
             // Filter by minimum area to avoid noise
-            if (maxArea > 2000) {
+            if (maxArea * areaScale > MIN_HAND_AREA) {
+                MatOfPoint handContour = contours.get(maxIndex);
+                Point[] contourPoints = handContour.toArray();
+                if (scale != SCALE_FULL) {
+                    for (Point p : contourPoints) {
+                        p.x = p.x * scale + offset;
+                        p.y = p.y * scale + offset;
+                    }
+                }
+                double area = maxArea * areaScale;
+
                 // Get the convex hull
-                MatOfInt hullIndices = new MatOfInt();
-                Imgproc.convexHull(contours.get(maxIndex), hullIndices);
-
-                // Calculate convex hull area for fist detection
-                MatOfPoint hullPoints = new MatOfPoint();
-                List<Point> pointList = new ArrayList<>();
-                for (int idx : hullIndices.toArray()) {
-                    pointList.add(contours.get(maxIndex).toArray()[idx]);
+                Imgproc.convexHull(handContour, hullIndices);
+                int[] hull = hullIndices.toArray();
+                Point[] hullPoints = new Point[hull.length];
+                for (int i = 0; i < hull.length; i++) {
+                    hullPoints[i] = contourPoints[hull[i]];
                 }
-                hullPoints.fromList(pointList);
-                double hullArea = Imgproc.contourArea(hullPoints);
 
                 // Calculate solidity (ratio of contour area to convex hull area)
                 // High solidity = closed fist, low solidity = open hand with fingers
-                double solidity = maxArea / hullArea;
-
-                // Get defects
-                MatOfInt4 defects = new MatOfInt4();
-                if (hullIndices.toArray().length > 3) {
-                    Imgproc.convexityDefects(contours.get(maxIndex), hullIndices, defects);
-                }
+                double hullArea = polygonArea(hullPoints);
+                double solidity = area / hullArea;
 
                 // Get palm center
-                Moments moments = Imgproc.moments(contours.get(maxIndex));
-                Point center = new Point(moments.m10/moments.m00, moments.m01/moments.m00);
-                Imgproc.circle(roiFrame, center, 5, new Scalar(0, 255, 255), -1);
-
-                // Draw contour and convex hull
-                Imgproc.drawContours(roiFrame, contours, maxIndex, new Scalar(0, 255, 0), 2);
-
-                // Calculate bounding box to determine orientation
-                RotatedRect boundingBox = Imgproc.minAreaRect(new MatOfPoint2f(contours.get(maxIndex).toArray()));
+                Moments moments = Imgproc.moments(handContour);
+                Point center = new Point(moments.m10/moments.m00 * scale + offset,
+                        moments.m01/moments.m00 * scale + offset);
 
                 // Use defects to determine palm radius
-                double palmRadius = 0;
-                List<Point> palmPoints = new ArrayList<>();
-
-                if (!defects.empty()) {
-                    int[] defectsArray = defects.toArray();
-                    Point[] contourPoints = contours.get(maxIndex).toArray();
+                double palmRadiusSquared = 0;
+                Point[] defectPoints = new Point[0];
+                if (hull.length > 3) {
+                    Imgproc.convexityDefects(handContour, hullIndices, defects);
+                    // A convex contour has no defects, and toArray() rejects the empty result
+                    int[] defectsArray = defects.empty() ? new int[0] : defects.toArray();
+                    defectPoints = new Point[defectsArray.length / 4];
 
                     for (int i = 0; i < defectsArray.length; i += 4) {
-                        int farIdx = defectsArray[i + 2];
-                        Point farPoint = contourPoints[farIdx];
-                        double distance = calculateDistance(center, farPoint);
-
-                        // Collect defect points for palm size estimation
-                        palmPoints.add(farPoint);
-                        palmRadius = Math.max(palmRadius, distance);
+                        Point farPoint = contourPoints[defectsArray[i + 2]];
+                        defectPoints[i / 4] = farPoint;
+                        double dx = farPoint.x - center.x;
+                        double dy = farPoint.y - center.y;
+                        palmRadiusSquared = Math.max(palmRadiusSquared, dx * dx + dy * dy);
                     }
                 }
+                double palmRadius = Math.sqrt(palmRadiusSquared);
 
                 // Ensure we have a valid palm radius
                 if (palmRadius == 0) {
-                    palmRadius = Math.min(boundingBox.size.width, boundingBox.size.height) / 4;
+                    // Fall back to the bounding box size
+                    handContour.convertTo(contour2f, CvType.CV_32F);
+                    RotatedRect boundingBox = Imgproc.minAreaRect(contour2f);
+                    palmRadius = Math.min(boundingBox.size.width, boundingBox.size.height) * scale / 4;
                 }
 
-                // Draw palm circle
-                Imgproc.circle(roiFrame, center, (int)palmRadius, new Scalar(255, 0, 255), 2);
-
-                // If the shape is very solid (low protrusions), it's likely a fist
-                if (solidity > 0.9) {
-                    fingerCount = 0;
-                    Imgproc.putText(roiFrame, "Fist detected", new Point(10, 60),
-                            Imgproc.FONT_HERSHEY_SIMPLEX, 0.7, new Scalar(0, 0, 255), 2);
-                } else {
-                    // Filter for potential fingertips
-                    List<Point> fingerCandidates = new ArrayList<>();
-                    for (Point p : pointList) {
-                        // Filter based on distance from center and vertical position
-                        double distFromCenter = calculateDistance(center, p);
-
-                        // Only count points that are:
-                        // 1. Far enough from the center (extended fingers)
-                        // 2. Above or not too far below the center (avoid wrist and lower points)
-                        // 3. Not at the extreme left/right bottom corners (often false positives)
-                        if (distFromCenter > palmRadius * 0.8 &&
-                                p.y < center.y + palmRadius * 0.3 &&  // Stricter vertical constraint
-                                !(p.y > center.y && (p.x < center.x - palmRadius * 0.8 || p.x > center.x + palmRadius * 0.8))) {
-                            fingerCandidates.add(p);
-                            Imgproc.circle(roiFrame, p, 5, new Scalar(0, 255, 0), -1);
-                        }
-                    }
-
-                    // Sort candidates by angle around center (clockwise)
-                    // This ordering helps with adjacent finger detection
-                    final Point finalCenter = center;
-                    fingerCandidates.sort((p1, p2) -> {
-                        double angle1 = Math.atan2(p1.y - finalCenter.y, p1.x - finalCenter.x);
-                        double angle2 = Math.atan2(p2.y - finalCenter.y, p2.x - finalCenter.x);
-                        return Double.compare(angle1, angle2);
-                    });
-
-                    // Filter candidates that are too close together
-                    List<Point> fingerTips = new ArrayList<>();
-                    if (!fingerCandidates.isEmpty()) {
-                        fingerTips.add(fingerCandidates.get(0));
-
-                        for (int i = 1; i < fingerCandidates.size(); i++) {
-                            boolean tooClose = false;
-
-                            // Variable threshold based on current finger count
-                            // Relaxes the distance threshold when we already have 3 fingers
-                            double distThreshold = palmRadius * 0.4;
-                            if (fingerTips.size() >= 3) {
-                                distThreshold = palmRadius * 0.35;  // More relaxed for 4th finger
-                            }
-
-                            // Check distance to all accepted fingertips
-                            for (Point existingTip : fingerTips) {
-                                if (calculateDistance(existingTip, fingerCandidates.get(i)) < distThreshold) {
-                                    tooClose = true;
-                                    break;
-                                }
-                            }
-
-                            if (!tooClose) {
-                                fingerTips.add(fingerCandidates.get(i));
-                            }
-                        }
-                    }
-
-                    // Handle thumb separately - look for points to the side
-                    for (Point p : pointList) {
-                        // Thumb detection criteria adjusted
-                        double xDiff = Math.abs(p.x - center.x);
-                        double yDiff = Math.abs(p.y - center.y);
-                        double distFromCenter = calculateDistance(center, p);
-
-                        // Thumb criteria: more horizontal than vertical distance
-                        if (xDiff > yDiff * 1.2 && distFromCenter > palmRadius * 0.7 &&
-                                !isTooClose(fingerTips, p, palmRadius * 0.4)) {
-                            // Likely a thumb
-                            fingerTips.add(p);
-                            Imgproc.circle(roiFrame, p, 12, new Scalar(255, 255, 0), -1);
-                            break;
-                        }
-                    }
-
-                    // Draw fingertips
-                    for (Point p : fingerTips) {
-                        Imgproc.circle(roiFrame, p, 12, new Scalar(255, 0, 0), -1);
-                        Imgproc.line(roiFrame, center, p, new Scalar(255, 255, 0), 2);
+                // Find the index finger tip (highest hull point above the center)
+                Point topmost = null;
+                double minY = Double.MAX_VALUE;
+                for (Point p : hullPoints) {
+                    if (p.y < center.y && p.y < minY) {
+                        minY = p.y;
+                        topmost = p;
                     }
-
-                    fingerCount = fingerTips.size();
                 }
 
-                // Add text showing finger count directly on ROI image
-                Imgproc.putText(roiFrame, "Count: " + fingerCount, new Point(10, 30),
-                        Imgproc.FONT_HERSHEY_SIMPLEX, 0.8, new Scalar(0, 0, 255), 2);
+                analysis = new HandAnalysis(width, height,
+                        contourPoints, hullPoints, defectPoints, area, center,
+                        palmRadius, solidity, topmost);
             }
         }
 
-        return Math.min(fingerCount, 5); // Limit to 5 fingers
+        arena.releaseTransient(contours);
+        arena.endFrame();
+        return analysis;
     }
 
     /**
-     * Measure the index finger height as a percentage of the ROI height.
-     * The bottom of the region is considered to be 40px above the actual bottom.
+     * Finds the extended fingertips of an analysed hand. No drawing is done here;
+     * the returned detection can be drawn by {@link HandGestureUI} when a display is attached.
+     * The count is only reliable for a hand analysed at full resolution, see
+     * {@link #setFingerCounting(boolean)}.
      * 
-     * @param thresholdImage The binary image containing hand silhouette
-     * @param roiFrame The original ROI image for visualization
-     * @return The percentage of the finger height relative to the adjusted ROI height
+     * @param hand The hand analysis for the current frame
+     * @return The detected fingertips
      */
-    public double getIndexFingerHeightPercentage(Mat thresholdImage, Mat roiFrame) {
-        // Find contours
-        List<MatOfPoint> contours = new ArrayList<>();
-        Mat hierarchy = new Mat();
-        Imgproc.findContours(thresholdImage, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+    public FingerDetection detectFingers(HandAnalysis hand) {
+        if (!hand.isHandPresent()) {
+            return FingerDetection.none();
+        }
 
-        double percentageHeight = 0.0;
+        // If the shape is very solid (low protrusions), it's likely a fist
+        if (hand.getSolidity() > 0.9) {
+            return FingerDetection.fist();
+        }
 
-        if (!contours.isEmpty()) {
-            // Find the largest contour (assumed to be the hand)
-            int maxIndex = 0;
-            double maxArea = 0;
-            for (int i = 0; i < contours.size(); i++) {
-                double area = Imgproc.contourArea(contours.get(i));
-                if (area > maxArea) {
-                    maxArea = area;
-                    maxIndex = i;
-                }
-            }
+        fingertips.detect(hand);
+        return fingertips.toDetection();
+    }
 
-            // Filter by minimum area to avoid noise
-            if (maxArea > 2000) {
-                // Draw contour
-                Imgproc.drawContours(roiFrame, contours, maxIndex, new Scalar(0, 255, 0), 2);
+    /**
+     * Count the number of extended fingers in an analysed hand.
+     * Like {@link #detectFingers(HandAnalysis)}, only reliable at full resolution.
+     * 
+     * @param hand The hand analysis for the current frame
+     * @return The number of fingers detected (0-5)
+     */
+    public int countFingers(HandAnalysis hand) {
+        // Same rules as detectFingers, without building the result lists
+        if (!hand.isHandPresent() || hand.getSolidity() > 0.9) {
+            return 0;
+        }
+        return Math.min(fingertips.detect(hand), 5); // Limit to 5 fingers
+    }
 
-                // Get palm center
-                Moments moments = Imgproc.moments(contours.get(maxIndex));
-                Point center = new Point(moments.m10/moments.m00, moments.m01/moments.m00);
-                Imgproc.circle(roiFrame, center, 5, new Scalar(0, 255, 255), -1);
-
-                // Get convex hull
-                MatOfInt hull = new MatOfInt();
-                Imgproc.convexHull(contours.get(maxIndex), hull);
-
-                // Get convex hull points
-                Point[] contourPoints = contours.get(maxIndex).toArray();
-                List<Point> convexPoints = new ArrayList<>();
-                for (int idx : hull.toArray()) {
-                    convexPoints.add(contourPoints[idx]);
-                }
+    /**
+     * Measure the index finger height of an analysed hand as a percentage of the ROI height.
+     * The bottom of the region is considered to be 40px above the actual bottom.
+     * 
+     * @param hand The hand analysis for the current frame
+     * @return The percentage of the finger height relative to the adjusted ROI height
+     */
+    public double getIndexFingerHeightPercentage(HandAnalysis hand) {
+        // The index finger tip is the highest hull point above the center
+        Point indexTip = hand.getTopmostPoint();
+        if (indexTip == null) {
+            return 0.0;
+        }
 
-                // Find the index finger tip (highest point above the center)
-                Point indexTip = null;
-                double minY = Double.MAX_VALUE;
+        // Calculate height from adjusted bottom point to index tip
+        int adjustedBottom = getAdjustedBottom(hand.getMaskHeight());
+        double fingerHeight = adjustedBottom - indexTip.y;
+        double maxPossibleHeight = adjustedBottom;
 
-                for (Point p : convexPoints) {
-                    // Look for points above the center (lower y value)
-                    if (p.y < center.y && p.y < minY) {
-                        minY = p.y;
-                        indexTip = p;
-                    }
-                }
+        // Calculate percentage (0-100%)
+        return (fingerHeight / maxPossibleHeight) * 100.0;
+    }
 
-                if (indexTip != null) {
-                    // Draw the index finger tip
-                    Imgproc.circle(roiFrame, indexTip, 8, new Scalar(0, 0, 255), -1);
-
-                    // Calculate height from adjusted bottom point to index tip
-                    int adjustedBottom = roiFrame.rows() - 40; // 40px above bottom
-                    double fingerHeight = adjustedBottom - indexTip.y;
-                    double maxPossibleHeight = adjustedBottom;
-                    
-                    // Calculate percentage (0-100%)
-                    percentageHeight = (fingerHeight / maxPossibleHeight) * 100.0;
-
-                    // Draw a line showing the measurement
-                    Point bottomPoint = new Point(indexTip.x, adjustedBottom);
-                    Imgproc.line(roiFrame, indexTip, bottomPoint, new Scalar(255, 255, 0), 2);
-                    
-                    // Draw the adjusted bottom line
-                    Imgproc.line(roiFrame, new Point(0, adjustedBottom), 
-                                new Point(roiFrame.cols(), adjustedBottom), 
-                                new Scalar(255, 0, 0), 2);
-
-                    // Add text showing the measured percentage
-                    Imgproc.putText(roiFrame, String.format("Height: %.1f%%", percentageHeight),
-                            new Point(10, 60), Imgproc.FONT_HERSHEY_SIMPLEX, 0.7,
-                            new Scalar(0, 255, 255), 2);
-                }
-            }
+    /**
+     * Measure the index finger height against a fixed reference region, for hands
+     * analysed in a region that moves with them (see {@link HandTracker}).
+     * The result is the same as {@link #getIndexFingerHeightPercentage(HandAnalysis)}
+     * would give if the hand had been analysed in the reference region.
+     * 
+     * @param hand The hand analysis for the current frame
+     * @param analysedRegion The region of the frame the hand was analysed in
+     * @param referenceRegion The region the height is measured against
+     * @return The percentage of the finger height relative to the adjusted reference height
+     */
+    public double getIndexFingerHeightPercentage(HandAnalysis hand, Rect analysedRegion, Rect referenceRegion) {
+        Point indexTip = hand.getTopmostPoint();
+        if (indexTip == null) {
+            return 0.0;
         }
 
-        return percentageHeight;
+        // Move the tip into the reference region's coordinates
+        double tipY = indexTip.y + analysedRegion.y - referenceRegion.y;
+        int adjustedBottom = getAdjustedBottom(referenceRegion.height);
+        return ((adjustedBottom - tipY) / adjustedBottom) * 100.0;
+    }
+
+    /**
+     * Gets the row used as the bottom of the height measurement (40px above the ROI bottom).
+     *
+     * @param roiHeight The height of the ROI
+     * @return The adjusted bottom row
+     */
+    public static int getAdjustedBottom(int roiHeight) {
+        return roiHeight - 40; // 40px above bottom
     }
 
     /**
-     * Creates a skin mask from the input frame using HSV color space filtering.
+     * Creates a mask of the hand pixels in the input frame using the segmentation
+     * strategy (skin color by default). The returned mask is a scratch buffer owned by this processor: it is overwritten
+     * by the next call and must not be released by the caller.
+     * Below full processing scale the mask is smaller than the ROI by that factor,
+     * unless fingers are being counted; then it is at full resolution, and for a
+     * strategy that learns from earlier frames, scaled up from the processing scale.
      * 
      * @param roiMat The region of interest from the original frame
      * @return A binary mask highlighting skin pixels
      */
     public Mat createSkinMask(Mat roiMat) {
-        // Convert to HSV for better skin detection
-        Mat hsvFrame = new Mat();
-        Imgproc.cvtColor(roiMat, hsvFrame, Imgproc.COLOR_BGR2HSV);
-
-        // Create mask for skin color detection (works for various skin tones)
-        Mat skinMask = new Mat();
-        Core.inRange(hsvFrame, new Scalar(0, 20, 70), new Scalar(20, 150, 255), skinMask);
-
-        // Second range for skin detection (to handle some lighting conditions better)
-        Mat skinMask2 = new Mat();
-        Core.inRange(hsvFrame, new Scalar(170, 20, 70), new Scalar(180, 150, 255), skinMask2);
+        SegmentationStrategy replacement = pendingSegmentation.getAndSet(null);
+        if (replacement != null) {
+            segmentation.close();
+            segmentation = replacement;
+            segmentedRegion = null;
+        }
+        // A learning strategy stays at one scale: a model fed another size starts over
+        int scale = fingerCounting && !segmentation.needsFixedRegion() ? SCALE_FULL : processingScale;
+        if (scale != maskScale) {
+            setMaskScale(scale);
+        }
+        checkRegionMoved(roiMat);
+
+        roiWidth = roiMat.cols();
+        roiHeight = roiMat.rows();
+        Mat source = roiMat;
+        if (maskScale != SCALE_FULL) {
+            // Area interpolation averages each block, so thin fingers are not lost
+            double factor = 1.0 / maskScale;
+            Imgproc.resize(roiMat, scaledRoi, FROM_FACTORS, factor, factor, Imgproc.INTER_AREA);
+            source = scaledRoi;
+        }
 
-        // Combine the two masks
-        Core.bitwise_or(skinMask, skinMask2, skinMask);
+        segmentation.segment(source, skinMask);
 
         // Apply Gaussian blur
-        Imgproc.GaussianBlur(skinMask, skinMask, new Size(9, 9), 2, 2);
+        Imgproc.GaussianBlur(skinMask, skinMask, blurSize, blurSigma, blurSigma);
 
         // Apply morphological operations to clean up the mask
-        Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(5, 5));
         Imgproc.morphologyEx(skinMask, skinMask, Imgproc.MORPH_CLOSE, kernel);
 
+        if (fingerCounting && maskScale != SCALE_FULL) {
+            roiSize.width = roiWidth;
+            roiSize.height = roiHeight;
+            Imgproc.resize(skinMask, fullMask, roiSize, 0, 0, Imgproc.INTER_LINEAR);
+            Imgproc.threshold(fullMask, fullMask, 127, 255, Imgproc.THRESH_BINARY);
+            return fullMask;
+        }
         return skinMask;
     }
-    
-    private double calculateDistance(Point p1, Point p2) {
-        return Math.sqrt(Math.pow(p2.x - p1.x, 2) + Math.pow(p2.y - p1.y, 2));
+
+    /**
+     * Gets the number of native buffer allocations made by this processor's scratch arena.
+     * After the first frame at a given ROI size this should no longer grow. The contours
+     * from findContours and the convex hull and defect results are allocated anew by the
+     * OpenCV Java bindings on every call and are not included.
+     *
+     * @return The allocation count
+     */
+    public long getNativeAllocationCount() {
+        return arena.getNativeAllocationCount();
+    }
+
+    /**
+     * Releases all scratch buffers held by this processor.
+     */
+    @Override
+    public void close() {
+        arena.releaseTransient(contours);
+        arena.close();
+        segmentation.close();
+        SegmentationStrategy pending = pendingSegmentation.getAndSet(null);
+        if (pending != null) {
+            pending.close();
+        }
+    }
+
+    /**
+     * Finds the skin segmentation inside the current strategy, if it has one.
+     */
+    private SkinSegmentation getSkinSegmentation() {
+        SegmentationStrategy strategy = getSegmentationStrategy();
+        if (strategy instanceof SkinSegmentation) {
+            return (SkinSegmentation) strategy;
+        }
+        if (strategy instanceof HybridSegmentation) {
+            return ((HybridSegmentation) strategy).getSkinSegmentation();
+        }
+        return null;
+    }
+
+    /**
+     * Sets up the blur and morphology kernels for masks at the given scale. A strategy
+     * that learns from earlier frames is reset, since it learned at another size; that
+     * only happens when the processing scale or the strategy changes.
+     */
+    private void setMaskScale(int scale) {
+        if (maskScale != 0 && segmentation.needsFixedRegion()) {
+            segmentation.reset();
+        }
+        maskScale = scale;
+
+        int blur = scaledKernelSize(BLUR_SIZE, scale);
+        this.blurSize = new Size(blur, blur);
+        this.blurSigma = 2.0 / scale;
+
+        int morph = scaledKernelSize(KERNEL_SIZE, scale);
+        Mat element = Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(morph, morph));
+        element.copyTo(kernel);
+        element.release();
+    }
+
+    /**
+     * Resets a strategy that learns from earlier frames when the ROI is no longer
+     * the same part of the frame, since what it learned belongs to another place.
+     */
+    private void checkRegionMoved(Mat roiMat) {
+        if (!segmentation.needsFixedRegion()) {
+            return;
+        }
+        roiMat.locateROI(roiParentSize, roiOffset);
+        Rect region = new Rect((int) roiOffset.x, (int) roiOffset.y, roiMat.cols(), roiMat.rows());
+        if (segmentedRegion != null && !segmentedRegion.equals(region)) {
+            segmentation.reset();
+        }
+        segmentedRegion = region;
     }
     
-    private boolean isTooClose(List<Point> points, Point newPoint, double minDistance) {
-        for (Point p : points) {
-            if (calculateDistance(p, newPoint) < minDistance) {
-                return true;
-            }
+    /**
+     * Works out whether a mask was produced by {@link #createSkinMask(Mat)} at a
+     * reduced processing scale, by comparing its size with the last ROI.
+     *
+     * @return The scale the mask is at, or SCALE_FULL
+     */
+    private int getMaskScale(Mat mask) {
+        if (maskScale > SCALE_FULL
+                && mask.cols() == Math.round(roiWidth / (double) maskScale)
+                && mask.rows() == Math.round(roiHeight / (double) maskScale)) {
+            return maskScale;
+        }
+        return SCALE_FULL;
+    }
+
+    private static int scaledKernelSize(Size fullSize, int scale) {
+        // Keep the kernel odd and at least 3x3
+        return Math.max(3, ((int) fullSize.width / scale) | 1);
+    }
+
+    private double polygonArea(Point[] polygon) {
+        // Shoelace formula, same result as Imgproc.contourArea without a native buffer
+        double area = 0;
+        for (int i = 0, j = polygon.length - 1; i < polygon.length; j = i++) {
+            area += polygon[j].x * polygon[i].y - polygon[i].x * polygon[j].y;
         }
-        return false;
+        return Math.abs(area) / 2.0;
     }
 }
\ No newline at end of file
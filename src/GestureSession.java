@@ -0,0 +1,275 @@
+import org.opencv.core.Mat;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One camera station: its own frame source, processor and gesture state.
+ * Frames are captured on the session's own thread; analysis runs on a worker pool
+ * shared with other sessions (see {@link SessionEngine}), with at most one frame
+ * of a session in progress at a time so its detector state needs no locking.
+ * Each task analyses one frame and then yields the worker, so busy sessions
+ * cannot starve the others.
+ */
+public class GestureSession {
+    private static final int QUEUE_CAPACITY = 1;
+    private static final long OFFER_TIMEOUT_MS = 100;
+
+    private final String name;
+    private final FrameSource frameSource;
+    private final GestureProcessor gestureProcessor;
+    private final GestureHandler gestureHandler;
+    private final DeviceManager deviceManager;
+    private final FrameQueue<CapturedFrame> frames;
+    private final AtomicBoolean analysisScheduled;
+    private final CountDownLatch finished;
+
+    // Statistics: the interval counters are reset by each summary, the totals are not
+    private final AtomicLong intervalFrames;
+    private final AtomicLong intervalLatencyNanos;
+    private final AtomicLong intervalMaxLatencyNanos;
+    private final AtomicLong totalFrames;
+    private final AtomicLong totalLatencyNanos;
+
+    private volatile boolean running;
+    private volatile boolean sourceFinished;
+    private Executor workers;
+    private Thread captureThread;
+    private long nextTraceId;
+
+    /**
+     * Creates a session. The session takes ownership of the source, processor and handler.
+     *
+     * @param name A short name used in statistics output
+     * @param frameSource The camera or recording for this station
+     * @param gestureProcessor The processor used for this station's frames
+     * @param gestureHandler The gesture state of this station
+     * @param deviceManager The devices this station controls
+     */
+    public GestureSession(String name, FrameSource frameSource, GestureProcessor gestureProcessor,
+                          GestureHandler gestureHandler, DeviceManager deviceManager) {
+        this.name = name;
+        this.frameSource = frameSource;
+        this.gestureProcessor = gestureProcessor;
+        this.gestureHandler = gestureHandler;
+        this.deviceManager = deviceManager;
+        this.frames = new FrameQueue<>(name, QUEUE_CAPACITY, CapturedFrame::release);
+        this.analysisScheduled = new AtomicBoolean();
+        this.finished = new CountDownLatch(1);
+        this.intervalFrames = new AtomicLong();
+        this.intervalLatencyNanos = new AtomicLong();
+        this.intervalMaxLatencyNanos = new AtomicLong();
+        this.totalFrames = new AtomicLong();
+        this.totalLatencyNanos = new AtomicLong();
+    }
+
+    /**
+     * Starts capturing; analysis is run on the given workers.
+     *
+     * @param workers The shared worker pool
+     */
+    public void start(Executor workers) {
+        this.workers = workers;
+        running = true;
+        captureThread = new Thread(this::runCapture, name + "-capture");
+        captureThread.start();
+    }
+
+    /**
+     * Asks the session to finish. Returns immediately.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Waits until the session has finished.
+     *
+     * @param timeout How long to wait
+     * @param unit The unit of the timeout
+     * @return true if the session finished, false if the time ran out
+     * @throws InterruptedException If the waiting thread is interrupted
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    /**
+     * Releases the session's source and processing buffers. Call after it has finished.
+     */
+    public void release() {
+        frames.clear();
+        gestureProcessor.close();
+        if (gestureHandler.getHandTracker() != null) {
+            gestureHandler.getHandTracker().close();
+        }
+        if (gestureHandler.getMotionGate() != null) {
+            gestureHandler.getMotionGate().close();
+        }
+        if (gestureHandler.getDualRegionAnalyzer() != null) {
+            gestureHandler.getDualRegionAnalyzer().close();
+        }
+        frameSource.release();
+    }
+
+    private void runCapture() {
+        try {
+            while (running) {
+                long frameStart = System.nanoTime();
+                Mat image = frameSource.readFrame();
+                if (image == null) {
+                    break;
+                }
+                CapturedFrame frame = new CapturedFrame(image, new FrameTrace(nextTraceId++, System.nanoTime()));
+                if (frameSource.isRealTime()) {
+                    frames.offer(frame);
+                } else {
+                    // Recordings wait for the analysis so every frame is processed
+                    while (!frames.offer(frame, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        if (!running) {
+                            frame.release();
+                            break;
+                        }
+                    }
+                }
+                scheduleAnalysis();
+                throttleWhileIdle(frameStart);
+            }
+        } catch (Exception e) {
+            System.err.println("Error in " + name + " capture: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        // Let the analysis drain what is left, then finish
+        sourceFinished = true;
+        scheduleAnalysis();
+    }
+
+    /**
+     * While the motion gate is idle, waits out the rest of the idle frame interval so
+     * a live camera is read at the idle rate. Recordings are never slowed down.
+     *
+     * @param frameStart The time the current frame's capture started
+     */
+    private void throttleWhileIdle(long frameStart) throws InterruptedException {
+        MotionGate motionGate = gestureHandler.getMotionGate();
+        if (motionGate == null || !frameSource.isRealTime() || !motionGate.isIdle()) {
+            return;
+        }
+        long wait = motionGate.getIdleFrameIntervalNanos() - (System.nanoTime() - frameStart);
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private void scheduleAnalysis() {
+        if (analysisScheduled.compareAndSet(false, true)) {
+            workers.execute(this::analyseNextFrame);
+        }
+    }
+
+    /**
+     * Analyses the freshest waiting frame, then reschedules itself if more are waiting.
+     */
+    private void analyseNextFrame() {
+        try {
+            CapturedFrame frame = frames.poll(0, TimeUnit.MILLISECONDS);
+            if (frame != null) {
+                if (running) {
+                    analyse(frame);
+                }
+                frame.release();
+            }
+        } catch (Exception e) {
+            System.err.println("Error in " + name + " analysis: " + e.getMessage());
+            e.printStackTrace();
+            stop();
+        } finally {
+            analysisScheduled.set(false);
+        }
+
+        if (frames.depth() > 0) {
+            scheduleAnalysis();
+        } else if (sourceFinished) {
+            finished.countDown();
+        }
+    }
+
+    private void analyse(CapturedFrame frame) throws IOException {
+        gestureHandler.processFrame(frame, frameSource.getHandRegion(), gestureProcessor, deviceManager);
+
+        long latency = frame.getTrace().nanosSinceCapture();
+        intervalFrames.incrementAndGet();
+        intervalLatencyNanos.addAndGet(latency);
+        intervalMaxLatencyNanos.accumulateAndGet(latency, Math::max);
+        totalFrames.incrementAndGet();
+        totalLatencyNanos.addAndGet(latency);
+    }
+
+    /**
+     * Builds a one-line summary of this session's frame rate and capture-to-decision
+     * latency since the previous summary, and restarts the interval counters.
+     *
+     * @param elapsedNanos The time since the previous summary
+     * @return The statistics line
+     */
+    public String takeStatsSummary(long elapsedNanos) {
+        long count = intervalFrames.getAndSet(0);
+        long latency = intervalLatencyNanos.getAndSet(0);
+        long maxLatency = intervalMaxLatencyNanos.getAndSet(0);
+        return String.format("%s: %.1f fps, latency mean %.1f ms max %.1f ms, %d dropped",
+                name, count / (elapsedNanos / 1e9),
+                count == 0 ? 0.0 : latency / 1e6 / count, maxLatency / 1e6,
+                frames.getDroppedCount());
+    }
+
+    /**
+     * Gets the name of this session.
+     *
+     * @return The session name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the gesture handler holding this session's state.
+     *
+     * @return The gesture handler
+     */
+    public GestureHandler getGestureHandler() {
+        return gestureHandler;
+    }
+
+    /**
+     * Gets the total number of frames analysed.
+     *
+     * @return The analysed frame count
+     */
+    public long getAnalysedFrames() {
+        return totalFrames.get();
+    }
+
+    /**
+     * Gets the number of frames dropped because analysis fell behind the camera.
+     *
+     * @return The dropped frame count
+     */
+    public long getDroppedFrames() {
+        return frames.getDroppedCount();
+    }
+
+    /**
+     * Gets the mean capture-to-decision latency over the whole run.
+     *
+     * @return The mean latency in milliseconds
+     */
+    public double getMeanLatencyMillis() {
+        long count = totalFrames.get();
+        return count == 0 ? 0.0 : totalLatencyNanos.get() / 1e6 / count;
+    }
+}
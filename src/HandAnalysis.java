@@ -0,0 +1,205 @@
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of analysing the hand silhouette in one skin mask. Its lists cannot be
+ * modified, but the Points in them and those returned are the analysis's own
+ * OpenCV objects, not copies, so callers must treat them as read-only.
+ * Finger counting and height measurement both read from this, so the contour
+ * search, convex hull and moments only have to be computed once per frame.
+ */
+public final class HandAnalysis {
+    private final boolean handPresent;
+    private final int maskWidth;
+    private final int maskHeight;
+    private final List<Point> contour;
+    private final List<Point> hullPoints;
+    private final List<Point> defectPoints;
+    private final double contourArea;
+    private final Point centroid;
+    private final double palmRadius;
+    private final double solidity;
+    private final Point topmostPoint;
+
+    /**
+     * Creates an analysis describing a detected hand.
+     *
+     * @param maskWidth The width of the analysed mask
+     * @param maskHeight The height of the analysed mask
+     * @param contour The points of the largest contour
+     * @param hullPoints The convex hull points, in hull order
+     * @param defectPoints The farthest point of each convexity defect
+     * @param contourArea The area enclosed by the contour
+     * @param centroid The palm center computed from the contour moments
+     * @param palmRadius The estimated palm radius
+     * @param solidity The ratio of contour area to hull area
+     * @param topmostPoint The highest hull point above the centroid, or null if none
+     */
+    public HandAnalysis(int maskWidth, int maskHeight, Point[] contour, Point[] hullPoints,
+                        Point[] defectPoints, double contourArea, Point centroid,
+                        double palmRadius, double solidity, Point topmostPoint) {
+        this.handPresent = true;
+        this.maskWidth = maskWidth;
+        this.maskHeight = maskHeight;
+        this.contour = Collections.unmodifiableList(Arrays.asList(contour));
+        this.hullPoints = Collections.unmodifiableList(Arrays.asList(hullPoints));
+        this.defectPoints = Collections.unmodifiableList(Arrays.asList(defectPoints));
+        this.contourArea = contourArea;
+        this.centroid = centroid;
+        this.palmRadius = palmRadius;
+        this.solidity = solidity;
+        this.topmostPoint = topmostPoint;
+    }
+
+    private HandAnalysis(int maskWidth, int maskHeight) {
+        this.handPresent = false;
+        this.maskWidth = maskWidth;
+        this.maskHeight = maskHeight;
+        this.contour = Collections.emptyList();
+        this.hullPoints = Collections.emptyList();
+        this.defectPoints = Collections.emptyList();
+        this.contourArea = 0;
+        this.centroid = null;
+        this.palmRadius = 0;
+        this.solidity = 0;
+        this.topmostPoint = null;
+    }
+
+    /**
+     * Creates an analysis for a mask in which no hand-sized contour was found.
+     *
+     * @param maskWidth The width of the analysed mask
+     * @param maskHeight The height of the analysed mask
+     * @return An analysis with no hand present
+     */
+    public static HandAnalysis noHand(int maskWidth, int maskHeight) {
+        return new HandAnalysis(maskWidth, maskHeight);
+    }
+
+    /**
+     * Checks whether a contour large enough to be a hand was found.
+     *
+     * @return true if a hand is present
+     */
+    public boolean isHandPresent() {
+        return handPresent;
+    }
+
+    /**
+     * Gets the width of the analysed mask.
+     *
+     * @return The mask width in pixels
+     */
+    public int getMaskWidth() {
+        return maskWidth;
+    }
+
+    /**
+     * Gets the height of the analysed mask.
+     *
+     * @return The mask height in pixels
+     */
+    public int getMaskHeight() {
+        return maskHeight;
+    }
+
+    /**
+     * Gets the points of the largest contour.
+     *
+     * @return A read-only list of contour points
+     */
+    public List<Point> getContour() {
+        return contour;
+    }
+
+    /**
+     * Gets the convex hull points of the hand contour.
+     *
+     * @return A read-only list of hull points
+     */
+    public List<Point> getHullPoints() {
+        return hullPoints;
+    }
+
+    /**
+     * Gets the farthest point of each convexity defect.
+     *
+     * @return A read-only list of defect points
+     */
+    public List<Point> getDefectPoints() {
+        return defectPoints;
+    }
+
+    /**
+     * Gets the smallest upright rectangle containing the hand contour.
+     *
+     * @return The bounding box in mask coordinates, or null if no hand is present
+     */
+    public Rect getBoundingBox() {
+        if (!handPresent) {
+            return null;
+        }
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (Point p : contour) {
+            minX = Math.min(minX, p.x);
+            minY = Math.min(minY, p.y);
+            maxX = Math.max(maxX, p.x);
+            maxY = Math.max(maxY, p.y);
+        }
+        int x = (int) Math.floor(minX);
+        int y = (int) Math.floor(minY);
+        return new Rect(x, y, (int) Math.ceil(maxX) - x + 1, (int) Math.ceil(maxY) - y + 1);
+    }
+
+    /**
+     * Gets the area enclosed by the hand contour.
+     *
+     * @return The contour area in pixels
+     */
+    public double getContourArea() {
+        return contourArea;
+    }
+
+    /**
+     * Gets the palm center computed from the contour moments.
+     *
+     * @return The palm center, or null if no hand is present
+     */
+    public Point getCentroid() {
+        return centroid;
+    }
+
+    /**
+     * Gets the estimated palm radius.
+     *
+     * @return The palm radius in pixels
+     */
+    public double getPalmRadius() {
+        return palmRadius;
+    }
+
+    /**
+     * Gets the ratio of contour area to convex hull area.
+     *
+     * @return The solidity (close to 1 for a closed fist)
+     */
+    public double getSolidity() {
+        return solidity;
+    }
+
+    /**
+     * Gets the highest hull point above the palm center.
+     *
+     * @return The topmost point, or null if there is none
+     */
+    public Point getTopmostPoint() {
+        return topmostPoint;
+    }
+}
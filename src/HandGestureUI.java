@@ -4,20 +4,247 @@
 import org.opencv.core.*;
 import org.opencv.imgproc.Imgproc;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Handles all UI-related functionality for the hand gesture recognition app.
  * Responsible for drawing information and instructions on frames.
+ * Text that only changes with the frame size or the device list is rendered once
+ * into a cached layer and copied onto each frame through its mask. Labels holding a
+ * count, height or device value are built once per value, and the hand outline is
+ * drawn from a reused point buffer.
+ * Not thread safe: use one instance per display.
  */
 public class HandGestureUI {
     // Constants for text positioning and formatting
     private static final Point PRIMARY_TEXT_POSITION = new Point(30, 30);
     private static final Point SECONDARY_TEXT_POSITION = new Point(30, 60);
+    private static final Point CONTROLLING_POSITION = new Point(10, 70);
+    private static final Point VALUE_POSITION = new Point(10, 100);
+    private static final Point ROI_COUNT_POSITION = new Point(10, 30);
+    private static final Point ROI_TEXT_POSITION = new Point(10, 60);
     private static final Scalar PRIMARY_TEXT_COLOR = new Scalar(0, 255, 0);
     private static final Scalar INSTRUCTION_COLOR = new Scalar(0, 255, 255);
     private static final double PRIMARY_TEXT_SCALE = 1.0;
     private static final double SECONDARY_TEXT_SCALE = 0.8;
     private static final int TEXT_THICKNESS = 2;
     
+    // Colors for the overlays drawn inside the hand region
+    private static final Scalar RED = new Scalar(0, 0, 255);
+    private static final Scalar GREEN = new Scalar(0, 255, 0);
+    private static final Scalar BLUE = new Scalar(255, 0, 0);
+    private static final Scalar CYAN = new Scalar(255, 255, 0);
+    private static final Scalar YELLOW = new Scalar(0, 255, 255);
+    private static final Scalar MAGENTA = new Scalar(255, 0, 255);
+    private static final Scalar MASK_ON = new Scalar(255);
+
+    // Static text, re-rendered only when the frame size or the device list changes
+    private final TextLayer deviceOptionsLayer = new TextLayer();
+    private final TextLayer instructionsLayer = new TextLayer();
+
+    // Labels for the current device list
+    private DeviceManager labelledDevices;
+    private int labelledDeviceCount = -1;
+    private String[] controllingLabels = new String[0];
+    private NumberLabels[] valueLabels = new NumberLabels[0];
+
+    private final NumberLabels fingerCountLabels = new NumberLabels("Fingers: ", "");
+    private final NumberLabels roiCountLabels = new NumberLabels("Count: ", "");
+    private NumberLabels collectingLabels = new NumberLabels("Collecting: ", "/0");
+    private int collectingTotal;
+    private final HeightLabels roiHeightLabels = new HeightLabels("Height: %.1f%%", 1);
+    private final HeightLabels heightLabels = new HeightLabels("Height: %.2f%%", 2);
+
+    // The hand outline, reused every frame
+    private final MatOfPoint outline = new MatOfPoint();
+    private final List<MatOfPoint> outlines = Collections.singletonList(outline);
+    private int[] outlineCoords = new int[0];
+    // Positions that depend on the frame, reused every frame
+    private final Point textPosition = new Point();
+    private final Point lineStart = new Point();
+    private final Point lineEnd = new Point();
+    
+    /**
+     * Draws everything known about a processed frame: the hand region, the hand
+     * overlays inside it and the status text. Only needed when a display is attached.
+     * 
+     * @param frame The frame to draw on
+     * @param observation The observation produced for this frame
+     * @param deviceManager The device manager, used for device names
+     */
+    public void render(Mat frame, FrameObservation observation, DeviceManager deviceManager) {
+        // Draw the hand detection region
+        drawHandRegion(frame, observation.getHandRegion());
+        
+        Mat roiFrame = frame.submat(observation.getHandRegion());
+        if (observation.getMode() == GestureHandler.MODE_TWO_HAND) {
+            // Selection hand in the hand region, control hand in its own region
+            drawFingerDetection(roiFrame, observation.getHand(), observation.getFingers());
+            displayFingerCount(frame, observation.getFingerCount());
+            displayDeviceOptions(frame, deviceManager);
+            if (observation.isCollecting()) {
+                displayCollectionProgress(frame, observation, deviceManager.getControllerCount());
+            }
+
+            drawHandRegion(frame, observation.getControlRegion());
+            Mat controlFrame = frame.submat(observation.getControlRegion());
+            drawHeightMeasurement(controlFrame, observation.getControlHand(), observation.getHeightPercentage());
+            controlFrame.release();
+            if (observation.getDeviceValue() >= 0) {
+                // The device list takes the top left, so show the value along the bottom
+                textPosition.x = 10;
+                textPosition.y = frame.rows() - 20;
+                displayText(frame, valueLabel(deviceManager, observation), textPosition, CYAN, 1.0);
+            }
+        } else if (observation.getMode() == GestureHandler.MODE_FINGER_COUNTING) {
+            drawFingerDetection(roiFrame, observation.getHand(), observation.getFingers());
+            displayFingerCount(frame, observation.getFingerCount());
+            
+            // Display device options when in finger counting mode
+            displayDeviceOptions(frame, deviceManager);
+            if (observation.isCollecting()) {
+                displayCollectionProgress(frame, observation, deviceManager.getControllerCount());
+            }
+        } else if (observation.getMode() == GestureHandler.MODE_DISTANCE_MEASUREMENT &&
+                  observation.getSelectedDeviceIndex() >= 0) {
+            // The height is measured against the reference region, which the tracked region may not match
+            int adjustedBottom = observation.getReferenceRegion().y - observation.getHandRegion().y
+                    + GestureProcessor.getAdjustedBottom(observation.getReferenceRegion().height);
+            drawHeightMeasurement(roiFrame, observation.getHand(), observation.getHeightPercentage(),
+                    adjustedBottom);
+            displayHeightPercentage(frame, observation.getHeightPercentage());
+            
+            if (observation.getDeviceValue() >= 0) {
+                // Display the control value
+                displayText(frame, valueLabel(deviceManager, observation), VALUE_POSITION, CYAN, 1.0);
+            }
+        }
+        roiFrame.release();
+        
+        // Display instructions
+        int selectedDeviceIndex = observation.getSelectedDeviceIndex();
+        if (selectedDeviceIndex >= 0) {
+            // Get the actual device name instead of just the index
+            updateDeviceLabels(deviceManager);
+            displayText(frame, controllingLabels[selectedDeviceIndex], CONTROLLING_POSITION, 
+                        PRIMARY_TEXT_COLOR, 1.0);
+        } else {
+            displayHandPlacementInstructions(frame);
+        }
+    }
+    
+    /**
+     * Draws the hand contour, palm and detected fingertips inside the hand region
+     * 
+     * @param roiFrame The hand region of the frame to draw on
+     * @param hand The hand analysis
+     * @param fingers The fingertip detection for the hand
+     */
+    public void drawFingerDetection(Mat roiFrame, HandAnalysis hand, FingerDetection fingers) {
+        if (!hand.isHandPresent()) {
+            return;
+        }
+        Point center = hand.getCentroid();
+        Imgproc.circle(roiFrame, center, 5, YELLOW, -1);
+        drawContour(roiFrame, hand);
+        Imgproc.circle(roiFrame, center, (int) hand.getPalmRadius(), MAGENTA, 2);
+        
+        if (fingers.isFist()) {
+            Imgproc.putText(roiFrame, "Fist detected", ROI_TEXT_POSITION,
+                    Imgproc.FONT_HERSHEY_SIMPLEX, 0.7, RED, 2);
+        } else {
+            for (Point p : fingers.getCandidates()) {
+                Imgproc.circle(roiFrame, p, 5, GREEN, -1);
+            }
+            if (fingers.getThumb() != null) {
+                Imgproc.circle(roiFrame, fingers.getThumb(), 12, CYAN, -1);
+            }
+            for (Point p : fingers.getFingerTips()) {
+                Imgproc.circle(roiFrame, p, 12, BLUE, -1);
+                Imgproc.line(roiFrame, center, p, CYAN, 2);
+            }
+        }
+        
+        // Add text showing finger count directly on ROI image
+        Imgproc.putText(roiFrame, roiCountLabels.get(fingers.getFingerCount()), ROI_COUNT_POSITION,
+                Imgproc.FONT_HERSHEY_SIMPLEX, 0.8, RED, 2);
+    }
+    
+    /**
+     * Draws the index finger height measurement inside the hand region
+     * 
+     * @param roiFrame The hand region of the frame to draw on
+     * @param hand The hand analysis
+     * @param percentage The measured height percentage
+     */
+    public void drawHeightMeasurement(Mat roiFrame, HandAnalysis hand, double percentage) {
+        drawHeightMeasurement(roiFrame, hand, percentage, GestureProcessor.getAdjustedBottom(roiFrame.rows()));
+    }
+    
+    /**
+     * Draws the index finger height measurement inside the hand region, against
+     * a bottom line that may lie outside the region (when the hand is tracked)
+     * 
+     * @param roiFrame The hand region of the frame to draw on
+     * @param hand The hand analysis
+     * @param percentage The measured height percentage
+     * @param adjustedBottom The row of the measurement's bottom line, in region coordinates
+     */
+    public void drawHeightMeasurement(Mat roiFrame, HandAnalysis hand, double percentage, int adjustedBottom) {
+        if (!hand.isHandPresent()) {
+            return;
+        }
+        drawContour(roiFrame, hand);
+        Imgproc.circle(roiFrame, hand.getCentroid(), 5, YELLOW, -1);
+        
+        Point indexTip = hand.getTopmostPoint();
+        if (indexTip != null) {
+            // Draw the index finger tip
+            Imgproc.circle(roiFrame, indexTip, 8, RED, -1);
+            
+            // Draw a line showing the measurement
+            lineEnd.x = indexTip.x;
+            lineEnd.y = adjustedBottom;
+            Imgproc.line(roiFrame, indexTip, lineEnd, CYAN, 2);
+            
+            // Draw the adjusted bottom line
+            lineStart.x = 0;
+            lineStart.y = adjustedBottom;
+            lineEnd.x = roiFrame.cols();
+            Imgproc.line(roiFrame, lineStart, lineEnd, BLUE, 2);
+            
+            // Add text showing the measured percentage
+            Imgproc.putText(roiFrame, roiHeightLabels.get(percentage),
+                    ROI_TEXT_POSITION, Imgproc.FONT_HERSHEY_SIMPLEX, 0.7, YELLOW, 2);
+        }
+    }
+    
+    /**
+     * Displays how many frames have been collected for the current gesture
+     * 
+     * @param frame The frame to draw on
+     * @param observation The observation holding the collection progress
+     * @param deviceCount The number of devices listed above the progress text
+     */
+    public void displayCollectionProgress(Mat frame, FrameObservation observation, int deviceCount) {
+        // Calculate position for the collection progress text
+        int yPosition = 90 + 25 + (deviceCount * 25) + 35;
+        
+        if (observation.getFramesToCollect() != collectingTotal) {
+            collectingTotal = observation.getFramesToCollect();
+            collectingLabels = new NumberLabels("Collecting: ", "/" + collectingTotal);
+        }
+        textPosition.x = 30;
+        textPosition.y = yPosition;
+        displayText(frame, 
+                collectingLabels.get(observation.getCollectedFrames()), 
+                textPosition, 
+                CYAN, 
+                0.7);
+    }
+    
     /**
      * Displays the result of finger counting operation
      * 
@@ -25,7 +252,7 @@ public class HandGestureUI {
      * @param fingerCount The number of fingers detected
      */
     public void displayFingerCount(Mat frame, int fingerCount) {
-        Imgproc.putText(frame, "Fingers: " + fingerCount, 
+        Imgproc.putText(frame, fingerCountLabels.get(fingerCount), 
                 PRIMARY_TEXT_POSITION,
                 Imgproc.FONT_HERSHEY_SIMPLEX, 
                 PRIMARY_TEXT_SCALE, 
@@ -40,7 +267,7 @@ public class HandGestureUI {
      * @param percentage The percentage value to display
      */
     public void displayHeightPercentage(Mat frame, double percentage) {
-        Imgproc.putText(frame, "Height: " + String.format("%.2f", percentage) + "%",
+        Imgproc.putText(frame, heightLabels.get(percentage),
                 PRIMARY_TEXT_POSITION, 
                 Imgproc.FONT_HERSHEY_SIMPLEX, 
                 PRIMARY_TEXT_SCALE, 
@@ -54,15 +281,16 @@ public class HandGestureUI {
      * @param frame The frame to draw on
      */
     public void displayHandPlacementInstructions(Mat frame) {
-        String instructions = "Place your hand in the yellow box";
-        Point position = new Point(30, frame.rows() - 20);
-        
-        Imgproc.putText(frame, instructions, 
-                position,
-                Imgproc.FONT_HERSHEY_SIMPLEX, 
-                0.7, 
-                INSTRUCTION_COLOR, 
-                TEXT_THICKNESS);
+        if (!instructionsLayer.matches(frame, null, 0)) {
+            instructionsLayer.begin(frame, null, 0);
+            instructionsLayer.putText("Place your hand in the yellow box",
+                    new Point(30, frame.rows() - 20),
+                    0.7,
+                    INSTRUCTION_COLOR,
+                    TEXT_THICKNESS);
+            instructionsLayer.finish();
+        }
+        instructionsLayer.copyTo(frame);
     }
     
     /**
@@ -107,14 +335,18 @@ public class HandGestureUI {
      */
     public void displayDeviceOptions(Mat frame, DeviceManager deviceManager) {
         int deviceCount = deviceManager.getControllerCount();
+        if (deviceOptionsLayer.matches(frame, deviceManager, deviceCount)) {
+            deviceOptionsLayer.copyTo(frame);
+            return;
+        }
+        deviceOptionsLayer.begin(frame, deviceManager, deviceCount);
         
         // Start position for the first device option
         int yPosition = 90; // Start below other UI elements
         
         // Display header text
-        Imgproc.putText(frame, "Available devices:", 
+        deviceOptionsLayer.putText("Available devices:", 
                 new Point(30, yPosition),
-                Imgproc.FONT_HERSHEY_SIMPLEX, 
                 0.7, 
                 INSTRUCTION_COLOR, 
                 TEXT_THICKNESS);
@@ -126,9 +358,8 @@ public class HandGestureUI {
             String deviceName = deviceManager.getDeviceName(i);
             String deviceInfo = (i + 1) + ": " + deviceName; // Display 1-based indexing for users
             
-            Imgproc.putText(frame, deviceInfo, 
+            deviceOptionsLayer.putText(deviceInfo, 
                     new Point(40, yPosition), // Indented from header
-                    Imgproc.FONT_HERSHEY_SIMPLEX, 
                     0.65, 
                     PRIMARY_TEXT_COLOR, 
                     1);
@@ -138,11 +369,206 @@ public class HandGestureUI {
         
         // Display instruction about how to select devices
         yPosition += 10; // Add some extra space
-        Imgproc.putText(frame, "Show fingers to select device", 
+        deviceOptionsLayer.putText("Show fingers to select device", 
                 new Point(30, yPosition),
-                Imgproc.FONT_HERSHEY_SIMPLEX, 
                 0.65, 
                 INSTRUCTION_COLOR, 
                 1);
+        deviceOptionsLayer.finish();
+        deviceOptionsLayer.copyTo(frame);
+    }
+
+    /**
+     * Gets the "<device> Value: <value>" label for the observation's device value
+     */
+    private String valueLabel(DeviceManager deviceManager, FrameObservation observation) {
+        updateDeviceLabels(deviceManager);
+        return valueLabels[observation.getSelectedDeviceIndex()].get(observation.getDeviceValue());
+    }
+
+    /**
+     * Rebuilds the per-device labels when the device list has changed
+     */
+    private void updateDeviceLabels(DeviceManager deviceManager) {
+        int deviceCount = deviceManager.getControllerCount();
+        if (deviceManager == labelledDevices && deviceCount == labelledDeviceCount) {
+            return;
+        }
+        controllingLabels = new String[deviceCount];
+        valueLabels = new NumberLabels[deviceCount];
+        for (int i = 0; i < deviceCount; i++) {
+            String deviceName = deviceManager.getDeviceName(i);
+            controllingLabels[i] = "Controlling: " + deviceName;
+            valueLabels[i] = new NumberLabels(deviceName + " Value: ", "");
+        }
+        labelledDevices = deviceManager;
+        labelledDeviceCount = deviceCount;
+    }
+
+    private void drawContour(Mat roiFrame, HandAnalysis hand) {
+        List<Point> contour = hand.getContour();
+        int count = contour.size();
+        if (count == 0) {
+            return;
+        }
+        if (count > outline.rows()) {
+            // Grow by doubling, so the native buffer is only reallocated a few times
+            int capacity = Math.max(count, 2 * outline.rows());
+            outline.create(capacity, 1, CvType.CV_32SC2);
+            outlineCoords = new int[2 * capacity];
+        }
+        int i = 0;
+        for (; i < count; i++) {
+            Point p = contour.get(i);
+            outlineCoords[2 * i] = (int) p.x;
+            outlineCoords[2 * i + 1] = (int) p.y;
+        }
+        // Pad with the last point: the extra segments have no length, so the outline is unchanged
+        for (; i < outline.rows(); i++) {
+            outlineCoords[2 * i] = outlineCoords[2 * count - 2];
+            outlineCoords[2 * i + 1] = outlineCoords[2 * count - 1];
+        }
+        outline.put(0, 0, outlineCoords);
+        Imgproc.polylines(roiFrame, outlines, true, GREEN, 2);
+    }
+
+    /**
+     * Labels made of a fixed prefix, a non-negative number and a fixed suffix,
+     * built the first time each number is shown and reused afterwards
+     */
+    private static final class NumberLabels {
+        private final String prefix;
+        private final String suffix;
+        private String[] labels = new String[16];
+
+        NumberLabels(String prefix, String suffix) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        String get(int number) {
+            if (number < 0) {
+                return prefix + number + suffix;
+            }
+            if (number >= labels.length) {
+                labels = Arrays.copyOf(labels, Math.max(number + 1, labels.length * 2));
+            }
+            String label = labels[number];
+            if (label == null) {
+                label = prefix + number + suffix;
+                labels[number] = label;
+            }
+            return label;
+        }
+    }
+
+    /**
+     * "Height: <percentage>%" labels with a fixed number of decimals, formatted the first
+     * time each rounded value is shown and reused afterwards. Formatter rounds the shortest
+     * decimal form of a double half up, which can differ from rounding its binary value
+     * (1.005 gives "1.01"), so values within rounding error of a tie are always formatted.
+     */
+    private static final class HeightLabels {
+        private static final int MAX_PERCENT = 100;
+        private static final double TIE_TOLERANCE = 1e-6;
+
+        private final String format;
+        private final int scale;
+        private final String[] labels;
+
+        HeightLabels(String format, int decimals) {
+            this.format = format;
+            this.scale = decimals == 1 ? 10 : 100;
+            this.labels = new String[MAX_PERCENT * scale + 1];
+        }
+
+        String get(double percentage) {
+            double scaled = percentage * scale;
+            long rounded = Math.round(scaled);
+            // Negative values, -0.0 ("-0.00") and NaN are not cached
+            if (!(percentage >= 0) || Math.copySign(1.0, percentage) < 0 || rounded >= labels.length
+                    || Math.abs(scaled - Math.floor(scaled) - 0.5) < TIE_TOLERANCE) {
+                return String.format(format, percentage);
+            }
+            String label = labels[(int) rounded];
+            if (label == null) {
+                label = String.format(format, percentage);
+                labels[(int) rounded] = label;
+            }
+            return label;
+        }
+    }
+
+    /**
+     * Text rendered once into a layer and a mask of the frame's size, then copied onto
+     * each frame through the mask. The text is drawn without anti-aliasing, so the
+     * copy gives exactly the pixels putText would. Only the bounding box of the text
+     * is copied.
+     */
+    private static final class TextLayer {
+        private Mat layer;
+        private Mat mask;
+        private Mat layerBounds;
+        private Mat maskBounds;
+        private Rect bounds;
+        private int cols = -1;
+        private int rows = -1;
+        private int type = -1;
+        private Object owner;
+        private int version;
+
+        /**
+         * Checks whether the layer was rendered for this frame size and content
+         */
+        boolean matches(Mat frame, Object owner, int version) {
+            return frame.cols() == cols && frame.rows() == rows && frame.type() == type
+                    && owner == this.owner && version == this.version;
+        }
+
+        /**
+         * Clears the layer for new text, sized for the frame
+         */
+        void begin(Mat frame, Object owner, int version) {
+            release();
+            cols = frame.cols();
+            rows = frame.rows();
+            type = frame.type();
+            this.owner = owner;
+            this.version = version;
+            layer = Mat.zeros(rows, cols, type);
+            mask = Mat.zeros(rows, cols, CvType.CV_8UC1);
+        }
+
+        void putText(String text, Point position, double scale, Scalar color, int thickness) {
+            Imgproc.putText(layer, text, position, Imgproc.FONT_HERSHEY_SIMPLEX, scale, color, thickness);
+            Imgproc.putText(mask, text, position, Imgproc.FONT_HERSHEY_SIMPLEX, scale, MASK_ON, thickness);
+        }
+
+        /**
+         * Finds the part of the layer holding text once all text is drawn
+         */
+        void finish() {
+            bounds = Imgproc.boundingRect(mask);
+            layerBounds = layer.submat(bounds);
+            maskBounds = mask.submat(bounds);
+        }
+
+        void copyTo(Mat frame) {
+            if (bounds.area() == 0) {
+                return;
+            }
+            Mat target = frame.submat(bounds);
+            layerBounds.copyTo(target, maskBounds);
+            target.release();
+        }
+
+        private void release() {
+            if (layer != null) {
+                layerBounds.release();
+                maskBounds.release();
+                layer.release();
+                mask.release();
+            }
+        }
     }
-}
\ No newline at end of file
+}
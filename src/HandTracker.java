@@ -0,0 +1,155 @@
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+/**
+ * Follows the hand from frame to frame so only the area around it is processed.
+ * While the hand is tracked, the region to analyse is the previous frame's hand
+ * bounding box plus a margin, anchored at the top of the hand and never larger
+ * than the reference region (so the forearm is cut off as with the fixed box).
+ * Once the hand has been missing for a few frames, the whole frame is searched
+ * at a quarter of its resolution, segmented the same way as the analysed region;
+ * if nothing is found the reference region is used. While nothing is found the
+ * search is only repeated every few frames; in between, a hand is still picked up
+ * as soon as it shows in the reference region.
+ */
+public class HandTracker implements AutoCloseable {
+    private static final double MARGIN_FRACTION = 0.25;
+    private static final int MIN_MARGIN = 20;
+    private static final int LOST_AFTER_FRAMES = 3;
+    private static final int SEARCH_INTERVAL_FRAMES = 5;
+
+    private final GestureProcessor searchProcessor;
+    private Rect handBox;
+    private int missedFrames;
+    private int framesUntilSearch;
+    private long searches;
+    private long trackedFrames;
+
+    /**
+     * Creates a tracker that has not found a hand yet.
+     */
+    public HandTracker() {
+        this.searchProcessor = new GestureProcessor(GestureProcessor.SCALE_QUARTER);
+    }
+
+    /**
+     * Chooses the region of the frame to analyse.
+     *
+     * @param frame The full frame
+     * @param referenceRegion The fixed hand region, used when no hand can be found
+     * @param gestureProcessor The processor the region is analysed with; a search segments
+     *                         the frame with the same strategy
+     * @return The region to analyse this frame
+     */
+    public Rect locate(Mat frame, Rect referenceRegion, GestureProcessor gestureProcessor) {
+        if (handBox != null) {
+            trackedFrames++;
+        } else if (framesUntilSearch > 0) {
+            framesUntilSearch--;
+        } else {
+            handBox = search(frame, gestureProcessor);
+            if (handBox == null) {
+                framesUntilSearch = SEARCH_INTERVAL_FRAMES - 1;
+            }
+        }
+        if (handBox == null) {
+            return referenceRegion;
+        }
+        return regionAround(handBox, referenceRegion, frame.cols(), frame.rows());
+    }
+
+    /**
+     * Updates the tracked hand position from the analysis of the region returned by
+     * {@link #locate(Mat, Rect, GestureProcessor)}.
+     *
+     * @param analysedRegion The region that was analysed
+     * @param hand The hand analysis for that region
+     */
+    public void update(Rect analysedRegion, HandAnalysis hand) {
+        if (hand.isHandPresent()) {
+            Rect box = hand.getBoundingBox();
+            handBox = new Rect(analysedRegion.x + box.x, analysedRegion.y + box.y, box.width, box.height);
+            missedFrames = 0;
+        } else if (handBox != null && ++missedFrames >= LOST_AFTER_FRAMES) {
+            // Search for it right away
+            handBox = null;
+            missedFrames = 0;
+            framesUntilSearch = 0;
+        }
+    }
+
+    /**
+     * Checks whether a hand is currently being tracked.
+     *
+     * @return true while tracking
+     */
+    public boolean isTracking() {
+        return handBox != null;
+    }
+
+    /**
+     * Checks whether the next {@link #locate(Mat, Rect, GestureProcessor)} call will search
+     * the whole frame.
+     *
+     * @return true if a search is due
+     */
+    public boolean isSearchDue() {
+        return handBox == null && framesUntilSearch == 0;
+    }
+
+    /**
+     * Gets the number of full-frame searches made because the hand was lost.
+     *
+     * @return The search count
+     */
+    public long getSearchCount() {
+        return searches;
+    }
+
+    /**
+     * Gets the number of frames in which only the tracked region was processed.
+     *
+     * @return The tracked frame count
+     */
+    public long getTrackedFrameCount() {
+        return trackedFrames;
+    }
+
+    /**
+     * Releases the buffers of the full-frame search.
+     */
+    @Override
+    public void close() {
+        searchProcessor.close();
+    }
+
+    /**
+     * Looks for the largest hand shape in a downscaled copy of the whole frame.
+     *
+     * @return The hand's bounding box in frame coordinates, or null if none was found
+     */
+    private Rect search(Mat frame, GestureProcessor gestureProcessor) {
+        // Follow the strategy and skin classifier in use, including changes made at runtime
+        String segmentation = gestureProcessor.getSegmentationStrategy().getName();
+        if (!segmentation.equals(searchProcessor.getSegmentationStrategy().getName())) {
+            searchProcessor.setSegmentationStrategy(SegmentationStrategy.create(segmentation));
+        }
+        searches++;
+        HandAnalysis hand = searchProcessor.analyzeHand(searchProcessor.createSkinMask(frame));
+        return hand.isHandPresent() ? hand.getBoundingBox() : null;
+    }
+
+    private static Rect regionAround(Rect box, Rect reference, int frameWidth, int frameHeight) {
+        int marginX = Math.max(MIN_MARGIN, (int) (box.width * MARGIN_FRACTION));
+        int marginY = Math.max(MIN_MARGIN, (int) (box.height * MARGIN_FRACTION));
+        int width = Math.min(box.width + 2 * marginX, reference.width);
+        int height = Math.min(box.height + 2 * marginY, reference.height);
+
+        // Centered on the hand horizontally, anchored just above the fingertips
+        int x = box.x + box.width / 2 - width / 2;
+        int y = box.y - marginY;
+        x = Math.max(0, Math.min(x, frameWidth - width));
+        y = Math.max(0, Math.min(y, frameHeight - height));
+        return new Rect(x, y, Math.min(width, frameWidth), Math.min(height, frameHeight));
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Smooths the hand height of successive frames before it is sent to a device, and
+ * predicts where the height will be a little later, so a value can make up for the
+ * time its frame spent in the pipeline.
+ * Implementations keep their state in primitive fields and do not allocate per call.
+ */
+public interface HeightFilter {
+    /** Speeds below this, in percent per second, are treated as noise and not extrapolated. */
+    double PREDICTION_SPEED_DEADBAND = 20.0;
+
+    /**
+     * Adds the height measured in one frame.
+     *
+     * @param percentage The measured height percentage
+     * @param timeNanos The capture time of the frame (System.nanoTime() units)
+     * @return The smoothed height percentage at that time
+     */
+    double filter(double percentage, long timeNanos);
+
+    /**
+     * Extrapolates the smoothed height from the last frame's time.
+     *
+     * @param aheadNanos How far past the last frame's capture time to predict
+     * @return The predicted height percentage, or the smoothed height if no frame was added yet
+     */
+    double predict(long aheadNanos);
+
+    /**
+     * Forgets all previous frames, for example when another device is selected.
+     */
+    void reset();
+
+    /**
+     * Extrapolates a height with its speed. The speed is first shrunk towards zero by
+     * {@link #PREDICTION_SPEED_DEADBAND}, so noise in the speed of a resting hand does
+     * not make the prediction jitter.
+     *
+     * @param percentage The smoothed height percentage
+     * @param speed The smoothed speed, in percent per second
+     * @param aheadNanos How far ahead to extrapolate
+     * @return The extrapolated height percentage
+     */
+    static double extrapolate(double percentage, double speed, long aheadNanos) {
+        double significantSpeed = Math.signum(speed) * Math.max(0, Math.abs(speed) - PREDICTION_SPEED_DEADBAND);
+        return percentage + significantSpeed * (aheadNanos / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,72 @@
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Keeps only the skin-colored pixels near the foreground of a background model.
+ * Skin gives the hand its shape; the background model removes skin-colored parts
+ * of the scene (warm walls, wooden furniture under warm light) that never move.
+ * The foreground is dilated first so a hand that the model has partly learned
+ * keeps its outline.
+ */
+public class HybridSegmentation implements SegmentationStrategy {
+    private static final Size DILATE_SIZE = new Size(15, 15);
+
+    private final SkinSegmentation skin;
+    private final BackgroundSegmentation background;
+    private final Mat foreground = new Mat();
+    private final Mat dilateKernel;
+
+    /**
+     * Creates a hybrid of two strategies; both are closed with this one.
+     *
+     * @param skin The skin segmentation
+     * @param background The background segmentation
+     */
+    public HybridSegmentation(SkinSegmentation skin, BackgroundSegmentation background) {
+        this.skin = skin;
+        this.background = background;
+        this.dilateKernel = Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, DILATE_SIZE);
+    }
+
+    /**
+     * Gets the skin part, for changing its thresholds or classifier.
+     *
+     * @return The skin segmentation
+     */
+    public SkinSegmentation getSkinSegmentation() {
+        return skin;
+    }
+
+    @Override
+    public void segment(Mat roi, Mat mask) {
+        skin.segment(roi, mask);
+        background.segment(roi, foreground);
+        Imgproc.dilate(foreground, foreground, dilateKernel);
+        Core.bitwise_and(mask, foreground, mask);
+    }
+
+    @Override
+    public boolean needsFixedRegion() {
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        background.reset();
+    }
+
+    @Override
+    public String getName() {
+        return HYBRID;
+    }
+
+    @Override
+    public void close() {
+        skin.close();
+        background.close();
+        foreground.release();
+        dilateKernel.release();
+    }
+}
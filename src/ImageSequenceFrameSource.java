@@ -0,0 +1,51 @@
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Replays a directory of still images as video frames, in file name order.
+ * Files that cannot be decoded as images are skipped.
+ */
+public class ImageSequenceFrameSource extends ReplayFrameSource {
+    public static final double DEFAULT_FPS = 30.0;
+
+    private final File[] files;
+    private int nextFile;
+
+    /**
+     * Opens a directory of images for replay.
+     *
+     * @param directory The directory containing the frames
+     * @param fps The frame rate to replay at when replaying in real time
+     * @param realTime true to pace frames at the given rate, false for unthrottled replay
+     * @throws RuntimeException if the directory cannot be read
+     */
+    public ImageSequenceFrameSource(File directory, double fps, boolean realTime) {
+        super(fps, realTime);
+        File[] listed = directory.listFiles(File::isFile);
+        if (listed == null) {
+            throw new RuntimeException("Error: Cannot read image directory " + directory);
+        }
+        Arrays.sort(listed);
+        this.files = listed;
+    }
+
+    @Override
+    protected Mat readNextFrame() {
+        while (nextFile < files.length) {
+            Mat frame = Imgcodecs.imread(files[nextFile++].getPath());
+            if (!frame.empty()) {
+                return frame;
+            }
+            frame.release();
+        }
+        return null;
+    }
+
+    @Override
+    public void release() {
+        nextFile = files.length;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Constant-velocity Kalman filter for the hand height. The state is the height
+ * and its speed; changes in speed are modelled as white-noise acceleration, and
+ * each frame's measured height is assumed to carry independent noise.
+ * The 2x2 covariance is kept in three fields, so every step is a few multiplications.
+ */
+public class KalmanHeightFilter implements HeightFilter {
+    /** Standard deviation of the measured height, in percent. */
+    public static final double DEFAULT_MEASUREMENT_NOISE = 2.0;
+    /** Spectral density of the hand's acceleration, in percent squared per second cubed. */
+    public static final double DEFAULT_ACCELERATION_NOISE = 10000.0;
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double INITIAL_SPEED_VARIANCE = 100.0 * 100.0;
+
+    private final double measurementVariance;
+    private final double accelerationNoise;
+    private boolean initialized;
+    private double height;
+    private double speed;
+    // Covariance of (height, speed)
+    private double pHH;
+    private double pHS;
+    private double pSS;
+    private long lastTimeNanos;
+
+    /**
+     * Creates a filter with the default noise levels.
+     */
+    public KalmanHeightFilter() {
+        this(DEFAULT_MEASUREMENT_NOISE, DEFAULT_ACCELERATION_NOISE);
+    }
+
+    /**
+     * Creates a filter.
+     *
+     * @param measurementNoise The standard deviation of the measured height, in percent
+     * @param accelerationNoise The spectral density of the acceleration, in percent squared
+     *                          per second cubed; higher follows fast moves with less lag
+     */
+    public KalmanHeightFilter(double measurementNoise, double accelerationNoise) {
+        if (measurementNoise <= 0 || accelerationNoise <= 0) {
+            throw new IllegalArgumentException("Noise levels must be positive");
+        }
+        this.measurementVariance = measurementNoise * measurementNoise;
+        this.accelerationNoise = accelerationNoise;
+    }
+
+    @Override
+    public double filter(double percentage, long timeNanos) {
+        if (!initialized) {
+            height = percentage;
+            speed = 0;
+            pHH = measurementVariance;
+            pHS = 0;
+            pSS = INITIAL_SPEED_VARIANCE;
+            lastTimeNanos = timeNanos;
+            initialized = true;
+            return height;
+        }
+        double dt = (timeNanos - lastTimeNanos) / NANOS_PER_SECOND;
+        if (dt <= 0) {
+            return height;
+        }
+        lastTimeNanos = timeNanos;
+
+        // Predict: move with the current speed, grow the uncertainty
+        double q = accelerationNoise;
+        height += speed * dt;
+        pHH += dt * (2 * pHS + dt * pSS) + q * dt * dt * dt / 3;
+        pHS += dt * pSS + q * dt * dt / 2;
+        pSS += q * dt;
+
+        // Correct with the measured height
+        double residualVariance = pHH + measurementVariance;
+        double gainHeight = pHH / residualVariance;
+        double gainSpeed = pHS / residualVariance;
+        double residual = percentage - height;
+        height += gainHeight * residual;
+        speed += gainSpeed * residual;
+        pSS -= gainSpeed * pHS;
+        pHS -= gainHeight * pHS;
+        pHH -= gainHeight * pHH;
+        return height;
+    }
+
+    @Override
+    public double predict(long aheadNanos) {
+        return HeightFilter.extrapolate(height, speed, aheadNanos);
+    }
+
+    @Override
+    public void reset() {
+        initialized = false;
+        height = 0;
+        speed = 0;
+    }
+}
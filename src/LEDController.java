@@ -1,5 +1,5 @@
 import org.firmata4j.Pin;
-import org.firmata4j.firmata.FirmataDevice;
+import org.firmata4j.IODevice;
 
 import java.io.IOException;
 
@@ -17,7 +17,7 @@ public class LEDController extends DeviceController {
      * @param pinNumber The pin number for the LED
      * @throws IOException If there's an error setting up the pin
      */
-    public LEDController(FirmataDevice board, int pinNumber) throws IOException {
+    public LEDController(IODevice board, int pinNumber) throws IOException {
         super(board, pinNumber, Pin.Mode.PWM, MIN_BRIGHTNESS, MAX_BRIGHTNESS, "LED");
     }
 
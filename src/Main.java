@@ -1,14 +1,22 @@
 import org.opencv.core.*;
+import org.firmata4j.IODevice;
 import org.firmata4j.firmata.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Main {
     /** The serial port identifier for the Arduino connection */
     private static final String PORT = "/dev/cu.usbserial-0001";
     private static final int RESET_BUTTON_PIN = 6;
+    private static final double MAX_PIN_UPDATES_PER_SECOND = 50;
+    // LED, servo and buzzer, see createDevices
+    private static final int DEVICE_COUNT = 3;
 
     // Application state
     private static final int MODE_FINGER_COUNTING = 1;
@@ -26,33 +34,345 @@ public class Main {
     private static int selectedDeviceIndex = -1;
 
     public static void main(String[] args) throws IOException, InterruptedException {
+        // Unattended installations run with --headless: no window and no overlay drawing
+        boolean headless = Arrays.asList(args).contains("--headless");
+
+        // --source=<video file or image directory> replays a recording instead of the camera,
+        // --fast replays it as fast as the pipeline can go instead of at the recorded rate
+        // --scale=2 or --scale=4 segments a downscaled hand region for weak CPUs while the
+        // height is measured; fingers are always counted at full resolution
+        // --station=<camera index or recording>, repeated, runs one headless session per station
+        // --board=<serial port or "sim">, repeated, spreads the devices across several boards
+        // --segmentation=skin, skin-table, mog2, knn or hybrid picks how hand pixels are found
+        // The motion gate is on by default: frames in which nothing moved reuse the last result,
+        // and after 10 s with no motion and no hand the camera is read at 5 frames/s until
+        // something moves; --no-motion-gate analyses every frame at the full capture rate
+        // --two-hand selects with one hand and controls with the other; --select-region=x,y,w,h
+        // and --control-region=x,y,w,h place the two regions
+        // --metrics-port=<port> serves Prometheus metrics at http://localhost:<port>/metrics
+        // --record=<file> logs each frame's hand region and decisions; --replay-log=<file> replays
+        // such a log at full speed and reports decisions that differ; neither works with --station
+        String sourceLocation = null;
+        String recordLocation = null;
+        String replayLocation = null;
+        int metricsPort = -1;
+        int processingScale = GestureProcessor.SCALE_FULL;
+        List<String> stations = new ArrayList<>();
+        List<String> boardPorts = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--source=")) {
+                sourceLocation = arg.substring("--source=".length());
+            } else if (arg.startsWith("--scale=")) {
+                processingScale = Integer.parseInt(arg.substring("--scale=".length()));
+            } else if (arg.startsWith("--station=")) {
+                stations.add(arg.substring("--station=".length()));
+            } else if (arg.startsWith("--board=")) {
+                boardPorts.add(arg.substring("--board=".length()));
+            } else if (arg.startsWith("--record=")) {
+                recordLocation = arg.substring("--record=".length());
+            } else if (arg.startsWith("--replay-log=")) {
+                replayLocation = arg.substring("--replay-log=".length());
+            } else if (arg.startsWith("--metrics-port=")) {
+                metricsPort = Integer.parseInt(arg.substring("--metrics-port=".length()));
+            }
+        }
+        if (!stations.isEmpty() && (recordLocation != null || replayLocation != null)) {
+            throw new IllegalArgumentException("--record and --replay-log cannot be combined with --station");
+        }
+        if (boardPorts.isEmpty()) {
+            boardPorts.add(PORT);
+        }
+        boolean fastReplay = Arrays.asList(args).contains("--fast");
+        MetricsServer metricsServer = metricsPort < 0 ? null : new MetricsServer(metricsPort, Metrics.REGISTRY);
+        if (metricsServer != null) {
+            System.out.println("Serving metrics at http://localhost:" + metricsServer.getPort() + "/metrics");
+        }
+        if (replayLocation != null) {
+            runReplay(new File(replayLocation), args, processingScale);
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+            return;
+        }
+        if (!stations.isEmpty()) {
+            runStations(stations, boardPorts, args, processingScale, fastReplay);
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+            return;
+        }
+
         // Initialize software components
-        CameraManager cameraManager = new CameraManager("Hand Gesture Recognition");
-        GestureProcessor gestureProcessor = new GestureProcessor();
+        FrameSource frameSource = sourceLocation == null
+                ? new CameraManager()
+                : FrameSource.open(sourceLocation, !fastReplay);
+        DisplayWindow display = headless ? null : new DisplayWindow("Hand Gesture Recognition");
+        GestureProcessor gestureProcessor = createProcessor(args, processingScale);
         HandGestureUI ui = new HandGestureUI();
+        GestureHandler gestureHandler = createHandler(args, processingScale);
+        if (recordLocation != null) {
+            if (gestureHandler.getDualRegionAnalyzer() != null) {
+                throw new IllegalArgumentException("--record cannot be combined with --two-hand");
+            }
+            gestureHandler.setRecorder(new SessionRecorder(new File(recordLocation)));
+        }
+
+        // Initialize Arduino Boards
+        List<IODevice> boards = openBoards(boardPorts);
+        DeviceManager manager = createDevices(boards, Collections.singletonList(gestureHandler));
+
+        // Capture, analysis and display run on their own threads until ESC is pressed
+        // or the recording ends
+        FramePipeline pipeline = new FramePipeline(frameSource, display, gestureProcessor, ui,
+                gestureHandler, manager);
+        if (headless) {
+            // Without a window there is no ESC key, so stop cleanly on Ctrl+C instead
+            Thread mainThread = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                pipeline.stop();
+                try {
+                    mainThread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        pipeline.start();
+        pipeline.awaitTermination();
+        System.out.println(pipeline.getThroughputSummary());
+
+        // Release resources
+        manager.stopActuation();
+        gestureProcessor.close();
+        if (gestureHandler.getHandTracker() != null) {
+            gestureHandler.getHandTracker().close();
+        }
+        if (gestureHandler.getMotionGate() != null) {
+            System.out.println(gestureHandler.getMotionGate().getStatsSummary());
+            gestureHandler.getMotionGate().close();
+        }
+        if (gestureHandler.getDualRegionAnalyzer() != null) {
+            gestureHandler.getDualRegionAnalyzer().close();
+        }
+        if (gestureHandler.getRecorder() != null) {
+            gestureHandler.getRecorder().close();
+            System.out.println(gestureHandler.getRecorder().getStatsSummary());
+        }
+        frameSource.release();
+        if (display != null) {
+            display.close();
+        }
+        closeBoards(boards);
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
+    }
+
+    /**
+     * Runs one headless gesture session per station on a worker pool shared by all of them.
+     * Every station controls the same devices; the reset button resets every station.
+     */
+    private static void runStations(List<String> stations, List<String> boardPorts, String[] args,
+                                    int processingScale, boolean fastReplay)
+            throws IOException, InterruptedException {
+        List<IODevice> boards = openBoards(boardPorts);
+        // The button listener may read this list while the stations are still being added
+        List<GestureHandler> handlers = new CopyOnWriteArrayList<>();
+        DeviceManager manager = createDevices(boards, handlers);
+
+        SessionEngine engine = new SessionEngine();
+        for (String station : stations) {
+            // A number selects an attached camera, anything else is a recording
+            FrameSource source = station.matches("\\d+")
+                    ? new CameraManager(Integer.parseInt(station))
+                    : FrameSource.open(station, !fastReplay);
+            GestureHandler handler = createHandler(args, processingScale);
+            handlers.add(handler);
+            engine.addSession(new GestureSession("station-" + handlers.size(), source,
+                    createProcessor(args, processingScale), handler, manager));
+        }
+
+        Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            engine.stop();
+            try {
+                mainThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        engine.start();
+        engine.awaitTermination(true);
+        System.out.println(engine.getThroughputSummary());
+
+        manager.stopActuation();
+        engine.release();
+        closeBoards(boards);
+    }
+
+    /**
+     * Replays a session log through a handler set up from the same options as the
+     * recording, with the devices on a simulated board.
+     */
+    private static void runReplay(File file, String[] args, int processingScale)
+            throws IOException, InterruptedException {
+        if (Arrays.asList(args).contains("--two-hand")) {
+            throw new IllegalArgumentException("Two-hand sessions are not recorded, so they cannot be replayed");
+        }
+        // Open the log first: it fails fast on a file that is not a log, and loads OpenCV
+        SessionLog log = new SessionLog(file);
+        GestureProcessor gestureProcessor = createProcessor(args, processingScale);
+        GestureHandler gestureHandler = createHandler(args, processingScale);
+        List<IODevice> boards = openBoards(Collections.singletonList("sim"));
+        DeviceManager manager = createDevices(boards, Collections.singletonList(gestureHandler));
+
+        SessionReplay replay = new SessionReplay(gestureHandler, gestureProcessor, manager);
+        replay.run(log);
+        log.close();
+        System.out.println(replay.getSummary());
+
+        manager.stopActuation();
+        gestureProcessor.close();
+        if (gestureHandler.getHandTracker() != null) {
+            gestureHandler.getHandTracker().close();
+        }
+        if (gestureHandler.getMotionGate() != null) {
+            gestureHandler.getMotionGate().close();
+        }
+        closeBoards(boards);
+    }
+
+    private static GestureProcessor createProcessor(String[] args, int processingScale) {
+        GestureProcessor gestureProcessor = new GestureProcessor(processingScale);
+        for (String arg : args) {
+            if (arg.startsWith("--segmentation=")) {
+                gestureProcessor.setSegmentationStrategy(
+                        SegmentationStrategy.create(arg.substring("--segmentation=".length())));
+            }
+        }
+        if (Arrays.asList(args).contains("--skin-table")) {
+            // Classify skin with the precomputed color table instead of HSV conversion
+            gestureProcessor.setSkinClassifier(GestureProcessor.CLASSIFIER_LOOKUP_TABLE);
+        }
+        return gestureProcessor;
+    }
+
+    private static GestureHandler createHandler(String[] args, int processingScale) {
         GestureHandler gestureHandler = new GestureHandler();
+        if (Arrays.asList(args).contains("--two-hand")) {
+            // The control region gets its own processor so both regions can be analysed at once
+            DualRegionAnalyzer analyzer = new DualRegionAnalyzer(createProcessor(args, processingScale));
+            for (String arg : args) {
+                if (arg.startsWith("--select-region=")) {
+                    analyzer.setSelectionRegion(parseRegion(arg.substring("--select-region=".length())));
+                } else if (arg.startsWith("--control-region=")) {
+                    analyzer.setControlRegion(parseRegion(arg.substring("--control-region=".length())));
+                }
+            }
+            gestureHandler.setDualRegionAnalyzer(analyzer);
+        }
+        if (!Arrays.asList(args).contains("--fixed-region")) {
+            // Follow the hand instead of requiring it to stay in the hand region
+            gestureHandler.setHandTracker(new HandTracker());
+        }
+        if (!Arrays.asList(args).contains("--no-motion-gate")) {
+            // Reuse the last result while nothing moves, and slow the camera down when nobody is there
+            gestureHandler.setMotionGate(new MotionGate());
+        }
 
-        // Initialize Arduino Board
-        FirmataDevice arduino = new FirmataDevice(PORT);
-        arduino.start();
-        arduino.ensureInitializationIsDone();
+        // --filter=one-euro (default), kalman or none smooths the height sent to each device
+        String filter = "one-euro";
+        for (String arg : args) {
+            if (arg.startsWith("--filter=")) {
+                filter = arg.substring("--filter=".length());
+            }
+        }
+        for (int device = 0; device < DEVICE_COUNT; device++) {
+            gestureHandler.setHeightFilter(device, createHeightFilter(filter));
+        }
+        return gestureHandler;
+    }
+
+    private static Rect parseRegion(String region) {
+        String[] parts = region.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Region must be x,y,width,height: " + region);
+        }
+        return new Rect(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                Integer.parseInt(parts[2].trim()), Integer.parseInt(parts[3].trim()));
+    }
+
+    private static HeightFilter createHeightFilter(String name) {
+        switch (name) {
+            case "one-euro":
+                return new OneEuroFilter();
+            case "kalman":
+                return new KalmanHeightFilter();
+            case "none":
+                return null;
+            default:
+                throw new IllegalArgumentException("Unknown filter: " + name);
+        }
+    }
 
+    /**
+     * Connects to each board, or creates an in-process simulated board for "sim".
+     *
+     * @param ports The serial ports of the boards
+     * @return The started boards, in the order given
+     */
+    private static List<IODevice> openBoards(List<String> ports) throws IOException, InterruptedException {
+        List<IODevice> boards = new ArrayList<>();
+        for (String port : ports) {
+            IODevice board = port.equals("sim") ? new SimulatedBoard() : new FirmataDevice(port);
+            board.start();
+            board.ensureInitializationIsDone();
+            boards.add(board);
+        }
+        return boards;
+    }
+
+    private static void closeBoards(List<IODevice> boards) throws IOException {
+        for (IODevice board : boards) {
+            board.stop();
+        }
+    }
+
+    /**
+     * Sets up the devices and the reset button. With several boards the devices are
+     * spread across them in turn (LED on the first, servo on the second, ...); the
+     * reset button is always on the first board.
+     *
+     * @param boards The started boards
+     * @param handlers The gesture handlers the reset button applies to
+     * @return The device manager, with one actuation thread per board running
+     */
+    private static DeviceManager createDevices(List<IODevice> boards, List<GestureHandler> handlers)
+            throws IOException {
         // Initialize hardware
-        DeviceManager manager = new DeviceManager(arduino);
-        manager.addController(new LEDController(arduino, 3));
-        manager.addController(new ServoController(arduino, 9));
-        manager.addController(new BuzzerController(arduino, 5));
+        // Every value a frame sets on a board goes out in one serial write
+        DeviceManager manager = new DeviceManager();
+        BoardTransport transport = new FirmataBurstTransport();
+        for (int i = 0; i < boards.size(); i++) {
+            manager.addBoard("board-" + (i + 1), boards.get(i), transport);
+        }
+        manager.addController(new LEDController(boards.get(0), 3));
+        manager.addController(new ServoController(boards.get(1 % boards.size()), 9));
+        manager.addController(new BuzzerController(boards.get(2 % boards.size()), 5));
+
+        // Write device values on a thread per board so serial I/O never stalls the vision
+        // pipeline, and a slow board never holds up the others
+        manager.startActuation(MAX_PIN_UPDATES_PER_SECOND);
 
         // Set up the reset button on D6
-        ButtonController resetButton = new ButtonController(arduino, RESET_BUTTON_PIN);
+        ButtonController resetButton = new ButtonController(boards.get(0), RESET_BUTTON_PIN);
         resetButton.setButtonPressListener(new ButtonController.ButtonPressListener() {
             @Override
             public void onButtonPressed() {
-                try {
-                    // This is called when button is pressed down
-                    gestureHandler.handleResetButtonPress(manager);
-                } catch (IOException e) {
-                    System.err.println("Error handling button press: " + e.getMessage());
+                // This is called on the Firmata event thread when the button is pressed down;
+                // the reset is applied by each handler's frame thread before its next frame
+                for (GestureHandler gestureHandler : handlers) {
+                    gestureHandler.postCommand(GestureCommand.RESET);
                 }
             }
             
@@ -61,36 +381,6 @@ public class Main {
                 // This is called when button is released
             }
         });
-
-        Mat frame = new Mat();
-        while (true) {
-            try {
-                // Read a new frame
-                frame = cameraManager.readFrame();
-
-                // Draw the hand detection region
-                ui.drawHandRegion(frame, cameraManager.getHandRegion());
-
-                // Process the frame based on the current mode
-                gestureHandler.processFrame(frame, cameraManager, gestureProcessor, ui, manager);
-
-                // Display the frame
-                cameraManager.showFrame(frame);
-
-                // Check for key press
-                int key = cameraManager.waitKey(10);
-                if (key == 27) { // ESC key
-                    break;
-                }
-            } catch (Exception e) {
-                System.err.println("Error processing frame: " + e.getMessage());
-                e.printStackTrace();
-                break;
-            }
-        }
-
-        // Release resources
-        cameraManager.release();
-        arduino.stop();
+        return manager;
     }
 }
\ No newline at end of file
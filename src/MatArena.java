@@ -0,0 +1,137 @@
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owns a set of reusable OpenCV buffers so per-frame processing does not have to
+ * allocate new native memory on every call.
+ * Buffers are registered once, reused every frame and released together on close.
+ * The allocation count only covers buffers registered with {@link #add(Mat)}. The
+ * contours of findContours and the convexHull and convexityDefects results are copied
+ * out of a std::vector into new native data by the Java bindings on every call, so
+ * they are not reusable and not counted.
+ */
+public class MatArena implements AutoCloseable {
+    private final List<Mat> buffers;
+    private final List<Mat> vectorBuffers;
+    private long[] lastDataAddresses;
+    private long nativeAllocations;
+    private long frames;
+    private boolean closed;
+
+    /**
+     * Creates an empty arena.
+     */
+    public MatArena() {
+        this.buffers = new ArrayList<>();
+        this.vectorBuffers = new ArrayList<>();
+        this.lastDataAddresses = new long[0];
+    }
+
+    /**
+     * Registers a buffer with this arena. The arena releases it on close.
+     *
+     * @param buffer The buffer to own
+     * @return The same buffer, for convenient field initialization
+     */
+    public <T extends Mat> T add(T buffer) {
+        if (closed) {
+            throw new IllegalStateException("Arena has already been closed");
+        }
+        buffers.add(buffer);
+        lastDataAddresses = new long[buffers.size()];
+        snapshot();
+        return buffer;
+    }
+
+    /**
+     * Registers a buffer that receives a std::vector result (convexHull, convexityDefects).
+     * The Java bindings copy such results into freshly allocated data on every call, so
+     * these buffers are reused as headers but are not part of the allocation count.
+     *
+     * @param buffer The buffer to own
+     * @return The same buffer, for convenient field initialization
+     */
+    public <T extends Mat> T addVectorBuffer(T buffer) {
+        if (closed) {
+            throw new IllegalStateException("Arena has already been closed");
+        }
+        vectorBuffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Releases the native memory of short-lived Mats produced during a frame
+     * (for example the contours returned by findContours) and clears the list.
+     *
+     * @param transientMats The Mats to release
+     */
+    public void releaseTransient(List<? extends Mat> transientMats) {
+        for (Mat mat : transientMats) {
+            mat.release();
+        }
+        transientMats.clear();
+    }
+
+    /**
+     * Marks the end of a frame. Any buffer whose native data moved since the
+     * previous frame was (re)allocated by OpenCV and is counted.
+     */
+    public void endFrame() {
+        for (int i = 0; i < buffers.size(); i++) {
+            long address = buffers.get(i).dataAddr();
+            if (address != 0 && address != lastDataAddresses[i]) {
+                nativeAllocations++;
+            }
+            lastDataAddresses[i] = address;
+        }
+        frames++;
+    }
+
+    /**
+     * Gets the number of native (re)allocations of the buffers registered with
+     * {@link #add(Mat)} observed since creation. Vector buffers and transient Mats
+     * are not included. Once the arena has seen one frame of a given ROI size this
+     * stays constant.
+     *
+     * @return The allocation count
+     */
+    public long getNativeAllocationCount() {
+        return nativeAllocations;
+    }
+
+    /**
+     * Gets the number of frames processed with this arena.
+     *
+     * @return The frame count
+     */
+    public long getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * Releases every buffer owned by this arena.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        for (Mat buffer : buffers) {
+            buffer.release();
+        }
+        for (Mat buffer : vectorBuffers) {
+            buffer.release();
+        }
+        buffers.clear();
+        vectorBuffers.clear();
+        closed = true;
+    }
+
+    private void snapshot() {
+        for (int i = 0; i < buffers.size(); i++) {
+            lastDataAddresses[i] = buffers.get(i).dataAddr();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application's metrics, registered once in a shared {@link MetricsRegistry}
+ * and served by {@link MetricsServer}. Complements {@link TraceEvents}: the trace
+ * events show single frames in a recording, these show running totals and latency
+ * distributions at any time without one.
+ */
+public final class Metrics {
+    /** The registry holding every metric below. */
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    // Latency buckets from 50 us to 250 ms, in nanoseconds
+    private static final long[] LATENCY_BOUNDS = {
+            50_000, 100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000,
+            10_000_000, 25_000_000, 50_000_000, 100_000_000, 250_000_000};
+    private static final double NANOSECONDS = 1e-9;
+    // Confidence buckets, in thousandths
+    private static final long[] CONFIDENCE_BOUNDS = {500, 600, 700, 800, 850, 900, 950, 1000};
+    private static final double THOUSANDTHS = 1e-3;
+    private static final long RATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** Frames processed by a gesture handler, including frames the motion gate skipped. */
+    public static final MetricsRegistry.Counter FRAMES = REGISTRY.counter("gesture_frames_total",
+            "Frames processed by the gesture handlers");
+    /** Segmenting the hand region into a mask. */
+    public static final MetricsRegistry.Histogram SKIN_MASK_LATENCY = stage("skin_mask");
+    /** Finding and analysing the hand contour in the mask. */
+    public static final MetricsRegistry.Histogram CONTOURS_LATENCY = stage("contours");
+    /** Finding the fingertips of the analysed hand. */
+    public static final MetricsRegistry.Histogram FINGERTIPS_LATENCY = stage("fingertips");
+    /** From asking for a device value until it is written to the board. */
+    public static final MetricsRegistry.Histogram ACTUATION_LATENCY = stage("actuation");
+    /** Finger count collections that selected a device. */
+    public static final MetricsRegistry.Counter GESTURES_SELECTED = REGISTRY.counter("gesture_decisions_total",
+            "Finished finger count collections by outcome", "outcome", "selected");
+    /** Finger count collections that ended without a consistent count. */
+    public static final MetricsRegistry.Counter GESTURES_UNDECIDED = REGISTRY.counter("gesture_decisions_total",
+            "Finished finger count collections by outcome", "outcome", "undecided");
+    /** Share of collected frames showing the leading finger count, per collection. */
+    public static final MetricsRegistry.Histogram GESTURE_CONFIDENCE = REGISTRY.histogram(
+            "gesture_decision_confidence", "Share of collected frames that showed the leading finger count",
+            CONFIDENCE_BOUNDS, THOUSANDTHS);
+
+    private static final FrameRate FRAME_RATE = new FrameRate();
+    private static final ConcurrentHashMap<String, DeviceMetrics> DEVICES = new ConcurrentHashMap<>();
+
+    static {
+        REGISTRY.gauge("gesture_fps", "Frames processed per second over the last second", FRAME_RATE::get);
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * The write metrics of one device.
+     */
+    public static final class DeviceMetrics {
+        /** Values written to the device's pin. */
+        public final MetricsRegistry.Counter writes;
+        /** Time taken by each write. */
+        public final MetricsRegistry.Histogram writeLatency;
+
+        private DeviceMetrics(String device) {
+            writes = REGISTRY.counter("gesture_pin_writes_total", "Values written to each device", "device", device);
+            writeLatency = REGISTRY.histogram("gesture_pin_write_seconds", "Time taken by each pin write",
+                    LATENCY_BOUNDS, NANOSECONDS, "device", device);
+        }
+    }
+
+    /**
+     * Gets the write metrics of a device, registering them on first use.
+     * Does not lock or allocate once the device is registered.
+     *
+     * @param device The device name
+     * @return The device's metrics
+     */
+    public static DeviceMetrics device(String device) {
+        DeviceMetrics metrics = DEVICES.get(device);
+        return metrics != null ? metrics : DEVICES.computeIfAbsent(device, DeviceMetrics::new);
+    }
+
+    /**
+     * Gets the counter of frames dropped from a pipeline queue. Call once per queue.
+     *
+     * @param queue The queue name
+     * @return The counter
+     */
+    public static MetricsRegistry.Counter framesDropped(String queue) {
+        return REGISTRY.counter("gesture_frames_dropped_total",
+                "Frames dropped because the next stage fell behind", "queue", queue);
+    }
+
+    private static MetricsRegistry.Histogram stage(String stage) {
+        return REGISTRY.histogram("gesture_stage_seconds", "Time spent in each pipeline stage",
+                LATENCY_BOUNDS, NANOSECONDS, "stage", stage);
+    }
+
+    /**
+     * Works out the frame rate from {@link #FRAMES} when it is read, so counting a
+     * frame stays a single atomic increment.
+     */
+    private static final class FrameRate {
+        private long lastCount;
+        private long lastTime = System.nanoTime();
+        private double rate;
+
+        synchronized double get() {
+            long now = System.nanoTime();
+            if (now - lastTime >= RATE_INTERVAL_NANOS) {
+                long count = FRAMES.get();
+                rate = (count - lastCount) / ((now - lastTime) / 1e9);
+                lastCount = count;
+                lastTime = now;
+            }
+            return rate;
+        }
+    }
+}
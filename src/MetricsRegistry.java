@@ -0,0 +1,253 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * An in-process set of counters, gauges and histograms, written out in the
+ * Prometheus text format (see {@link MetricsServer}).
+ * Recording only updates atomic longs: it never locks and never allocates.
+ * Registering an instrument and writing the text take a lock, so instruments
+ * should be registered once and kept, not looked up per frame.
+ */
+public final class MetricsRegistry {
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /**
+     * All instruments sharing a metric name, which differ only in their labels.
+     */
+    private static final class Family {
+        final String name;
+        final String help;
+        final String type;
+        final Map<String, Instrument> instruments = new LinkedHashMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private interface Instrument {
+        void write(String name, String labels, Appendable out) throws IOException;
+    }
+
+    /**
+     * A value that only goes up.
+     */
+    public static final class Counter implements Instrument {
+        private final AtomicLong value = new AtomicLong();
+
+        /**
+         * Adds one.
+         */
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        /**
+         * Adds an amount.
+         *
+         * @param amount The amount to add
+         */
+        public void add(long amount) {
+            value.addAndGet(amount);
+        }
+
+        /**
+         * Gets the current value.
+         *
+         * @return The count
+         */
+        public long get() {
+            return value.get();
+        }
+
+        @Override
+        public void write(String name, String labels, Appendable out) throws IOException {
+            out.append(name).append(braces(labels)).append(' ').append(Long.toString(value.get())).append('\n');
+        }
+    }
+
+    /**
+     * A value read when the metrics are written, such as a rate or a queue depth.
+     */
+    private static final class Gauge implements Instrument {
+        private final DoubleSupplier supplier;
+
+        Gauge(DoubleSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public void write(String name, String labels, Appendable out) throws IOException {
+            out.append(name).append(braces(labels)).append(' ').append(format(supplier.getAsDouble())).append('\n');
+        }
+    }
+
+    /**
+     * Counts recorded values into fixed buckets. Values are recorded as longs in a
+     * fixed unit (for example nanoseconds) and written scaled to the base unit
+     * (for example seconds), as Prometheus expects.
+     */
+    public static final class Histogram implements Instrument {
+        private final long[] upperBounds;
+        private final double unit;
+        private final AtomicLongArray buckets;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+
+        Histogram(long[] upperBounds, double unit) {
+            this.upperBounds = upperBounds.clone();
+            this.unit = unit;
+            this.buckets = new AtomicLongArray(upperBounds.length + 1);
+        }
+
+        /**
+         * Records one value.
+         *
+         * @param value The value, in the histogram's recording unit
+         */
+        public void record(long value) {
+            int bucket = 0;
+            while (bucket < upperBounds.length && value > upperBounds[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            sum.addAndGet(value);
+        }
+
+        /**
+         * Gets the number of recorded values.
+         *
+         * @return The count
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        @Override
+        public void write(String name, String labels, Appendable out) throws IOException {
+            String prefix = labels.isEmpty() ? "" : labels + ",";
+            long cumulative = 0;
+            for (int i = 0; i <= upperBounds.length; i++) {
+                cumulative += buckets.get(i);
+                String bound = i < upperBounds.length ? format(upperBounds[i] * unit) : "+Inf";
+                out.append(name).append("_bucket{").append(prefix).append("le=\"").append(bound).append("\"} ")
+                        .append(Long.toString(cumulative)).append('\n');
+            }
+            out.append(name).append("_sum").append(braces(labels)).append(' ')
+                    .append(format(sum.get() * unit)).append('\n');
+            out.append(name).append("_count").append(braces(labels)).append(' ')
+                    .append(Long.toString(count.get())).append('\n');
+        }
+    }
+
+    /**
+     * Registers a counter, or returns the one already registered with the same name and labels.
+     *
+     * @param name The metric name
+     * @param help A one-line description
+     * @param labels Label names and values, alternating
+     * @return The counter
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, "counter", labels, Counter::new);
+    }
+
+    /**
+     * Registers a gauge read from the supplier whenever the metrics are written.
+     * A gauge already registered with the same name and labels is kept.
+     *
+     * @param name The metric name
+     * @param help A one-line description
+     * @param supplier Supplies the current value
+     * @param labels Label names and values, alternating
+     */
+    public void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        register(name, help, "gauge", labels, () -> new Gauge(supplier));
+    }
+
+    /**
+     * Registers a histogram, or returns the one already registered with the same name and labels.
+     *
+     * @param name The metric name
+     * @param help A one-line description
+     * @param upperBounds The inclusive upper bound of each bucket, ascending, in the recording unit
+     * @param unit The size of the recording unit in the base unit (1e-9 for nanoseconds to seconds)
+     * @param labels Label names and values, alternating
+     * @return The histogram
+     */
+    public Histogram histogram(String name, String help, long[] upperBounds, double unit, String... labels) {
+        return (Histogram) register(name, help, "histogram", labels, () -> new Histogram(upperBounds, unit));
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format.
+     *
+     * @param out Where to write the text
+     * @throws IOException If writing fails
+     */
+    public void write(Appendable out) throws IOException {
+        List<Family> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(families.values());
+        }
+        for (Family family : snapshot) {
+            List<Map.Entry<String, Instrument>> instruments;
+            synchronized (this) {
+                instruments = new ArrayList<>(family.instruments.entrySet());
+            }
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Instrument> instrument : instruments) {
+                instrument.getValue().write(family.name, instrument.getKey(), out);
+            }
+        }
+    }
+
+    private synchronized Instrument register(String name, String help, String type, String[] labels,
+                                             Supplier<Instrument> factory) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+        }
+        return family.instruments.computeIfAbsent(formatLabels(labels), l -> factory.get());
+    }
+
+    private static String formatLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                text.append(',');
+            }
+            String value = labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+            text.append(labels[i]).append("=\"").append(value).append('"');
+        }
+        return text.toString();
+    }
+
+    private static String braces(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * One Euro filter (Casiez, Roussel and Vogel, CHI 2012): a low-pass filter whose
+ * cutoff frequency rises with the speed of the signal. A resting hand is smoothed
+ * heavily, removing jitter, while a moving hand is followed with little lag.
+ * The smoothed speed is also used to predict the height ahead of the last frame.
+ */
+public class OneEuroFilter implements HeightFilter {
+    /** Cutoff frequency at rest, in Hz. Lower removes more jitter. */
+    public static final double DEFAULT_MIN_CUTOFF = 1.0;
+    /** Cutoff increase per percent per second of speed. Higher reduces lag when moving. */
+    public static final double DEFAULT_BETA = 0.1;
+    /** Cutoff frequency used to smooth the speed, in Hz. */
+    public static final double DEFAULT_SPEED_CUTOFF = 1.0;
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final double minCutoff;
+    private final double beta;
+    private final double speedCutoff;
+    private boolean initialized;
+    private double value;
+    private double speed;
+    private long lastTimeNanos;
+
+    /**
+     * Creates a filter with the default parameters.
+     */
+    public OneEuroFilter() {
+        this(DEFAULT_MIN_CUTOFF, DEFAULT_BETA, DEFAULT_SPEED_CUTOFF);
+    }
+
+    /**
+     * Creates a filter.
+     *
+     * @param minCutoff The cutoff frequency at rest, in Hz
+     * @param beta The cutoff increase per percent per second of speed
+     * @param speedCutoff The cutoff frequency used to smooth the speed, in Hz
+     */
+    public OneEuroFilter(double minCutoff, double beta, double speedCutoff) {
+        if (minCutoff <= 0 || speedCutoff <= 0 || beta < 0) {
+            throw new IllegalArgumentException("Cutoffs must be positive and beta non-negative");
+        }
+        this.minCutoff = minCutoff;
+        this.beta = beta;
+        this.speedCutoff = speedCutoff;
+    }
+
+    @Override
+    public double filter(double percentage, long timeNanos) {
+        if (!initialized) {
+            value = percentage;
+            speed = 0;
+            lastTimeNanos = timeNanos;
+            initialized = true;
+            return value;
+        }
+        double dt = (timeNanos - lastTimeNanos) / NANOS_PER_SECOND;
+        if (dt <= 0) {
+            // Same or older frame; nothing new to smooth
+            return value;
+        }
+        lastTimeNanos = timeNanos;
+
+        speed += smoothingFactor(dt, speedCutoff) * ((percentage - value) / dt - speed);
+        double cutoff = minCutoff + beta * Math.abs(speed);
+        value += smoothingFactor(dt, cutoff) * (percentage - value);
+        return value;
+    }
+
+    @Override
+    public double predict(long aheadNanos) {
+        return HeightFilter.extrapolate(value, speed, aheadNanos);
+    }
+
+    @Override
+    public void reset() {
+        initialized = false;
+        value = 0;
+        speed = 0;
+    }
+
+    /**
+     * Gets the weight of a new sample for an exponential low-pass filter.
+     */
+    private static double smoothingFactor(double dt, double cutoff) {
+        double tau = 1.0 / (2 * Math.PI * cutoff);
+        return 1.0 / (1.0 + tau / dt);
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * One value for one device, waiting to be written as part of a burst of pin updates.
+ * Updates with a higher priority are written first within a burst.
+ */
+public final class PinUpdate {
+    private final DeviceController controller;
+    private final int value;
+    private final int priority;
+    private final FrameTrace trace;
+    private final long requestTimeNanos;
+
+    /**
+     * Creates an update.
+     *
+     * @param controller The device to write to
+     * @param value The value to write
+     * @param priority The priority within its burst, higher first
+     * @param trace The trace of the frame the value was derived from
+     * @param requestTimeNanos When the value was asked for (System.nanoTime() units)
+     */
+    public PinUpdate(DeviceController controller, int value, int priority, FrameTrace trace,
+                     long requestTimeNanos) {
+        this.controller = controller;
+        this.value = value;
+        this.priority = priority;
+        this.trace = trace;
+        this.requestTimeNanos = requestTimeNanos;
+    }
+
+    /**
+     * Gets the device to write to.
+     *
+     * @return The controller
+     */
+    public DeviceController getController() {
+        return controller;
+    }
+
+    /**
+     * Gets the value to write.
+     *
+     * @return The value
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the priority of the update within its burst.
+     *
+     * @return The priority, higher first
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Gets the trace of the frame the value was derived from.
+     *
+     * @return The trace
+     */
+    public FrameTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Gets the time the value was asked for.
+     *
+     * @return The request time in System.nanoTime() units
+     */
+    public long getRequestTimeNanos() {
+        return requestTimeNanos;
+    }
+}
@@ -0,0 +1,82 @@
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Base class for sources that replay recorded frames.
+ * Replays either at the recorded frame rate or as fast as frames are requested.
+ */
+public abstract class ReplayFrameSource implements FrameSource {
+    private final boolean realTime;
+    private final long frameIntervalNanos;
+    private long nextFrameTime;
+    private Rect handRegion;
+
+    static {
+        // Load the OpenCV native library
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    }
+
+    /**
+     * Creates a replay source.
+     *
+     * @param fps The recorded frame rate, used when replaying in real time
+     * @param realTime true to pace frames at the recorded rate
+     */
+    protected ReplayFrameSource(double fps, boolean realTime) {
+        if (fps <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive: " + fps);
+        }
+        this.realTime = realTime;
+        this.frameIntervalNanos = (long) (1_000_000_000L / fps);
+    }
+
+    /**
+     * Reads the next recorded frame without any pacing.
+     *
+     * @return The next frame, or null at the end of the recording
+     */
+    protected abstract Mat readNextFrame();
+
+    @Override
+    public Mat readFrame() {
+        Mat frame = readNextFrame();
+        if (frame == null) {
+            return null;
+        }
+        if (handRegion == null) {
+            handRegion = FrameSource.defaultHandRegion(frame.cols(), frame.rows());
+        }
+
+        if (realTime) {
+            // Wait until this frame is due so replay matches the recorded frame rate
+            long now = System.nanoTime();
+            if (nextFrameTime == 0) {
+                nextFrameTime = now;
+            }
+            while (now < nextFrameTime) {
+                LockSupport.parkNanos(nextFrameTime - now);
+                now = System.nanoTime();
+            }
+            nextFrameTime += frameIntervalNanos;
+        }
+        return frame;
+    }
+
+    /**
+     * Gets the hand detection region, derived from the size of the first frame.
+     *
+     * @return The hand region, or null before the first frame has been read
+     */
+    @Override
+    public Rect getHandRegion() {
+        return handRegion;
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return realTime;
+    }
+}
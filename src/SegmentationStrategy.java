@@ -0,0 +1,84 @@
+import org.opencv.core.Mat;
+
+/**
+ * Decides which pixels of the hand region belong to the hand.
+ * GestureProcessor smooths and cleans up the resulting mask and finds the hand
+ * contour in it, so a strategy only has to classify pixels. Strategies are
+ * swapped with {@link GestureProcessor#setSegmentationStrategy(SegmentationStrategy)},
+ * also while frames are being processed.
+ */
+public interface SegmentationStrategy extends AutoCloseable {
+    /** Skin color by HSV conversion and range checks. */
+    String SKIN = "skin";
+    /** Skin color by the precomputed color lookup table. */
+    String SKIN_TABLE = "skin-table";
+    /** Foreground of a Gaussian mixture (MOG2) background model. */
+    String MOG2 = "mog2";
+    /** Foreground of a K-nearest-neighbours background model. */
+    String KNN = "knn";
+    /** Skin-colored pixels inside the MOG2 foreground. */
+    String HYBRID = "hybrid";
+
+    /** The names accepted by {@link #create(String)}, in the order they are cycled through. */
+    String[] NAMES = {SKIN, SKIN_TABLE, MOG2, KNN, HYBRID};
+
+    /**
+     * Classifies every pixel of the hand region.
+     *
+     * @param roi The BGR hand region, possibly downscaled
+     * @param mask Receives 255 for hand pixels and 0 elsewhere; reallocated if the size changes
+     */
+    void segment(Mat roi, Mat mask);
+
+    /**
+     * Checks whether the strategy learns from earlier frames and so needs the hand
+     * region to stay in the same place in the frame.
+     *
+     * @return true if the region must not move with the hand
+     */
+    boolean needsFixedRegion();
+
+    /**
+     * Forgets anything learned from earlier frames. Called when the hand region
+     * moves or changes size.
+     */
+    void reset();
+
+    /**
+     * Gets the name of the strategy, as accepted by {@link #create(String)}.
+     *
+     * @return The name
+     */
+    String getName();
+
+    /**
+     * Releases any native buffers held by the strategy.
+     */
+    @Override
+    void close();
+
+    /**
+     * Creates a strategy by name.
+     *
+     * @param name One of {@link #NAMES}
+     * @return The new strategy
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static SegmentationStrategy create(String name) {
+        switch (name) {
+            case SKIN:
+                return new SkinSegmentation(SkinSegmentation.CLASSIFIER_HSV);
+            case SKIN_TABLE:
+                return new SkinSegmentation(SkinSegmentation.CLASSIFIER_LOOKUP_TABLE);
+            case MOG2:
+                return new BackgroundSegmentation(BackgroundSegmentation.MODEL_MOG2);
+            case KNN:
+                return new BackgroundSegmentation(BackgroundSegmentation.MODEL_KNN);
+            case HYBRID:
+                return new HybridSegmentation(new SkinSegmentation(SkinSegmentation.CLASSIFIER_HSV),
+                        new BackgroundSegmentation(BackgroundSegmentation.MODEL_MOG2));
+            default:
+                throw new IllegalArgumentException("Unknown segmentation strategy: " + name);
+        }
+    }
+}
@@ -1,5 +1,5 @@
 import org.firmata4j.Pin;
-import org.firmata4j.firmata.FirmataDevice;
+import org.firmata4j.IODevice;
 
 import java.io.IOException;
 
@@ -17,7 +17,7 @@ public class ServoController extends DeviceController {
      * @param pinNumber The pin number for the servo
      * @throws IOException If there's an error setting up the pin
      */
-    public ServoController(FirmataDevice board, int pinNumber) throws IOException {
+    public ServoController(IODevice board, int pinNumber) throws IOException {
         super(board, pinNumber, Pin.Mode.SERVO, MIN_ANGLE, MAX_ANGLE, "Servo");
     }
 }
\ No newline at end of file
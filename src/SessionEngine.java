@@ -0,0 +1,183 @@
+import org.opencv.core.Core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs several {@link GestureSession}s on one host, sharing a bounded worker pool.
+ * OpenCV's own parallel loops are limited so that pool threads times OpenCV
+ * threads does not exceed the number of cores.
+ */
+public class SessionEngine {
+    private static final long STATS_INTERVAL_NS = TimeUnit.SECONDS.toNanos(5);
+
+    private final int workerThreads;
+    private final int openCvThreads;
+    private final List<GestureSession> sessions;
+    private ExecutorService workers;
+    private long startTime;
+    private long endTime;
+
+    /**
+     * Creates an engine with one worker per core.
+     */
+    public SessionEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an engine.
+     *
+     * @param workerThreads The number of threads analysing frames for all sessions
+     */
+    public SessionEngine(int workerThreads) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("At least one worker thread is needed: " + workerThreads);
+        }
+        this.workerThreads = workerThreads;
+        this.openCvThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / workerThreads);
+        this.sessions = new ArrayList<>();
+    }
+
+    /**
+     * Adds a session. Sessions must be added before {@link #start()}.
+     *
+     * @param session The session to run
+     */
+    public void addSession(GestureSession session) {
+        if (workers != null) {
+            throw new IllegalStateException("Sessions must be added before the engine starts");
+        }
+        sessions.add(session);
+    }
+
+    /**
+     * Starts the worker pool and every session.
+     */
+    public void start() {
+        // Applies to every thread: OpenCV parallel loops inside a worker use this many threads
+        Core.setNumThreads(openCvThreads);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerThreads, task -> {
+            Thread thread = new Thread(task, "session-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        startTime = System.nanoTime();
+        for (GestureSession session : sessions) {
+            session.start(workers);
+        }
+        System.out.println("Started " + sessions.size() + " sessions on " + workerThreads
+                + " workers with " + openCvThreads + " OpenCV threads each");
+    }
+
+    /**
+     * Asks every session to finish. Returns immediately.
+     */
+    public void stop() {
+        for (GestureSession session : sessions) {
+            session.stop();
+        }
+    }
+
+    /**
+     * Waits until every session has finished, printing per-session statistics
+     * every few seconds, then shuts the worker pool down.
+     *
+     * @param printStats true to print the statistics while waiting
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public void awaitTermination(boolean printStats) throws InterruptedException {
+        long lastReport = System.nanoTime();
+        for (GestureSession session : sessions) {
+            while (!session.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+                long now = System.nanoTime();
+                if (now - lastReport >= STATS_INTERVAL_NS) {
+                    if (printStats) {
+                        System.out.println(takeStatsSummary(now - lastReport));
+                    }
+                    lastReport = now;
+                }
+            }
+        }
+        endTime = System.nanoTime();
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Builds the statistics of every session since the previous summary, one line each.
+     *
+     * @param elapsedNanos The time since the previous summary
+     * @return The statistics lines
+     */
+    public String takeStatsSummary(long elapsedNanos) {
+        StringBuilder summary = new StringBuilder();
+        for (GestureSession session : sessions) {
+            if (summary.length() > 0) {
+                summary.append(System.lineSeparator());
+            }
+            summary.append(session.takeStatsSummary(elapsedNanos));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Summarises the whole run across all sessions. Call after
+     * {@link #awaitTermination(boolean)}.
+     *
+     * @return The throughput line
+     */
+    public String getThroughputSummary() {
+        long frames = 0;
+        double latency = 0;
+        for (GestureSession session : sessions) {
+            frames += session.getAnalysedFrames();
+            latency += session.getMeanLatencyMillis() * session.getAnalysedFrames();
+        }
+        double seconds = (endTime - startTime) / 1e9;
+        return String.format("%d sessions analysed %d frames in %.2f s (%.1f fps total), latency mean %.1f ms",
+                sessions.size(), frames, seconds, frames / seconds, frames == 0 ? 0.0 : latency / frames);
+    }
+
+    /**
+     * Releases every session's resources. Call after {@link #awaitTermination(boolean)}.
+     */
+    public void release() {
+        for (GestureSession session : sessions) {
+            session.release();
+        }
+    }
+
+    /**
+     * Gets the sessions run by this engine.
+     *
+     * @return The sessions
+     */
+    public List<GestureSession> getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Gets the size of the shared worker pool.
+     *
+     * @return The number of worker threads
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * Gets the number of threads each OpenCV parallel loop may use.
+     *
+     * @return The OpenCV thread count
+     */
+    public int getOpenCvThreads() {
+        return openCvThreads;
+    }
+}
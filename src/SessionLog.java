@@ -0,0 +1,301 @@
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Rect;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a session log written by {@link SessionRecorder}: one entry per processed
+ * frame with the part of the frame the pipeline looked at and the decisions it made.
+ * <p>
+ * Format (little endian): a header of {@link #MAGIC} and {@link #VERSION}, then the
+ * entries back to back. Each entry starts with its total length in bytes, followed by
+ * trace ID, capture time and latency (longs), the number of frames the recorder dropped
+ * just before this one (int), the frame width and height, where the recorded image lies
+ * in the frame and the hand region (each as x, y, width and height),
+ * whether the frame was analysed (1) or the motion gate reused the last analysis (0), the
+ * resets applied before the frame, mode, finger count and selected device (bytes), the
+ * device value (int), the height percentage (double), and the PNG-encoded image prefixed
+ * with its length. A length of zero, or the end of the file, ends the log.
+ */
+public class SessionLog implements AutoCloseable {
+    /** "GLOG", the first four bytes of every session log. */
+    public static final int MAGIC = 0x474C4F47;
+    public static final int VERSION = 2;
+    static final int HEADER_BYTES = 8;
+    // Length, three longs, eleven ints, five bytes, one int, one double and the image length
+    static final int ENTRY_FIXED_BYTES = 4 + 3 * 8 + 11 * 4 + 5 + 4 + 8 + 4;
+
+    // Logs can outgrow a single mapping, so they are read through a sliding window
+    private static final long WINDOW_BYTES = 64L << 20;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    static {
+        // Load the OpenCV native library
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    }
+
+    /**
+     * One recorded frame and the decisions made for it.
+     */
+    public static final class Entry {
+        long traceId;
+        long captureTimeNanos;
+        long latencyNanos;
+        int droppedBefore;
+        int frameWidth;
+        int frameHeight;
+        Rect imageRegion;
+        Rect handRegion;
+        boolean analysed;
+        int resets;
+        int mode;
+        int fingerCount;
+        int selectedDevice;
+        int deviceValue;
+        double heightPercentage;
+        byte[] image;
+
+        /**
+         * Gets the trace ID the frame had when it was recorded.
+         *
+         * @return The trace ID
+         */
+        public long getTraceId() {
+            return traceId;
+        }
+
+        /**
+         * Gets the time the frame was captured.
+         *
+         * @return The capture time in System.nanoTime() units of the recording
+         */
+        public long getCaptureTimeNanos() {
+            return captureTimeNanos;
+        }
+
+        /**
+         * Gets the time from capture to device control measured when the frame was recorded.
+         *
+         * @return The latency in nanoseconds, or 0 if no device value was filtered
+         */
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        /**
+         * Gets the number of frames the recorder dropped just before this one because
+         * it fell behind. The recorded decisions were made with those frames, so a
+         * replay cannot expect to match them right after a gap.
+         *
+         * @return The dropped frame count, 0 if the previous frame was recorded
+         */
+        public int getDroppedBefore() {
+            return droppedBefore;
+        }
+
+        /**
+         * Gets the width of the whole frame the image was recorded from.
+         *
+         * @return The width in pixels
+         */
+        public int getFrameWidth() {
+            return frameWidth;
+        }
+
+        /**
+         * Gets the height of the whole frame the image was recorded from.
+         *
+         * @return The height in pixels
+         */
+        public int getFrameHeight() {
+            return frameHeight;
+        }
+
+        /**
+         * Gets where the recorded image lies in the frame.
+         *
+         * @return The recorded region, in frame coordinates
+         */
+        public Rect getImageRegion() {
+            return imageRegion;
+        }
+
+        /**
+         * Gets the fixed hand region the frame was processed with.
+         *
+         * @return The hand region, in frame coordinates
+         */
+        public Rect getHandRegion() {
+            return handRegion;
+        }
+
+        /**
+         * Checks whether the frame was analysed, rather than reusing the previous
+         * analysis because the motion gate saw nothing move.
+         *
+         * @return true if the frame was analysed
+         */
+        public boolean isAnalysed() {
+            return analysed;
+        }
+
+        /**
+         * Gets the number of reset commands applied just before this frame.
+         *
+         * @return The reset count
+         */
+        public int getResets() {
+            return resets;
+        }
+
+        /**
+         * Gets the mode the frame was processed in.
+         *
+         * @return The mode, see GestureHandler
+         */
+        public int getMode() {
+            return mode;
+        }
+
+        /**
+         * Gets the finger count detected in the frame.
+         *
+         * @return The finger count (0-5)
+         */
+        public int getFingerCount() {
+            return fingerCount;
+        }
+
+        /**
+         * Gets the device selected after the frame.
+         *
+         * @return The device index, or -1 if none
+         */
+        public int getSelectedDevice() {
+            return selectedDevice;
+        }
+
+        /**
+         * Gets the value sent to the selected device.
+         *
+         * @return The device value, or -1 if none was sent
+         */
+        public int getDeviceValue() {
+            return deviceValue;
+        }
+
+        /**
+         * Gets the measured index finger height.
+         *
+         * @return The height percentage
+         */
+        public double getHeightPercentage() {
+            return heightPercentage;
+        }
+
+        /**
+         * Decodes the recorded image.
+         *
+         * @return A new BGR image the caller owns
+         */
+        public Mat decodeImage() {
+            MatOfByte encoded = new MatOfByte(image);
+            Mat decoded = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+            encoded.release();
+            return decoded;
+        }
+    }
+
+    /**
+     * Opens a log for reading by mapping it into memory.
+     *
+     * @param file The log file
+     * @throws IOException If the file cannot be read or is not a session log
+     */
+    public SessionLog(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        fileSize = channel.size();
+        mapWindow(0, HEADER_BYTES);
+        if (window.remaining() < HEADER_BYTES || window.getInt() != MAGIC) {
+            channel.close();
+            throw new IOException("Not a session log: " + file);
+        }
+        int version = window.getInt();
+        if (version != VERSION) {
+            channel.close();
+            throw new IOException("Unsupported session log version " + version + ": " + file);
+        }
+    }
+
+    /**
+     * Reads the next entry.
+     *
+     * @return The entry, or null at the end of the log
+     * @throws IOException If an entry is cut short
+     */
+    public Entry next() throws IOException {
+        long start = windowStart + window.position();
+        if (fileSize - start < 4) {
+            return null;
+        }
+        if (window.remaining() < 4) {
+            mapWindow(start, 4);
+        }
+        int length = window.getInt(window.position());
+        if (length == 0) {
+            return null; // Space mapped ahead by the recorder but never written
+        }
+        if (length < ENTRY_FIXED_BYTES || length > fileSize - start) {
+            throw new IOException("Truncated session log entry at byte " + start);
+        }
+        if (window.remaining() < length) {
+            mapWindow(start, length);
+        }
+        int entryStart = window.position();
+        window.getInt();
+        Entry entry = new Entry();
+        entry.traceId = window.getLong();
+        entry.captureTimeNanos = window.getLong();
+        entry.latencyNanos = window.getLong();
+        entry.droppedBefore = window.getInt();
+        entry.frameWidth = window.getInt();
+        entry.frameHeight = window.getInt();
+        entry.imageRegion = new Rect(window.getInt(), window.getInt(), window.getInt(), window.getInt());
+        entry.handRegion = new Rect(window.getInt(), window.getInt(), window.getInt(), window.getInt());
+        entry.analysed = window.get() != 0;
+        entry.resets = window.get();
+        entry.mode = window.get();
+        entry.fingerCount = window.get();
+        entry.selectedDevice = window.get();
+        entry.deviceValue = window.getInt();
+        entry.heightPercentage = window.getDouble();
+        entry.image = new byte[window.getInt()];
+        window.get(entry.image);
+        window.position(entryStart + length);
+        return entry;
+    }
+
+    private void mapWindow(long position, long minBytes) throws IOException {
+        long size = Math.min(fileSize - position, Math.max(WINDOW_BYTES, minBytes));
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,276 @@
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Rect;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the part of every processed frame the pipeline looked at, together with
+ * the decisions made for it, to an append-only memory-mapped {@link SessionLog}, so
+ * misdetections reported from a site can be replayed with {@link SessionReplay}.
+ * That is the fixed hand region, widened to take in the region the hand tracker
+ * analysed when it has followed the hand outside it, and its place in the frame.
+ * The frame thread only copies the image and queues it; PNG encoding (lossless)
+ * and writing happen on the recorder's own thread. If that thread falls behind,
+ * the oldest waiting frames are dropped rather than slowing the pipeline down; each
+ * entry records how many frames were dropped just before it.
+ */
+public class SessionRecorder implements AutoCloseable {
+    private static final int QUEUE_CAPACITY = 32;
+    private static final long POLL_TIMEOUT_MS = 100;
+    private static final long CHUNK_BYTES = 16L << 20;
+    // Fastest zlib level: the log is still lossless, and encoding keeps up with the camera
+    private static final int PNG_COMPRESSION = 1;
+
+    private final File file;
+    private final FileChannel channel;
+    private final FrameQueue<PendingEntry> queue;
+    private final MatOfInt encodeParams;
+    private final MatOfByte encoded;
+    private final AtomicLong recorded;
+    private final AtomicLong frameThreadNanos;
+    private final Thread writerThread;
+
+    // Numbers the queued frames; only touched by the frame thread
+    private long queuedFrames;
+    // Number of the last frame written; only touched by the writer thread
+    private long lastWrittenFrame;
+
+    // Only touched by the writer thread until it has finished
+    private long mappedStart;
+    private MappedByteBuffer buffer;
+
+    private volatile boolean running;
+    private volatile boolean failed;
+
+    /**
+     * A frame waiting to be encoded and written.
+     */
+    private static final class PendingEntry {
+        final Mat region;
+        final long frameNumber;
+        final int frameWidth;
+        final int frameHeight;
+        final Rect imageRegion;
+        final Rect handRegion;
+        final long traceId;
+        final long captureTimeNanos;
+        final long latencyNanos;
+        final boolean analysed;
+        final int resets;
+        final FrameObservation observation;
+
+        PendingEntry(long frameNumber, Mat frame, Rect imageRegion, Rect handRegion, FrameTrace trace,
+                     long latencyNanos, boolean analysed, int resets, FrameObservation observation) {
+            Mat view = new Mat(frame, imageRegion);
+            this.region = view.clone();
+            view.release();
+            this.frameNumber = frameNumber;
+            this.frameWidth = frame.cols();
+            this.frameHeight = frame.rows();
+            this.imageRegion = imageRegion;
+            this.handRegion = handRegion;
+            this.traceId = trace.getTraceId();
+            this.captureTimeNanos = trace.getCaptureTimeNanos();
+            this.latencyNanos = latencyNanos;
+            this.analysed = analysed;
+            this.resets = resets;
+            this.observation = observation;
+        }
+    }
+
+    /**
+     * Creates the log file, replacing any existing one, and starts the writer thread.
+     *
+     * @param file The log file to write
+     * @throws IOException If the file cannot be created
+     */
+    public SessionRecorder(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.queue = new FrameQueue<>("recorder", QUEUE_CAPACITY, entry -> entry.region.release());
+        this.encodeParams = new MatOfInt(Imgcodecs.IMWRITE_PNG_COMPRESSION, PNG_COMPRESSION);
+        this.encoded = new MatOfByte();
+        this.recorded = new AtomicLong();
+        this.frameThreadNanos = new AtomicLong();
+
+        mapChunk(0, SessionLog.HEADER_BYTES);
+        buffer.putInt(SessionLog.MAGIC);
+        buffer.putInt(SessionLog.VERSION);
+
+        running = true;
+        writerThread = new Thread(this::runWriter, "recorder");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues one processed frame. Called by the frame thread right after the frame
+     * was processed; returns after copying the recorded part of the frame.
+     *
+     * @param frame The processed frame
+     * @param handRegion The fixed hand region the frame was processed with
+     * @param analysedRegion The region that was looked at, which differs while tracking
+     * @param analysed false if the motion gate reused the previous frame's analysis
+     * @param observation What was observed and decided for the frame
+     * @param resets The number of reset commands applied before the frame
+     * @param latencyNanos The capture-to-control latency used for the frame, or 0
+     */
+    public void record(CapturedFrame frame, Rect handRegion, Rect analysedRegion, boolean analysed,
+                       FrameObservation observation, int resets, long latencyNanos) {
+        if (failed) {
+            return;
+        }
+        long start = System.nanoTime();
+        int x = Math.min(handRegion.x, analysedRegion.x);
+        int y = Math.min(handRegion.y, analysedRegion.y);
+        Rect recorded = new Rect(x, y,
+                Math.max(handRegion.x + handRegion.width, analysedRegion.x + analysedRegion.width) - x,
+                Math.max(handRegion.y + handRegion.height, analysedRegion.y + analysedRegion.height) - y);
+        queue.offer(new PendingEntry(++queuedFrames, frame.getImage(), recorded, handRegion, frame.getTrace(),
+                latencyNanos, analysed, resets, observation));
+        frameThreadNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    private void runWriter() {
+        try {
+            while (running || queue.depth() > 0) {
+                PendingEntry entry = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    try {
+                        write(entry);
+                    } finally {
+                        entry.region.release();
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            System.err.println("Error recording to " + file + ", recording stopped: " + e.getMessage());
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(PendingEntry entry) throws IOException {
+        if (!Imgcodecs.imencode(".png", entry.region, encoded, encodeParams)) {
+            throw new IOException("Could not encode frame " + entry.traceId);
+        }
+        byte[] image = encoded.toArray();
+        int length = SessionLog.ENTRY_FIXED_BYTES + image.length;
+        if (buffer.remaining() < length) {
+            // Map the next chunk from the end of the last entry, so entries stay contiguous
+            mapChunk(mappedStart + buffer.position(), length);
+        }
+
+        FrameObservation observation = entry.observation;
+        int start = buffer.position();
+        buffer.putInt(0); // Length written last, so a half-written entry ends the log
+        buffer.putLong(entry.traceId);
+        buffer.putLong(entry.captureTimeNanos);
+        buffer.putLong(entry.latencyNanos);
+        // Dropped frames took the numbers between the last written frame and this one
+        buffer.putInt((int) (entry.frameNumber - lastWrittenFrame - 1));
+        buffer.putInt(entry.frameWidth);
+        buffer.putInt(entry.frameHeight);
+        putRect(entry.imageRegion);
+        putRect(entry.handRegion);
+        buffer.put((byte) (entry.analysed ? 1 : 0));
+        buffer.put((byte) entry.resets);
+        buffer.put((byte) observation.getMode());
+        buffer.put((byte) observation.getFingerCount());
+        buffer.put((byte) observation.getSelectedDeviceIndex());
+        buffer.putInt(observation.getDeviceValue());
+        buffer.putDouble(observation.getHeightPercentage());
+        buffer.putInt(image.length);
+        buffer.put(image);
+        buffer.putInt(start, length);
+        lastWrittenFrame = entry.frameNumber;
+        recorded.incrementAndGet();
+    }
+
+    private void putRect(Rect rect) {
+        buffer.putInt(rect.x);
+        buffer.putInt(rect.y);
+        buffer.putInt(rect.width);
+        buffer.putInt(rect.height);
+    }
+
+    private void mapChunk(long position, long minBytes) throws IOException {
+        mappedStart = position;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(CHUNK_BYTES, minBytes));
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Gets the number of frames written to the log.
+     *
+     * @return The recorded frame count
+     */
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    /**
+     * Gets the number of frames dropped because the writer fell behind.
+     *
+     * @return The dropped frame count
+     */
+    public long getDroppedCount() {
+        return queue.getDroppedCount();
+    }
+
+    /**
+     * Builds a one-line summary of what was recorded and what it cost the frame thread.
+     *
+     * @return The statistics line
+     */
+    public String getStatsSummary() {
+        long frames = recorded.get() + queue.getDroppedCount();
+        return String.format("Recorder: %d frames written to %s, %d dropped, %.1f us per frame on the frame thread",
+                recorded.get(), file, queue.getDroppedCount(),
+                frames == 0 ? 0.0 : frameThreadNanos.get() / 1e3 / frames);
+    }
+
+    /**
+     * Writes the frames still queued, then trims and closes the log.
+     *
+     * @throws IOException If the log cannot be closed, or if interrupted while waiting
+     *                     for the writer (the interrupt flag is then set again)
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            // The writer may still be using the log, so leave it open
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the recorder to finish " + file, e);
+        }
+        long end = mappedStart + buffer.position();
+        buffer.force();
+        buffer = null;
+        try {
+            // Drop the zeros mapped ahead; platforms that refuse to truncate a mapped
+            // file keep them, which readers treat as the end of the log
+            channel.truncate(end);
+        } catch (IOException e) {
+            System.err.println("Could not trim " + file + ": " + e.getMessage());
+        }
+        channel.close();
+        encodeParams.release();
+        encoded.release();
+    }
+}
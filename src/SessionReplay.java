@@ -0,0 +1,176 @@
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.io.IOException;
+
+/**
+ * Feeds a {@link SessionLog} back through {@link GestureHandler#processFrame} as fast
+ * as it can and compares each decision with the recorded one.
+ * Every frame keeps its recorded capture time and latency, and recorded button
+ * presses are replayed before the frame they preceded, so a handler set up like the
+ * recording one makes the same decisions. Each recorded image is replayed in its place
+ * in an otherwise black frame. The motion gate looks at the whole frame, so instead of
+ * running it the replay repeats its recorded decisions.
+ * Where the recorder dropped frames, the recorded decisions were made with frames the
+ * replay never sees. The gap is reported, and differences after it are counted apart
+ * until the replay has made the recorded decisions for several frames in a row; the
+ * height filter can hide a difference for a frame or two.
+ */
+public class SessionReplay {
+    private static final int MAX_REPORTED_DIFFERENCES = 20;
+    private static final int MAX_REPORTED_GAPS = 20;
+    private static final int FRAMES_TO_RESYNC = 10;
+    private static final Scalar BLACK = new Scalar(0, 0, 0);
+
+    private final GestureHandler gestureHandler;
+    private final GestureProcessor gestureProcessor;
+    private final DeviceManager deviceManager;
+    private final Mat canvas = new Mat();
+    private final RecordedMotionGate motionGate = new RecordedMotionGate();
+
+    private long frames;
+    private long differingFrames;
+    private long gaps;
+    private long droppedFrames;
+    private long resyncingFrames;
+    // Frames still to match in a row before the replay is back in sync after a gap
+    private int framesToResync;
+    private long processNanos;
+    private long totalNanos;
+
+    /**
+     * A motion gate that repeats the decision recorded for each frame.
+     */
+    private static final class RecordedMotionGate extends MotionGate {
+        boolean analyse;
+
+        @Override
+        public boolean shouldAnalyse(Mat frame, long timeNanos) {
+            return analyse;
+        }
+
+        @Override
+        public void analysed(boolean handPresent) {
+        }
+    }
+
+    /**
+     * Creates a runner around a handler and processor set up like the recorded session.
+     * The handler's motion gate, if any, is closed and replaced by one that repeats the
+     * recorded decisions.
+     *
+     * @param gestureHandler The handler to replay through
+     * @param gestureProcessor The processor to analyse frames with
+     * @param deviceManager The devices the handler controls
+     */
+    public SessionReplay(GestureHandler gestureHandler, GestureProcessor gestureProcessor,
+                         DeviceManager deviceManager) {
+        this.gestureHandler = gestureHandler;
+        this.gestureProcessor = gestureProcessor;
+        this.deviceManager = deviceManager;
+        if (gestureHandler.getMotionGate() != null) {
+            gestureHandler.getMotionGate().close();
+        }
+        gestureHandler.setMotionGate(motionGate);
+    }
+
+    /**
+     * Replays every remaining frame of a log, printing the first differing decisions.
+     *
+     * @param log The log to replay
+     * @return true if every decision matched the recording
+     * @throws IOException If the log cannot be read or a device write fails
+     */
+    public boolean run(SessionLog log) throws IOException {
+        long start = System.nanoTime();
+        SessionLog.Entry entry;
+        while ((entry = log.next()) != null) {
+            if (entry.getDroppedBefore() > 0) {
+                droppedFrames += entry.getDroppedBefore();
+                framesToResync = FRAMES_TO_RESYNC;
+                if (++gaps <= MAX_REPORTED_GAPS) {
+                    System.out.println("Frame " + entry.getTraceId() + ": the recorder dropped "
+                            + entry.getDroppedBefore() + " frame(s) before it, resyncing");
+                }
+            }
+            for (int i = 0; i < entry.getResets(); i++) {
+                gestureHandler.postCommand(GestureCommand.RESET);
+            }
+            Mat image = entry.decodeImage();
+            canvas.create(entry.getFrameHeight(), entry.getFrameWidth(), CvType.CV_8UC3);
+            canvas.setTo(BLACK);
+            Mat target = new Mat(canvas, entry.getImageRegion());
+            image.copyTo(target);
+            target.release();
+            image.release();
+            motionGate.analyse = entry.isAnalysed();
+            CapturedFrame frame = new CapturedFrame(canvas, FrameTrace.replayed(entry.getTraceId(),
+                    entry.getCaptureTimeNanos(), entry.getLatencyNanos()));
+
+            long processStart = System.nanoTime();
+            FrameObservation observation = gestureHandler.processFrame(frame,
+                    entry.getHandRegion(), gestureProcessor, deviceManager);
+            processNanos += System.nanoTime() - processStart;
+
+            compare(entry, observation);
+            frames++;
+        }
+        canvas.release();
+        totalNanos = System.nanoTime() - start;
+        return differingFrames == 0;
+    }
+
+    private void compare(SessionLog.Entry entry, FrameObservation observation) {
+        StringBuilder differences = new StringBuilder();
+        compare(differences, "mode", entry.getMode(), observation.getMode());
+        compare(differences, "fingers", entry.getFingerCount(), observation.getFingerCount());
+        compare(differences, "device", entry.getSelectedDevice(), observation.getSelectedDeviceIndex());
+        compare(differences, "value", entry.getDeviceValue(), observation.getDeviceValue());
+        if (Double.compare(entry.getHeightPercentage(), observation.getHeightPercentage()) != 0) {
+            differences.append(String.format(" height %.2f -> %.2f",
+                    entry.getHeightPercentage(), observation.getHeightPercentage()));
+        }
+        if (differences.length() == 0) {
+            framesToResync = Math.max(framesToResync - 1, 0);
+        } else if (framesToResync > 0) {
+            framesToResync = FRAMES_TO_RESYNC;
+            resyncingFrames++;
+        } else {
+            if (++differingFrames <= MAX_REPORTED_DIFFERENCES) {
+                System.out.println("Frame " + entry.getTraceId() + " (recorded -> replayed):" + differences);
+            }
+        }
+    }
+
+    private static void compare(StringBuilder differences, String name, int recorded, int replayed) {
+        if (recorded != replayed) {
+            differences.append(' ').append(name).append(' ').append(recorded).append(" -> ").append(replayed);
+        }
+    }
+
+    /**
+     * Builds a summary of the last run: how many frames differed, the gaps in the
+     * recording and the throughput, both including PNG decoding and for the pipeline alone.
+     *
+     * @return The summary line
+     */
+    public String getSummary() {
+        return String.format("Replay: %d frames, %d with differing decisions, %d gaps of %d dropped frames "
+                        + "(%d frames differed while resyncing) | %.1f frames/s overall, "
+                        + "%.1f frames/s in processFrame",
+                frames, differingFrames, gaps, droppedFrames, resyncingFrames,
+                totalNanos == 0 ? 0.0 : frames / (totalNanos / 1e9),
+                processNanos == 0 ? 0.0 : frames / (processNanos / 1e9));
+    }
+
+    /**
+     * Gets the number of frames whose decisions differed from the recording in the last run,
+     * not counting frames right after a gap until the replay was back in sync.
+     *
+     * @return The differing frame count
+     */
+    public long getDifferingFrames() {
+        return differingFrames;
+    }
+}
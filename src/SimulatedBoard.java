@@ -0,0 +1,482 @@
+import org.firmata4j.Consumer;
+import org.firmata4j.I2CDevice;
+import org.firmata4j.IODevice;
+import org.firmata4j.IODeviceEventListener;
+import org.firmata4j.IOEvent;
+import org.firmata4j.Pin;
+import org.firmata4j.PinEventListener;
+import org.firmata4j.fsm.Event;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process stand-in for an Arduino running Firmata, so device controllers and
+ * the device manager can be exercised without hardware.
+ * Pin writes are stored and counted. The serial link can be made imperfect: each
+ * transmission waits for a fixed latency, a random jitter and the time its bytes take
+ * at the configured baud rate, one transmission at a time as on a real link, and a
+ * fraction of pin values can be lost on the way. The board can also be disconnected
+ * so writes fail. Input pins can be driven with {@link #simulateInput(int, long)} or
+ * {@link #pressButton(int)}, which notify listeners just as a Firmata pin report would.
+ * Raw Firmata messages sent with {@link #sendMessage(byte...)} are applied too, so a
+ * burst of analog messages (see {@link FirmataBurstTransport}) costs one write latency.
+ */
+public class SimulatedBoard implements IODevice {
+    public static final int DEFAULT_PIN_COUNT = 20;
+    private static final int ANALOG_MESSAGE = 0xE0;
+    private static final int START_SYSEX = 0xF0;
+    private static final int EXTENDED_ANALOG = 0x6F;
+    private static final int END_SYSEX = 0xF7;
+    // Pin value and pin mode messages are three bytes on the wire
+    private static final int PIN_MESSAGE_BYTES = 3;
+    // A start bit, eight data bits and a stop bit per byte
+    private static final int BITS_PER_BYTE = 10;
+    // Pin value reported while a pulled-up button is not pressed
+    private static final long BUTTON_RELEASED = 1;
+
+    private final SimulatedPin[] pins;
+    private final List<IODeviceEventListener> listeners;
+    private final AtomicLong writes;
+    private final AtomicLong messages;
+    private final AtomicLong dropped;
+    // Held for the duration of a transmission and while its values are applied, so
+    // transmissions queue and arrive in order as on one serial link
+    private final Object link = new Object();
+    private final Random random = new Random();
+    private volatile long writeLatencyNanos;
+    private volatile long writeJitterNanos;
+    private volatile int baudRate;
+    private volatile double dropRate;
+    private volatile boolean connected;
+    private volatile boolean started;
+
+    /**
+     * Creates a board with as many pins as an Arduino Uno.
+     */
+    public SimulatedBoard() {
+        this(DEFAULT_PIN_COUNT);
+    }
+
+    /**
+     * Creates a board with the given number of pins, each supporting every mode.
+     *
+     * @param pinCount The number of pins
+     */
+    public SimulatedBoard(int pinCount) {
+        this.pins = new SimulatedPin[pinCount];
+        for (int i = 0; i < pinCount; i++) {
+            pins[i] = new SimulatedPin((byte) i);
+        }
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.writes = new AtomicLong();
+        this.messages = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.connected = true;
+    }
+
+    /**
+     * Sets how long every pin write takes, as a slow serial link would.
+     *
+     * @param latency The time per write
+     * @param unit The unit of the latency
+     */
+    public void setWriteLatency(long latency, TimeUnit unit) {
+        writeLatencyNanos = unit.toNanos(latency);
+    }
+
+    /**
+     * Sets the largest random delay added to every write on top of its latency.
+     * Each write waits a uniformly distributed extra time up to this bound.
+     *
+     * @param jitter The largest extra time per write; 0 for none
+     * @param unit The unit of the jitter
+     */
+    public void setWriteJitter(long jitter, TimeUnit unit) {
+        writeJitterNanos = unit.toNanos(jitter);
+    }
+
+    /**
+     * Sets the speed of the serial link, so every write also takes the time its bytes
+     * need on the wire: a three-byte pin message takes about 0.5 ms at 57600 baud,
+     * the speed StandardFirmata uses.
+     *
+     * @param baudRate The bits per second; 0 for a link of unlimited speed (the default)
+     */
+    public void setBaudRate(int baudRate) {
+        if (baudRate < 0) {
+            throw new IllegalArgumentException("Baud rate must not be negative: " + baudRate);
+        }
+        this.baudRate = baudRate;
+    }
+
+    /**
+     * Sets the fraction of pin values lost on the way to the board. A lost value is
+     * sent, and takes its time, without an error, just as a corrupted Firmata message
+     * is ignored by the board; the pin keeps its previous value. Mode changes are
+     * never lost.
+     *
+     * @param dropRate The probability from 0 to 1 that a value is lost
+     */
+    public void setDropRate(double dropRate) {
+        if (dropRate < 0 || dropRate > 1) {
+            throw new IllegalArgumentException("Drop rate must be between 0 and 1: " + dropRate);
+        }
+        this.dropRate = dropRate;
+    }
+
+    /**
+     * Seeds the generator behind the jitter and the lost values, so a run can be repeated.
+     *
+     * @param seed The seed
+     */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /**
+     * Connects or disconnects the board. While disconnected every write fails
+     * with an IOException.
+     *
+     * @param connected false to make writes fail
+     */
+    public void setConnected(boolean connected) {
+        this.connected = connected;
+    }
+
+    /**
+     * Changes the value of a pin as if the board had reported it, notifying pin
+     * and board listeners (for example a {@link ButtonController}).
+     *
+     * @param pinNumber The pin number
+     * @param value The new value
+     */
+    public void simulateInput(int pinNumber, long value) {
+        pins[pinNumber].update(value);
+    }
+
+    /**
+     * Reports a button on the given pin as pressed. Buttons are wired with a pull-up,
+     * so a pressed button reads 0, as {@link ButtonController} expects.
+     *
+     * @param pinNumber The pin the button is connected to
+     */
+    public void pressButton(int pinNumber) {
+        simulateInput(pinNumber, 0);
+    }
+
+    /**
+     * Reports a button on the given pin as released (reading 1).
+     *
+     * @param pinNumber The pin the button is connected to
+     */
+    public void releaseButton(int pinNumber) {
+        simulateInput(pinNumber, BUTTON_RELEASED);
+    }
+
+    /**
+     * Gets the number of pin values that reached the board, whether written through
+     * a pin or as part of a raw message.
+     *
+     * @return The write count
+     */
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    /**
+     * Gets the number of transmissions that succeeded: one per pin write, mode change
+     * or raw message, however many pin values a raw message carried. Transmissions
+     * whose values were lost are counted too.
+     *
+     * @return The transmission count
+     */
+    public long getMessageCount() {
+        return messages.get();
+    }
+
+    /**
+     * Gets the number of pin values lost on the way to the board.
+     *
+     * @return The lost value count
+     *
+     * @see #setDropRate(double)
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void start() {
+        started = true;
+        IOEvent event = new IOEvent(this);
+        for (IODeviceEventListener listener : listeners) {
+            listener.onStart(event);
+        }
+    }
+
+    @Override
+    public void stop() {
+        started = false;
+        IOEvent event = new IOEvent(this);
+        for (IODeviceEventListener listener : listeners) {
+            listener.onStop(event);
+        }
+    }
+
+    @Override
+    public void ensureInitializationIsDone() {
+        // There is no handshake to wait for
+    }
+
+    @Override
+    public boolean isReady() {
+        return started;
+    }
+
+    @Override
+    public Set<Pin> getPins() {
+        return Collections.unmodifiableSet(new LinkedHashSet<Pin>(Arrays.asList(pins)));
+    }
+
+    @Override
+    public int getPinsCount() {
+        return pins.length;
+    }
+
+    @Override
+    public Pin getPin(int index) {
+        return pins[index];
+    }
+
+    @Override
+    public I2CDevice getI2CDevice(byte address) throws IOException {
+        throw new IOException("I2C is not simulated");
+    }
+
+    @Override
+    public void addEventListener(IODeviceEventListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeEventListener(IODeviceEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public String getProtocol() {
+        return "simulated";
+    }
+
+    @Override
+    public void addProtocolMessageHandler(String messageType, Consumer<Event> handler) {
+        // No protocol messages are ever received
+    }
+
+    @Override
+    public void sendMessage(String message) throws IOException {
+        // A string sysex message: start, command, two bytes per character, end
+        transmit(2 * message.length() + 3);
+    }
+
+    /**
+     * Sends raw Firmata bytes, taking the write latency once however many messages
+     * they hold. Analog and extended analog messages set their pin's value, unless the
+     * value is lost; other messages are ignored.
+     */
+    @Override
+    public void sendMessage(byte... bytes) throws IOException {
+        synchronized (link) {
+            transmit(bytes.length);
+            applyMessages(bytes);
+        }
+    }
+
+    private void applyMessages(byte[] bytes) {
+        int i = 0;
+        while (i < bytes.length) {
+            int command = bytes[i] & 0xFF;
+            if ((command & 0xF0) == ANALOG_MESSAGE && i + 2 < bytes.length) {
+                writePin(command & 0x0F, (bytes[i + 1] & 0x7F) | (bytes[i + 2] & 0x7F) << 7);
+                i += 3;
+            } else if (command == START_SYSEX) {
+                int end = i + 1;
+                while (end < bytes.length && (bytes[end] & 0xFF) != END_SYSEX) {
+                    end++;
+                }
+                if (end - i >= 3 && (bytes[i + 1] & 0xFF) == EXTENDED_ANALOG) {
+                    long value = 0;
+                    for (int b = i + 3, shift = 0; b < end; b++, shift += 7) {
+                        value |= (long) (bytes[b] & 0x7F) << shift;
+                    }
+                    writePin(bytes[i + 2] & 0x7F, value);
+                }
+                i = end + 1;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private void writePin(int pinNumber, long value) {
+        if (pinNumber < pins.length && delivered()) {
+            writes.incrementAndGet();
+            pins[pinNumber].update(value);
+        }
+    }
+
+    /**
+     * Decides whether a pin value survives the link, counting it if it is lost.
+     */
+    private boolean delivered() {
+        double rate = dropRate;
+        if (rate > 0 && random.nextDouble() < rate) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void checkConnected() throws IOException {
+        if (!connected) {
+            throw new IOException("Simulated board is disconnected");
+        }
+    }
+
+    /**
+     * Waits for the configured latency, jitter and the time the bytes take at the baud
+     * rate, then fails if the board is disconnected. Only one transmission is on the
+     * link at a time.
+     *
+     * @param bytes The length of the transmission
+     */
+    private void transmit(int bytes) throws IOException {
+        synchronized (link) {
+            long delay = writeLatencyNanos;
+            long jitter = writeJitterNanos;
+            if (jitter > 0) {
+                delay += (long) (random.nextDouble() * jitter);
+            }
+            int baud = baudRate;
+            if (baud > 0) {
+                delay += (long) bytes * BITS_PER_BYTE * TimeUnit.SECONDS.toNanos(1) / baud;
+            }
+            if (delay > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while writing", e);
+                }
+            }
+            checkConnected();
+            messages.incrementAndGet();
+        }
+    }
+
+    /**
+     * A pin that keeps its mode and value in memory.
+     */
+    private class SimulatedPin implements Pin {
+        private final byte index;
+        private final List<PinEventListener> pinListeners = new CopyOnWriteArrayList<>();
+        private volatile Mode mode = Mode.OUTPUT;
+        private volatile long value;
+
+        SimulatedPin(byte index) {
+            this.index = index;
+        }
+
+        @Override
+        public IODevice getDevice() {
+            return SimulatedBoard.this;
+        }
+
+        @Override
+        public byte getIndex() {
+            return index;
+        }
+
+        @Override
+        public Mode getMode() {
+            return mode;
+        }
+
+        @Override
+        public void setMode(Mode mode) throws IOException {
+            transmit(PIN_MESSAGE_BYTES);
+            this.mode = mode;
+            IOEvent event = new IOEvent(this);
+            for (PinEventListener listener : pinListeners) {
+                listener.onModeChange(event);
+            }
+        }
+
+        @Override
+        public void setServoMode(int minPulse, int maxPulse) throws IOException {
+            setMode(Mode.SERVO);
+        }
+
+        @Override
+        public boolean supports(Mode mode) {
+            return true;
+        }
+
+        @Override
+        public Set<Mode> getSupportedModes() {
+            return EnumSet.allOf(Mode.class);
+        }
+
+        @Override
+        public long getValue() {
+            return value;
+        }
+
+        @Override
+        public void setValue(long value) throws IOException {
+            synchronized (link) {
+                transmit(PIN_MESSAGE_BYTES);
+                if (delivered()) {
+                    writes.incrementAndGet();
+                    update(value);
+                }
+            }
+        }
+
+        @Override
+        public void addEventListener(PinEventListener listener) {
+            pinListeners.add(listener);
+        }
+
+        @Override
+        public void removeEventListener(PinEventListener listener) {
+            pinListeners.remove(listener);
+        }
+
+        @Override
+        public void removeAllEventListeners() {
+            pinListeners.clear();
+        }
+
+        void update(long value) {
+            this.value = value;
+            IOEvent event = new IOEvent(this, value);
+            for (PinEventListener listener : pinListeners) {
+                listener.onValueChange(event);
+            }
+            for (IODeviceEventListener listener : listeners) {
+                listener.onPinChange(event);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Classifies BGR pixels as skin with a precomputed color lookup table instead of
+ * a per-frame HSV conversion and range checks.
+ * Each channel is quantised to a few bits (5 bits gives a 32x32x32 table); every
+ * cell is classified once, by converting its center color to HSV and testing it
+ * against the skin ranges. The table is rebuilt only when the ranges change.
+ * Frames are classified in one native pass with Imgproc.calcBackProject, which
+ * is exactly a 3D table lookup per pixel.
+ */
+public class SkinColorTable implements AutoCloseable {
+    public static final int DEFAULT_BITS_PER_CHANNEL = 5;
+
+    private static final float SKIN = 255f;
+
+    private final int bits;
+    private final Mat table;
+    private final MatOfInt channels;
+    private final MatOfFloat channelRanges;
+    private final List<Mat> images;
+    private double[] ranges;
+
+    /**
+     * Creates an empty table. Call {@link #setRanges(Scalar...)} before classifying.
+     *
+     * @param bitsPerChannel How many bits of each color channel to keep (1-7);
+     *                       each extra bit makes the table 8 times larger
+     */
+    public SkinColorTable(int bitsPerChannel) {
+        if (bitsPerChannel < 1 || bitsPerChannel > 7) {
+            throw new IllegalArgumentException("Bits per channel must be between 1 and 7: " + bitsPerChannel);
+        }
+        int levels = 1 << bitsPerChannel;
+        this.bits = bitsPerChannel;
+        // calcBackProject only accepts floating point histograms
+        this.table = new Mat(new int[] {levels, levels, levels}, CvType.CV_32F);
+        this.channels = new MatOfInt(0, 1, 2);
+        this.channelRanges = new MatOfFloat(0, 256, 0, 256, 0, 256);
+        this.images = new ArrayList<>(1);
+        this.images.add(null);
+    }
+
+    /**
+     * Sets the HSV ranges that count as skin, rebuilding the table if they changed.
+     * A pixel is skin if it falls inside any of the ranges (bounds inclusive, as
+     * with Core.inRange).
+     *
+     * @param lowerUpperPairs Lower and upper HSV bounds, alternating
+     * @return true if the table was rebuilt
+     */
+    public boolean setRanges(Scalar... lowerUpperPairs) {
+        if (lowerUpperPairs.length == 0 || lowerUpperPairs.length % 2 != 0) {
+            throw new IllegalArgumentException("Ranges must be given as lower and upper pairs");
+        }
+        double[] newRanges = new double[lowerUpperPairs.length * 3];
+        for (int i = 0; i < lowerUpperPairs.length; i++) {
+            System.arraycopy(lowerUpperPairs[i].val, 0, newRanges, i * 3, 3);
+        }
+        if (Arrays.equals(newRanges, ranges)) {
+            return false;
+        }
+        ranges = newRanges;
+        build();
+        return true;
+    }
+
+    /**
+     * Classifies every pixel of a BGR image in a single pass.
+     *
+     * @param bgr The 8-bit, 3-channel image to classify
+     * @param mask Receives 255 for skin pixels and 0 elsewhere; reallocated if the size changes
+     */
+    public void classify(Mat bgr, Mat mask) {
+        if (ranges == null) {
+            throw new IllegalStateException("Skin ranges have not been set");
+        }
+        images.set(0, bgr);
+        Imgproc.calcBackProject(images, channels, table, mask, channelRanges, 1);
+        images.set(0, null);
+    }
+
+    /**
+     * Gets the number of bits kept from each color channel.
+     *
+     * @return The bits per channel
+     */
+    public int getBitsPerChannel() {
+        return bits;
+    }
+
+    /**
+     * Releases the native table.
+     */
+    @Override
+    public void close() {
+        table.release();
+        channels.release();
+        channelRanges.release();
+    }
+
+    /**
+     * Classifies the center color of every cell, using OpenCV's own BGR to HSV
+     * conversion so the table agrees with the cvtColor + inRange path.
+     */
+    private void build() {
+        int levels = 1 << bits;
+        int shift = 8 - bits;
+        int cells = levels * levels * levels;
+        int half = (1 << shift) / 2;
+
+        // Cells are in table order: blue slowest, red fastest
+        byte[] centers = new byte[cells * 3];
+        for (int cell = 0, p = 0; cell < cells; cell++, p += 3) {
+            centers[p] = (byte) (((cell >> (2 * bits)) << shift) + half);
+            centers[p + 1] = (byte) ((((cell >> bits) & (levels - 1)) << shift) + half);
+            centers[p + 2] = (byte) (((cell & (levels - 1)) << shift) + half);
+        }
+
+        Mat bgr = new Mat(cells, 1, CvType.CV_8UC3);
+        Mat hsv = new Mat();
+        bgr.put(0, 0, centers);
+        Imgproc.cvtColor(bgr, hsv, Imgproc.COLOR_BGR2HSV);
+        byte[] hsvCells = new byte[cells * 3];
+        hsv.get(0, 0, hsvCells);
+        bgr.release();
+        hsv.release();
+
+        float[] values = new float[cells];
+        for (int cell = 0, p = 0; cell < cells; cell++, p += 3) {
+            if (inAnyRange(hsvCells[p] & 0xFF, hsvCells[p + 1] & 0xFF, hsvCells[p + 2] & 0xFF)) {
+                values[cell] = SKIN;
+            }
+        }
+        table.put(new int[] {0, 0, 0}, values);
+    }
+
+    private boolean inAnyRange(int h, int s, int v) {
+        for (int r = 0; r < ranges.length; r += 6) {
+            if (h >= ranges[r] && h <= ranges[r + 3]
+                    && s >= ranges[r + 1] && s <= ranges[r + 4]
+                    && v >= ranges[r + 2] && v <= ranges[r + 5]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,131 @@
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Segments the hand by skin color: two HSV ranges (hue wraps around at 180),
+ * checked either after an HSV conversion or with a precomputed color lookup table
+ * built from the same ranges. Needs no history, so the region may move freely.
+ */
+public class SkinSegmentation implements SegmentationStrategy {
+    // Skin classifiers: HSV conversion and range checks, or a precomputed color table
+    public static final int CLASSIFIER_HSV = 1;
+    public static final int CLASSIFIER_LOOKUP_TABLE = 2;
+
+    private final Mat hsvFrame = new Mat();
+    private final Mat secondRange = new Mat();
+    private Scalar lower1 = GestureProcessor.SKIN_LOWER_1;
+    private Scalar upper1 = GestureProcessor.SKIN_UPPER_1;
+    private Scalar lower2 = GestureProcessor.SKIN_LOWER_2;
+    private Scalar upper2 = GestureProcessor.SKIN_UPPER_2;
+    private int classifier = CLASSIFIER_HSV;
+    private SkinColorTable colorTable;
+
+    /**
+     * Creates a skin segmentation with the default thresholds and HSV classification.
+     */
+    public SkinSegmentation() {
+        this(CLASSIFIER_HSV);
+    }
+
+    /**
+     * Creates a skin segmentation with the default thresholds.
+     *
+     * @param classifier CLASSIFIER_HSV or CLASSIFIER_LOOKUP_TABLE
+     */
+    public SkinSegmentation(int classifier) {
+        setClassifier(classifier);
+    }
+
+    /**
+     * Sets how pixels are classified as skin. CLASSIFIER_LOOKUP_TABLE replaces the
+     * HSV conversion and the two range checks with one pass over a precomputed
+     * 32x32x32 color table, built from the same thresholds.
+     *
+     * @param classifier CLASSIFIER_HSV or CLASSIFIER_LOOKUP_TABLE
+     */
+    public void setClassifier(int classifier) {
+        if (classifier != CLASSIFIER_HSV && classifier != CLASSIFIER_LOOKUP_TABLE) {
+            throw new IllegalArgumentException("Unknown skin classifier: " + classifier);
+        }
+        if (classifier == CLASSIFIER_LOOKUP_TABLE && colorTable == null) {
+            colorTable = new SkinColorTable(SkinColorTable.DEFAULT_BITS_PER_CHANNEL);
+            colorTable.setRanges(lower1, upper1, lower2, upper2);
+        }
+        this.classifier = classifier;
+    }
+
+    /**
+     * Gets how pixels are classified as skin.
+     *
+     * @return CLASSIFIER_HSV or CLASSIFIER_LOOKUP_TABLE
+     */
+    public int getClassifier() {
+        return classifier;
+    }
+
+    /**
+     * Sets the two HSV ranges that count as skin (hue wraps around at 180).
+     * The color table, if in use, is rebuilt only when the ranges actually change.
+     *
+     * @param lower1 Lower bound of the first range
+     * @param upper1 Upper bound of the first range
+     * @param lower2 Lower bound of the second range
+     * @param upper2 Upper bound of the second range
+     */
+    public void setThresholds(Scalar lower1, Scalar upper1, Scalar lower2, Scalar upper2) {
+        this.lower1 = lower1;
+        this.upper1 = upper1;
+        this.lower2 = lower2;
+        this.upper2 = upper2;
+        if (colorTable != null) {
+            colorTable.setRanges(lower1, upper1, lower2, upper2);
+        }
+    }
+
+    @Override
+    public void segment(Mat roi, Mat mask) {
+        if (classifier == CLASSIFIER_LOOKUP_TABLE) {
+            // Both HSV ranges are baked into the table, so one pass classifies each pixel
+            colorTable.classify(roi, mask);
+            return;
+        }
+
+        // Convert to HSV for better skin detection
+        Imgproc.cvtColor(roi, hsvFrame, Imgproc.COLOR_BGR2HSV);
+
+        // Create mask for skin color detection (works for various skin tones)
+        Core.inRange(hsvFrame, lower1, upper1, mask);
+
+        // Second range for skin detection (to handle some lighting conditions better)
+        Core.inRange(hsvFrame, lower2, upper2, secondRange);
+
+        // Combine the two masks
+        Core.bitwise_or(mask, secondRange, mask);
+    }
+
+    @Override
+    public boolean needsFixedRegion() {
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        // Every frame is classified on its own
+    }
+
+    @Override
+    public String getName() {
+        return classifier == CLASSIFIER_LOOKUP_TABLE ? SKIN_TABLE : SKIN;
+    }
+
+    @Override
+    public void close() {
+        hsvFrame.release();
+        secondRange.release();
+        if (colorTable != null) {
+            colorTable.close();
+        }
+    }
+}
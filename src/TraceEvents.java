@@ -0,0 +1,108 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder events for each stage of the gesture pipeline.
+ * Every event carries the trace ID of the frame it belongs to, so a recording
+ * shows the per-stage and end-to-end (capture to pin write) latency of every frame.
+ * When no recording is running the events are disabled and cost next to nothing.
+ * Start a recording with -XX:StartFlightRecording=filename=gesture.jfr
+ */
+public final class TraceEvents {
+    private static final String CATEGORY = "Gesture Pipeline";
+
+    private TraceEvents() {
+    }
+
+    @Name("gesture.FrameCapture")
+    @Label("Frame Capture")
+    @Description("Reading one frame from the frame source")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class FrameCapture extends Event {
+        @Label("Trace ID")
+        public long traceId;
+    }
+
+    @Name("gesture.SkinMask")
+    @Label("Skin Mask")
+    @Description("Segmenting the hand region into a skin mask")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class SkinMask extends Event {
+        @Label("Trace ID")
+        public long traceId;
+    }
+
+    @Name("gesture.ContourAnalysis")
+    @Label("Contour Analysis")
+    @Description("Hand contour analysis, fingertip detection and height measurement")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class ContourAnalysis extends Event {
+        @Label("Trace ID")
+        public long traceId;
+
+        @Label("Hand Present")
+        public boolean handPresent;
+
+        @Label("Finger Count")
+        public int fingerCount;
+
+        @Label("Height Percentage")
+        public double heightPercentage;
+    }
+
+    @Name("gesture.GestureDecision")
+    @Label("Gesture Decision")
+    @Description("GestureDetector and mode logic for one frame")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class GestureDecision extends Event {
+        @Label("Trace ID")
+        public long traceId;
+
+        @Label("Mode")
+        public int mode;
+
+        @Label("Selected Device")
+        public int selectedDevice;
+
+        @Label("Device Value")
+        public int deviceValue;
+
+        @Label("Capture To Decision")
+        @Timespan(Timespan.NANOSECONDS)
+        public long captureToDecision;
+    }
+
+    @Name("gesture.PinWrite")
+    @Label("Pin Write")
+    @Description("Writing a device value to the board")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class PinWrite extends Event {
+        @Label("Trace ID")
+        public long traceId;
+
+        @Label("Device")
+        public String device;
+
+        @Label("Value")
+        public int value;
+
+        @Label("Burst Size")
+        @Description("Number of values written to the board in the same burst, this one included")
+        public int burstSize;
+
+        @Label("Capture To Write")
+        @Description("End-to-end latency from frame capture to the completed pin write")
+        @Timespan(Timespan.NANOSECONDS)
+        public long captureToWrite;
+    }
+}
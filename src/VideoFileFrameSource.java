@@ -0,0 +1,56 @@
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+/**
+ * Replays the frames of a recorded video file.
+ */
+public class VideoFileFrameSource extends ReplayFrameSource {
+    private static final double FALLBACK_FPS = 30.0;
+
+    private final VideoCapture video;
+
+    /**
+     * Opens a video file for replay.
+     *
+     * @param path The path of the video file
+     * @param realTime true to replay at the file's frame rate, false for unthrottled replay
+     * @throws RuntimeException if the file cannot be opened
+     */
+    public VideoFileFrameSource(String path, boolean realTime) {
+        this(openVideo(path), realTime);
+    }
+
+    private VideoFileFrameSource(VideoCapture video, boolean realTime) {
+        super(frameRateOf(video), realTime);
+        this.video = video;
+    }
+
+    private static VideoCapture openVideo(String path) {
+        VideoCapture video = new VideoCapture(path);
+        if (!video.isOpened()) {
+            throw new RuntimeException("Error: Cannot open video file " + path);
+        }
+        return video;
+    }
+
+    private static double frameRateOf(VideoCapture video) {
+        double fps = video.get(Videoio.CAP_PROP_FPS);
+        return fps > 0 ? fps : FALLBACK_FPS;
+    }
+
+    @Override
+    protected Mat readNextFrame() {
+        Mat frame = new Mat();
+        if (!video.read(frame) || frame.empty()) {
+            frame.release();
+            return null;
+        }
+        return frame;
+    }
+
+    @Override
+    public void release() {
+        video.release();
+    }
+}